@@ -0,0 +1,738 @@
+package com.lupusumbra.util.commandline.processor;
+
+import com.lupusumbra.util.commandline.CommandValues;
+import com.lupusumbra.util.commandline.GeneratedCommandParser;
+import com.lupusumbra.util.commandline.Lazy;
+import com.lupusumbra.util.commandline.annotation.Command;
+import com.lupusumbra.util.commandline.annotation.Option;
+import com.lupusumbra.util.commandline.annotation.Parameters;
+import com.lupusumbra.util.commandline.annotation.SubCommand;
+import com.lupusumbra.util.commandline.converter.TypeConverter;
+import com.lupusumbra.util.commandline.converter.TypeConverters;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * An annotation processor which generates a reflection-free {@link GeneratedCommandParser} for each {@link Command} class,
+ * and a {@link CommandValues} implementation for each {@link Command} interface.
+ *
+ * Classes which cannot be bound through direct field writes (private or final annotated fields, no accessible no-args
+ * constructor, invalid annotations, ...) are reported with a warning and keep using the reflection-based parser;
+ * interfaces which cannot be implemented are reported the same way, and keep using a proxy.
+ */
+@SupportedAnnotationTypes("com.lupusumbra.util.commandline.annotation.Command")
+public class CommandProcessor extends AbstractProcessor {
+    //the runtime base class of generated parsers
+    private static final String BASE_CLASS = GeneratedCommandParser.class.getName();
+    //the runtime base class of generated interface implementations
+    private static final String VALUES_CLASS = CommandValues.class.getName();
+    //the option annotation type
+    private static final String OPTION_CLASS = Option.class.getName();
+    //the converter interface
+    private static final String CONVERTER_CLASS = TypeConverter.class.getName();
+    //the lazy option value type
+    private static final String LAZY_CLASS = Lazy.class.getName();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(Command.class))
+            if (element.getKind() == ElementKind.CLASS) this.generate((TypeElement) element);
+            else if (element.getKind() == ElementKind.INTERFACE) this.generateValues((TypeElement) element);
+        return false;
+    }
+
+    /**
+     * Generate the parser of a Command class
+     * @param type the Command class
+     */
+    private void generate(TypeElement type) {
+        try {
+            final CommandSource source = new CommandSource(type);
+            this.write(type, source.packageName, source.simpleName, source.toString());
+        } catch (UnsupportedCommandException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "No parser generated for " + type.getQualifiedName() + ", it will be parsed through reflection: " + e.getMessage(), e.element);
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write the parser of " + type.getQualifiedName() + ": " + e, type);
+        }
+    }
+
+    /**
+     * Generate the implementation of a Command interface
+     * @param type the Command interface
+     */
+    private void generateValues(TypeElement type) {
+        try {
+            final ValuesSource source = new ValuesSource(type);
+            this.write(type, source.packageName, source.simpleName, source.toString());
+        } catch (UnsupportedCommandException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "No implementation generated for " + type.getQualifiedName() + ", it will be backed by a proxy: " + e.getMessage(), e.element);
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write the implementation of " + type.getQualifiedName() + ": " + e, type);
+        }
+    }
+
+    /**
+     * Write a generated source file
+     * @param type the originating Command type
+     * @param packageName the package of the generated class
+     * @param simpleName the simple name of the generated class
+     * @param source the source
+     * @throws IOException if the file cannot be written
+     */
+    private void write(TypeElement type, String packageName, String simpleName, String source) throws IOException {
+        final String qualifiedName = packageName.isEmpty() ? simpleName : packageName + '.' + simpleName;
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter()) {
+            writer.write(source);
+        }
+    }
+
+    /**
+     * Get the simple name of the class generated for a Command type: its binary name within its package, followed by a
+     * suffix
+     * @param type the Command type
+     * @param packageName the package of the Command type
+     * @param suffix the suffix
+     * @return the simple name
+     */
+    private String generatedName(TypeElement type, String packageName, String suffix) {
+        final String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        return (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + suffix;
+    }
+
+    /**
+     * Check an {@link Option} annotation the same way the runtime does
+     * @param element the annotated field or getter
+     * @param option the annotation
+     * @throws UnsupportedCommandException if the annotation is invalid
+     */
+    private static void checkOption(Element element, Option option) throws UnsupportedCommandException {
+        if (option.name().isEmpty())
+            throw new UnsupportedCommandException("a name is required", element);
+        if (stripOptionPrefix(option.shortKey()).isEmpty() && stripOptionPrefix(option.longKey()).isEmpty())
+            throw new UnsupportedCommandException("shortKey, longKey, or both must be selected", element);
+        if (option.hidden() && option.required())
+            throw new UnsupportedCommandException("hidden and required cannot be requested for the same option", element);
+    }
+
+    /**
+     * Strip the option prefix ("-" or "--") from a key
+     * @param key the raw key
+     * @return the stripped key
+     */
+    private static String stripOptionPrefix(String key) {
+        return key.startsWith("--") ? key.substring(2) : key.startsWith("-") ? key.substring(1) : key;
+    }
+
+    /**
+     * Formats a String as a Java literal
+     * @param value the String
+     * @return the Java literal
+     */
+    private static String literal(String value) {
+        final StringBuilder rval = new StringBuilder(value.length() + 2).append('"');
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"': rval.append("\\\""); break;
+                case '\\': rval.append("\\\\"); break;
+                case '\n': rval.append("\\n"); break;
+                case '\r': rval.append("\\r"); break;
+                case '\t': rval.append("\\t"); break;
+                default:
+                    if (c < 0x20 || c > 0x7e) rval.append(String.format("\\u%04x", (int) c));
+                    else rval.append(c);
+            }
+        }
+        return rval.append('"').toString();
+    }
+
+    /**
+     * Formats a String array as a Java array expression
+     * @param values the Strings
+     * @return the Java array expression
+     */
+    private static String literal(String[] values) {
+        final StringJoiner rval = new StringJoiner(", ", "new String[]{", "}");
+        for (String value : values) rval.add(literal(value));
+        return rval.toString();
+    }
+
+    /**
+     * The generated source of a single Command class
+     */
+    private final class CommandSource {
+        //the package of the Command class
+        final String packageName;
+        //the simple name of the generated class
+        final String simpleName;
+        //the Command class source name
+        private final String dataType;
+        //the Command annotation
+        private final Command command;
+        //option fields
+        private final List<VariableElement> optionFields = new ArrayList<>();
+        //option annotations
+        private final List<Option> options = new ArrayList<>();
+        //option converter class names, null when the option uses the registry
+        private final List<String> converters = new ArrayList<>();
+        //option value type names of Lazy fields, null for other fields
+        private final List<String> lazyTypes = new ArrayList<>();
+        //element type names of repeatable fields ("" for arrays, whose component type the runtime reads), null for other fields
+        private final List<String> elementTypes = new ArrayList<>();
+        //SubCommand fields
+        private final List<VariableElement> subCommandFields = new ArrayList<>();
+        //SubCommand annotations
+        private final List<SubCommand> subCommands = new ArrayList<>();
+        //Parameters fields
+        private final List<VariableElement> parameterFields = new ArrayList<>();
+
+        /**
+         * Analyze a Command class
+         * @param type the Command class
+         * @throws UnsupportedCommandException if the class cannot be bound without reflection
+         */
+        CommandSource(TypeElement type) throws UnsupportedCommandException {
+            checkType(type);
+            this.packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+            this.simpleName = generatedName(type, this.packageName, GeneratedCommandParser.SUFFIX);
+            this.dataType = type.getQualifiedName().toString();
+            this.command = type.getAnnotation(Command.class);
+            final Set<String> names = new HashSet<>();
+            for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+                final Option option = field.getAnnotation(Option.class);
+                final SubCommand subCommand = field.getAnnotation(SubCommand.class);
+                final boolean parameters = field.getAnnotation(Parameters.class) != null;
+                if (option == null && subCommand == null && !parameters) continue;
+                checkField(field);
+                if (subCommand != null) {
+                    if (field.asType().getKind() != TypeKind.DECLARED)
+                        throw new UnsupportedCommandException("@SubCommand field must be a class", field);
+                    this.subCommandFields.add(field);
+                    this.subCommands.add(subCommand);
+                }
+                if (option != null) {
+                    checkOption(field, option);
+                    if (!names.add(option.name()))
+                        throw new UnsupportedCommandException("the '" + option.name() + "' option has been defined on multiple fields", field);
+                    this.optionFields.add(field);
+                    this.options.add(option);
+                    this.converters.add(this.converter(field));
+                    this.lazyTypes.add(this.lazyType(field));
+                    this.elementTypes.add(this.elementType(field));
+                }
+                if (parameters) {
+                    final TypeMirror list = processingEnv.getTypeUtils().getDeclaredType(processingEnv.getElementUtils().getTypeElement(List.class.getName()), processingEnv.getElementUtils().getTypeElement(String.class.getName()).asType());
+                    if (!processingEnv.getTypeUtils().isAssignable(list, field.asType()))
+                        throw new UnsupportedCommandException("@Parameters field must accept a List<String>", field);
+                    this.parameterFields.add(field);
+                }
+            }
+        }
+
+        /**
+         * Check that a Command class can be instantiated from generated code
+         * @param type the Command class
+         * @throws UnsupportedCommandException if it cannot
+         */
+        private void checkType(TypeElement type) throws UnsupportedCommandException {
+            if (type.getModifiers().contains(Modifier.ABSTRACT))
+                throw new UnsupportedCommandException("the class is abstract", type);
+            if (!type.getTypeParameters().isEmpty())
+                throw new UnsupportedCommandException("the class is generic", type);
+            for (Element element = type; element.getKind().isClass(); element = element.getEnclosingElement()) {
+                if (element.getModifiers().contains(Modifier.PRIVATE))
+                    throw new UnsupportedCommandException("the class is private", element);
+                if (((TypeElement) element).getNestingKind() == NestingKind.MEMBER && !element.getModifiers().contains(Modifier.STATIC))
+                    throw new UnsupportedCommandException("the class is an inner class", element);
+                if (((TypeElement) element).getNestingKind() != NestingKind.TOP_LEVEL && ((TypeElement) element).getNestingKind() != NestingKind.MEMBER)
+                    throw new UnsupportedCommandException("the class is local or anonymous", element);
+            }
+            for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements()))
+                if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) return;
+            throw new UnsupportedCommandException("the class has no accessible no-args constructor", type);
+        }
+
+        /**
+         * Check that an annotated field can be written from generated code
+         * @param field the field
+         * @throws UnsupportedCommandException if it cannot
+         */
+        private void checkField(VariableElement field) throws UnsupportedCommandException {
+            final Set<Modifier> modifiers = field.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.FINAL) || modifiers.contains(Modifier.STATIC))
+                throw new UnsupportedCommandException("annotated fields must not be private, final or static", field);
+        }
+
+        /**
+         * Find the converter requested by a field's {@link Option} annotation
+         *
+         * The Class-valued member is read from the annotation mirror, since the class may not be loadable while compiling.
+         * @param field the field
+         * @return the converter class name, or null if the option uses the registry
+         * @throws UnsupportedCommandException if the converter cannot be instantiated from generated code
+         */
+        private String converter(VariableElement field) throws UnsupportedCommandException {
+            for (AnnotationMirror mirror : field.getAnnotationMirrors()) {
+                if (!((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(OPTION_CLASS)) continue;
+                for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()) {
+                    if (!entry.getKey().getSimpleName().contentEquals("converter")) continue;
+                    final TypeElement converter = (TypeElement) processingEnv.getTypeUtils().asElement((TypeMirror) entry.getValue().getValue());
+                    if (converter.getQualifiedName().contentEquals(CONVERTER_CLASS)) return null;
+                    if (!converter.getModifiers().contains(Modifier.PUBLIC) || converter.getModifiers().contains(Modifier.ABSTRACT) || (converter.getNestingKind() == NestingKind.MEMBER && !converter.getModifiers().contains(Modifier.STATIC)))
+                        throw new UnsupportedCommandException("the converter must be a public, concrete, top-level or static class", field);
+                    for (ExecutableElement constructor : ElementFilter.constructorsIn(converter.getEnclosedElements()))
+                        if (constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC))
+                            return processingEnv.getElementUtils().getBinaryName(converter).toString().replace('$', '.');
+                    throw new UnsupportedCommandException("the converter has no public no-args constructor", field);
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Get the value type of a {@link Lazy} field
+         * @param field the field
+         * @return the source name of the erased value type, or null if the field isn't Lazy
+         * @throws UnsupportedCommandException if the field doesn't declare a class as its value type
+         */
+        private String lazyType(VariableElement field) throws UnsupportedCommandException {
+            if (!this.typeName(field).equals(LAZY_CLASS)) return null;
+            final List<? extends TypeMirror> arguments = ((DeclaredType) field.asType()).getTypeArguments();
+            if (arguments.isEmpty() || arguments.get(0).getKind() != TypeKind.DECLARED)
+                throw new UnsupportedCommandException("a Lazy field must declare a class as its value type", field);
+            return processingEnv.getTypeUtils().erasure(arguments.get(0)).toString();
+        }
+
+        /**
+         * Get the element type of a repeatable field: an int[], long[] or double[], an Object array, or a List, Set or
+         * Collection, as the runtime decides
+         * @param field the field
+         * @return the source name of the erased type argument of a collection, "" for an array, or null if the field
+         * isn't repeatable
+         * @throws UnsupportedCommandException if a collection field doesn't declare a class as its element type
+         */
+        private String elementType(VariableElement field) throws UnsupportedCommandException {
+            final TypeMirror type = field.asType();
+            if (type.getKind() == TypeKind.ARRAY) {
+                final TypeKind component = ((ArrayType) type).getComponentType().getKind();
+                return component == TypeKind.INT || component == TypeKind.LONG || component == TypeKind.DOUBLE || !component.isPrimitive() ? "" : null;
+            }
+            if (type.getKind() != TypeKind.DECLARED) return null;
+            final Types types = processingEnv.getTypeUtils();
+            final TypeMirror erased = types.erasure(type);
+            final boolean repeatable = types.isAssignable(erased, this.erasure(Collection.class))
+                    && (types.isAssignable(this.erasure(ArrayList.class), erased) || types.isAssignable(this.erasure(LinkedHashSet.class), erased));
+            if (!repeatable) return null;
+            final List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+            if (arguments.isEmpty() || arguments.get(0).getKind() != TypeKind.DECLARED)
+                throw new UnsupportedCommandException("a repeatable field must declare a class as its element type", field);
+            return types.erasure(arguments.get(0)).toString();
+        }
+
+        /**
+         * Get the erased type of a class
+         * @param type the class
+         * @return the erased type
+         */
+        private TypeMirror erasure(Class<?> type) {
+            return processingEnv.getTypeUtils().erasure(processingEnv.getElementUtils().getTypeElement(type.getName()).asType());
+        }
+
+        /**
+         * Get the source name of a field's erased type
+         * @param field the field
+         * @return the type name
+         */
+        private String typeName(VariableElement field) {
+            return processingEnv.getTypeUtils().erasure(field.asType()).toString();
+        }
+
+        /**
+         * Get the source name of a field's erased type, boxed if it is primitive
+         * @param field the field
+         * @return the type name
+         */
+        private String boxedTypeName(VariableElement field) {
+            final TypeMirror type = field.asType();
+            return type.getKind().isPrimitive() ? processingEnv.getTypeUtils().boxedClass((PrimitiveType) type).getQualifiedName().toString() : this.typeName(field);
+        }
+
+        /**
+         * Get the conversion expression of an option
+         * @param index the option index
+         * @return the expression converting "value" to the field type
+         */
+        private String conversion(int index) {
+            if (this.lazyTypes.get(index) != null) return "lazy(" + index + ", " + this.lazyTypes.get(index) + ".class, CONVERTER_" + index + ", value)";
+            final String builtIn = this.converters.get(index) == null ? this.builtInConversion(this.optionFields.get(index)) : null;
+            return builtIn == null ? "convert(CONVERTER_" + index + ", value)" : builtIn;
+        }
+
+        /**
+         * Get the inlined conversion expression of a field
+         * @param field the field
+         * @return the expression converting "value" to the field type, or null if the field needs a {@link TypeConverter}
+         */
+        private String builtInConversion(VariableElement field) {
+            switch (this.typeName(field)) {
+                case "java.lang.String": return "value";
+                case "boolean": case "java.lang.Boolean": return "Boolean.parseBoolean(value)";
+                case "int": case "java.lang.Integer": return "Integer.decode(value)";
+                case "long": case "java.lang.Long": return "Long.decode(value)";
+                case "byte": case "java.lang.Byte": return "Byte.decode(value)";
+                case "short": case "java.lang.Short": return "Short.decode(value)";
+                case "double": case "java.lang.Double": return "Double.parseDouble(value)";
+                case "float": case "java.lang.Float": return "Float.parseFloat(value)";
+                case "char": case "java.lang.Character": return "parseChar(value)";
+                case "java.io.File": return "new java.io.File(value)";
+                case "java.nio.file.Path": return "java.nio.file.Paths.get(value)";
+                default: return null;
+            }
+        }
+
+        /**
+         * Render the usage text through the runtime renderer
+         * @return the usage text
+         */
+        private String usage() {
+            final Option[] options = this.options.stream().map(option -> GeneratedCommandParser.option(option.name(), option.shortKey(), option.longKey(), option.description(), option.required(), option.hidden(), option.defaultValue())).toArray(Option[]::new);
+            return GeneratedCommandParser.renderUsage(GeneratedCommandParser.command(this.command.name(), this.command.descriptions(), this.command.detailedDescription(), this.command.usage()), options);
+        }
+
+        /**
+         * Generates the parser source
+         * @return the source
+         */
+        @Override
+        public String toString() {
+            final StringBuilder rval = new StringBuilder();
+            rval.append("// Generated by ").append(CommandProcessor.class.getName()).append(". Do not edit.\n");
+            if (!this.packageName.isEmpty()) rval.append("package ").append(this.packageName).append(";\n");
+            rval.append('\n');
+            rval.append("public final class ").append(this.simpleName).append(" extends ").append(BASE_CLASS).append('<').append(this.dataType).append("> {\n");
+            rval.append("    private static final String USAGE = ").append(literal(this.usage())).append(";\n");
+            this.appendConverters(rval);
+            rval.append('\n');
+            this.appendConstructor(rval);
+            rval.append("    @Override\n    protected ").append(this.dataType).append(" newInstance() {\n        return new ").append(this.dataType).append("();\n    }\n\n");
+            this.appendSet(rval);
+            if (!this.optionFields.isEmpty()) this.appendSetValues(rval);
+            if (this.elementTypes.stream().anyMatch(Objects::nonNull)) this.appendElementType(rval);
+            if (this.lazyTypes.stream().anyMatch(Objects::nonNull)) this.appendLazyType(rval);
+            if (!this.subCommandFields.isEmpty()) this.appendSetSubCommand(rval);
+            if (!this.parameterFields.isEmpty()) this.appendSetParameters(rval);
+            rval.setLength(rval.length() - 1);
+            return rval.append("}\n").toString();
+        }
+
+        /**
+         * Append the constructor, which hands the Command metadata to the runtime
+         * @param rval the source
+         */
+        private void appendConstructor(StringBuilder rval) {
+            final StringJoiner fields = new StringJoiner(", ", "new String[]{", "}");
+            final StringJoiner types = new StringJoiner(", ", "new Class<?>[]{", "}");
+            final StringJoiner options = new StringJoiner(",\n                        ", "new " + OPTION_CLASS + "[]{\n                        ", "}");
+            if (this.options.isEmpty()) options.setEmptyValue("new " + OPTION_CLASS + "[0]");
+            for (int i = 0; i < this.options.size(); i++) {
+                final Option option = this.options.get(i);
+                fields.add(literal(this.optionFields.get(i).getSimpleName().toString()));
+                types.add(this.typeName(this.optionFields.get(i)) + ".class");
+                options.add("option(" + literal(option.name()) + ", " + literal(option.shortKey()) + ", " + literal(option.longKey()) + ", " + literal(option.description()) + ", " + option.required() + ", " + option.hidden() + ", " + literal(option.defaultValue()) + this.optionSuffix(i, option) + ")");
+            }
+            final StringJoiner subCommandNames = new StringJoiner(", ", "new String[]{", "}");
+            final StringJoiner subCommandTypes = new StringJoiner(", ", "new Class<?>[]{", "}");
+            for (int i = 0; i < this.subCommands.size(); i++) {
+                subCommandNames.add(literal(this.subCommands.get(i).name()));
+                subCommandTypes.add(this.typeName(this.subCommandFields.get(i)) + ".class");
+            }
+            rval.append("    public ").append(this.simpleName).append("() {\n");
+            rval.append("        super(").append(this.dataType).append(".class,\n");
+            rval.append("                command(").append(literal(this.command.name())).append(", ").append(literal(this.command.descriptions())).append(", ").append(literal(this.command.detailedDescription())).append(", ").append(literal(this.command.usage())).append("),\n");
+            rval.append("                USAGE,\n");
+            rval.append("                ").append(fields).append(",\n");
+            rval.append("                ").append(types).append(",\n");
+            rval.append("                ").append(options).append(",\n");
+            rval.append("                ").append(subCommandNames).append(",\n");
+            rval.append("                ").append(subCommandTypes).append(");\n");
+            rval.append("    }\n\n");
+        }
+
+        /**
+         * Get the trailing arguments of an option factory call: the converter, then the environment variable and property
+         * key, each only when needed
+         * @param index the option index
+         * @param option the option
+         * @return the arguments, with their leading separator
+         */
+        private String optionSuffix(int index, Option option) {
+            final String converter = this.converters.get(index) == null ? null : this.converters.get(index) + ".class";
+            if (option.env().isEmpty() && option.property().isEmpty()) return converter == null ? "" : ", " + converter;
+            return ", " + (converter == null ? CONVERTER_CLASS + ".class" : converter) + ", " + literal(option.env()) + ", " + literal(option.property());
+        }
+
+        /**
+         * Append the converters of the options which cannot be converted inline, resolved once when the parser is loaded
+         * @param rval the source
+         */
+        private void appendConverters(StringBuilder rval) {
+            for (int i = 0; i < this.optionFields.size(); i++) {
+                final String converter = this.converters.get(i);
+                if (this.elementTypes.get(i) != null || converter == null && this.builtInConversion(this.optionFields.get(i)) != null) continue;
+                final String type = this.lazyTypes.get(i) != null ? this.lazyTypes.get(i) : this.boxedTypeName(this.optionFields.get(i));
+                rval.append("    @SuppressWarnings(\"unchecked\")\n");
+                rval.append("    private static final ").append(CONVERTER_CLASS).append('<').append(type).append("> CONVERTER_").append(i).append(" = ");
+                if (converter == null) rval.append(TypeConverters.class.getName()).append(".find(").append(type).append(".class);\n");
+                else rval.append('(').append(CONVERTER_CLASS).append(") new ").append(converter).append("();\n");
+            }
+        }
+
+        /**
+         * Append the option setter, one direct field write per option, and the option converter
+         * @param rval the source
+         */
+        private void appendSet(StringBuilder rval) {
+            rval.append("    @Override\n    protected void set(int option, ").append(this.dataType).append(" data, String value) throws Exception {\n");
+            rval.append("        switch (option) {\n");
+            for (int i = 0; i < this.optionFields.size(); i++) {
+                if (this.elementTypes.get(i) != null) continue;
+                rval.append("            case ").append(i).append(": ");
+                rval.append("data.").append(this.optionFields.get(i).getSimpleName()).append(" = ").append(this.conversion(i)).append("; return;\n");
+            }
+            rval.append("            default: throw new IllegalArgumentException(\"Unknown option: \" + option);\n");
+            rval.append("        }\n    }\n\n");
+            rval.append("    @Override\n    protected Object convertValue(int option, String value) throws Exception {\n");
+            rval.append("        switch (option) {\n");
+            for (int i = 0; i < this.optionFields.size(); i++) {
+                if (this.elementTypes.get(i) != null) continue;
+                rval.append("            case ").append(i).append(": return ").append(this.conversion(i)).append(";\n");
+            }
+            rval.append("            default: throw new IllegalArgumentException(\"Unknown option: \" + option);\n");
+            rval.append("        }\n    }\n\n");
+        }
+
+        /**
+         * Append the setter of converted values: the accumulated values of the repeatable options, and the default
+         * values converted once
+         * @param rval the source
+         */
+        private void appendSetValues(StringBuilder rval) {
+            rval.append("    @Override\n    @SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+            rval.append("    protected void setValues(int option, ").append(this.dataType).append(" data, Object value) {\n");
+            rval.append("        switch (option) {\n");
+            for (int i = 0; i < this.optionFields.size(); i++) {
+                final VariableElement field = this.optionFields.get(i);
+                rval.append("            case ").append(i).append(": data.").append(field.getSimpleName()).append(" = (").append(this.boxedTypeName(field)).append(") value; return;\n");
+            }
+            rval.append("            default: throw new IllegalArgumentException(\"Unknown option: \" + option);\n");
+            rval.append("        }\n    }\n\n");
+        }
+
+        /**
+         * Append the element types of the repeatable collection options
+         * @param rval the source
+         */
+        private void appendElementType(StringBuilder rval) {
+            rval.append("    @Override\n    protected Class<?> elementType(int option) {\n");
+            rval.append("        switch (option) {\n");
+            for (int i = 0; i < this.optionFields.size(); i++)
+                if (this.elementTypes.get(i) != null && !this.elementTypes.get(i).isEmpty())
+                    rval.append("            case ").append(i).append(": return ").append(this.elementTypes.get(i)).append(".class;\n");
+            rval.append("            default: return null;\n");
+            rval.append("        }\n    }\n\n");
+        }
+
+        /**
+         * Append the value types of the Lazy options
+         * @param rval the source
+         */
+        private void appendLazyType(StringBuilder rval) {
+            rval.append("    @Override\n    protected Class<?> lazyType(int option) {\n");
+            rval.append("        switch (option) {\n");
+            for (int i = 0; i < this.optionFields.size(); i++)
+                if (this.lazyTypes.get(i) != null)
+                    rval.append("            case ").append(i).append(": return ").append(this.lazyTypes.get(i)).append(".class;\n");
+            rval.append("            default: return null;\n");
+            rval.append("        }\n    }\n\n");
+        }
+
+        /**
+         * Append the SubCommand setter
+         * @param rval the source
+         */
+        private void appendSetSubCommand(StringBuilder rval) {
+            rval.append("    @Override\n    protected void setSubCommand(int subCommand, ").append(this.dataType).append(" data, Object value) {\n");
+            rval.append("        switch (subCommand) {\n");
+            for (int i = 0; i < this.subCommandFields.size(); i++) {
+                final VariableElement field = this.subCommandFields.get(i);
+                rval.append("            case ").append(i).append(": data.").append(field.getSimpleName()).append(" = (").append(this.typeName(field)).append(") value; return;\n");
+            }
+            rval.append("            default: throw new IllegalArgumentException(\"Unknown SubCommand: \" + subCommand);\n");
+            rval.append("        }\n    }\n\n");
+        }
+
+        /**
+         * Append the Parameters setter
+         * @param rval the source
+         */
+        private void appendSetParameters(StringBuilder rval) {
+            rval.append("    @Override\n    protected void setParameters(").append(this.dataType).append(" data, java.util.List<String> parameters) {\n");
+            for (VariableElement field : this.parameterFields)
+                rval.append("        data.").append(field.getSimpleName()).append(" = parameters;\n");
+            rval.append("    }\n\n");
+            if (this.parameterFields.stream().anyMatch(field -> field.getAnnotation(Parameters.class).compact()))
+                rval.append("    @Override\n    protected boolean compactParameters() {\n        return true;\n    }\n\n");
+        }
+    }
+
+    /**
+     * The generated source of the {@link CommandValues} implementation of a Command interface
+     *
+     * The implementation only reads its slots; the runtime parses and writes them. Getters are sorted by name, as the
+     * runtime does, to get the same option ordinals.
+     */
+    private final class ValuesSource {
+        //the package of the Command interface
+        final String packageName;
+        //the simple name of the generated class
+        final String simpleName;
+        //the Command interface source name
+        private final String dataType;
+        //option getters, sorted by name
+        private final List<ExecutableElement> optionGetters = new ArrayList<>();
+        //Parameters getters, sorted by name
+        private final List<ExecutableElement> parameterGetters = new ArrayList<>();
+
+        /**
+         * Analyze a Command interface
+         * @param type the Command interface
+         * @throws UnsupportedCommandException if the interface cannot be implemented by generated code
+         */
+        ValuesSource(TypeElement type) throws UnsupportedCommandException {
+            checkType(type);
+            this.packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+            this.simpleName = generatedName(type, this.packageName, CommandValues.SUFFIX);
+            this.dataType = type.getQualifiedName().toString();
+            final Map<String, ExecutableElement> getters = new TreeMap<>();
+            for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+                if (!method.getModifiers().contains(Modifier.ABSTRACT)) continue;
+                if (getters.put(method.getSimpleName().toString(), method) != null)
+                    throw new UnsupportedCommandException("the method '" + method.getSimpleName() + "' is overloaded", method);
+            }
+            final Set<String> names = new HashSet<>();
+            for (ExecutableElement getter : getters.values()) {
+                final Option option = getter.getAnnotation(Option.class);
+                if (option == null && getter.getAnnotation(Parameters.class) == null)
+                    throw new UnsupportedCommandException("the method '" + getter.getSimpleName() + "' must be annotated with @Option or @Parameters", getter);
+                if (!getter.getParameters().isEmpty() || !getter.getTypeParameters().isEmpty() || getter.getReturnType().getKind() == TypeKind.VOID)
+                    throw new UnsupportedCommandException("the method '" + getter.getSimpleName() + "' must be a getter", getter);
+                if (option != null) {
+                    checkOption(getter, option);
+                    if (!names.add(option.name()))
+                        throw new UnsupportedCommandException("the '" + option.name() + "' option has been defined on multiple methods", getter);
+                    this.optionGetters.add(getter);
+                } else {
+                    this.parameterGetters.add(getter);
+                }
+            }
+        }
+
+        /**
+         * Check that a Command interface can be implemented by a class in its package
+         * @param type the Command interface
+         * @throws UnsupportedCommandException if it cannot
+         */
+        private void checkType(TypeElement type) throws UnsupportedCommandException {
+            if (!type.getTypeParameters().isEmpty())
+                throw new UnsupportedCommandException("the interface is generic", type);
+            for (Element element = type; element.getKind().isClass() || element.getKind().isInterface(); element = element.getEnclosingElement()) {
+                if (element.getModifiers().contains(Modifier.PRIVATE))
+                    throw new UnsupportedCommandException("the interface is private", element);
+                if (((TypeElement) element).getNestingKind() != NestingKind.TOP_LEVEL && ((TypeElement) element).getNestingKind() != NestingKind.MEMBER)
+                    throw new UnsupportedCommandException("the interface is local", element);
+            }
+        }
+
+        /**
+         * Get the typed read of a getter's slot
+         * @param getter the getter
+         * @param slot the slot
+         * @return the expression reading the slot
+         */
+        private String read(ExecutableElement getter, int slot) {
+            switch (getter.getReturnType().getKind()) {
+                case BOOLEAN: return "booleanValue(" + slot + ")";
+                case BYTE: return "byteValue(" + slot + ")";
+                case SHORT: return "shortValue(" + slot + ")";
+                case CHAR: return "charValue(" + slot + ")";
+                case INT: return "intValue(" + slot + ")";
+                case LONG: return "longValue(" + slot + ")";
+                case FLOAT: return "floatValue(" + slot + ")";
+                case DOUBLE: return "doubleValue(" + slot + ")";
+                default: return "objectValue(" + slot + ")";
+            }
+        }
+
+        /**
+         * Generates the implementation source
+         * @return the source
+         */
+        @Override
+        public String toString() {
+            final StringBuilder rval = new StringBuilder();
+            rval.append("// Generated by ").append(CommandProcessor.class.getName()).append(". Do not edit.\n");
+            if (!this.packageName.isEmpty()) rval.append("package ").append(this.packageName).append(";\n");
+            rval.append('\n');
+            rval.append("public final class ").append(this.simpleName).append(" extends ").append(VALUES_CLASS).append(" implements ").append(this.dataType).append(" {\n");
+            rval.append("    public ").append(this.simpleName).append("() {\n");
+            rval.append("        super(").append(this.dataType).append(".class, ").append(this.optionGetters.size()).append(", ").append(this.optionGetters.size() + this.parameterGetters.size()).append(");\n");
+            rval.append("    }\n\n");
+            final List<ExecutableElement> getters = new ArrayList<>(this.optionGetters);
+            getters.addAll(this.parameterGetters);
+            for (int i = 0; i < getters.size(); i++) {
+                final ExecutableElement getter = getters.get(i);
+                rval.append("    @Override\n    public ").append(getter.getReturnType()).append(' ').append(getter.getSimpleName()).append("() {\n");
+                rval.append("        return ").append(this.read(getter, i)).append(";\n    }\n\n");
+            }
+            rval.setLength(rval.length() - 1);
+            return rval.append("}\n").toString();
+        }
+    }
+
+    /**
+     * Thrown when a Command class cannot be bound through a generated parser
+     */
+    private static final class UnsupportedCommandException extends Exception {
+        //the offending element
+        final Element element;
+
+        /**
+         * Instantiate an {@link UnsupportedCommandException}
+         * @param message the reason
+         * @param element the offending element
+         */
+        UnsupportedCommandException(String message, Element element) {
+            super(message);
+            this.element = element;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.lupusumbra.util.commandline.test.processor;
+
+import com.lupusumbra.util.commandline.CommandLineParser;
+import com.lupusumbra.util.commandline.CommandParser;
+import com.lupusumbra.util.commandline.CommandValues;
+import com.lupusumbra.util.commandline.GeneratedCommandParser;
+import com.lupusumbra.util.commandline.processor.CommandProcessor;
+import org.junit.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CommandProcessorTests {
+    private static final PrintStream stderr = System.err;
+    private static final String ROOT_SOURCE = "package fixture;\n" +
+            "import com.lupusumbra.util.commandline.annotation.*;\n" +
+            "import java.nio.file.Path;\n" +
+            "import java.util.List;\n" +
+            "@Command(name = \"root\", descriptions = {\"USAGE: fixture <options>\", \"A \\\"quoted\\\" description\"})\n" +
+            "public class Root {\n" +
+            "    @Option(name = \"verbose\", shortKey = \"-v\", longKey = \"--verbose\", description = \"Verbose Output\")\n" +
+            "    public boolean verbose;\n" +
+            "    @Option(name = \"depth\", shortKey = \"-d\", longKey = \"--depth\", description = \"Depth\", defaultValue = \"3\")\n" +
+            "    int depth;\n" +
+            "    @Option(name = \"path\", shortKey = \"\", longKey = \"--path\", description = \"Path\")\n" +
+            "    public Path path;\n" +
+            "    @Option(name = \"char\", shortKey = \"\", longKey = \"--char\", description = \"Char\", hidden = true)\n" +
+            "    public char aChar;\n" +
+            "    @SubCommand(name = \"run\")\n" +
+            "    public Run run;\n" +
+            "}\n";
+    private static final String RUN_SOURCE = "package fixture;\n" +
+            "import com.lupusumbra.util.commandline.annotation.*;\n" +
+            "import java.util.List;\n" +
+            "@Command(name = \"run\")\n" +
+            "public class Run {\n" +
+            "    @Option(name = \"name\", shortKey = \"-n\", longKey = \"--name\", description = \"Name\")\n" +
+            "    public String name;\n" +
+            "    @Parameters\n" +
+            "    public List<String> parameters;\n" +
+            "}\n";
+    private static final String FINAL_SOURCE = "package fixture;\n" +
+            "import com.lupusumbra.util.commandline.annotation.*;\n" +
+            "@Command(name = \"final\")\n" +
+            "public class Final {\n" +
+            "    @Option(name = \"name\", shortKey = \"-n\", longKey = \"--name\", description = \"Name\")\n" +
+            "    public final String name = null;\n" +
+            "}\n";
+    private static final String VALUES_SOURCE = "package fixture;\n" +
+            "import com.lupusumbra.util.commandline.annotation.*;\n" +
+            "import java.util.List;\n" +
+            "@Command(name = \"values\")\n" +
+            "public interface Values {\n" +
+            "    @Option(name = \"verbose\", shortKey = \"-v\", longKey = \"--verbose\", description = \"Verbose Output\")\n" +
+            "    boolean verbose();\n" +
+            "    @Option(name = \"depth\", shortKey = \"-d\", longKey = \"--depth\", description = \"Depth\", defaultValue = \"3\")\n" +
+            "    int depth();\n" +
+            "    @Option(name = \"ratio\", shortKey = \"-r\", longKey = \"--ratio\", description = \"Ratio\")\n" +
+            "    float ratio();\n" +
+            "    @Option(name = \"name\", shortKey = \"-n\", longKey = \"--name\", description = \"Name\")\n" +
+            "    String name();\n" +
+            "    @Parameters\n" +
+            "    List<String> parameters();\n" +
+            "    default boolean deep() {\n" +
+            "        return depth() > 5;\n" +
+            "    }\n" +
+            "}\n";
+
+    @Test
+    public void testGeneratedParser() throws Exception {
+        final ClassLoader loader = compile(true);
+        final Class<?> root = loader.loadClass("fixture.Root");
+        assertTrue(GeneratedCommandParser.class.isAssignableFrom(loader.loadClass("fixture.Root" + GeneratedCommandParser.SUFFIX)));
+        final CommandLineParser parser = CommandLineParser.parse(root, new String[]{"-v", "-d", "7", "--path=/tmp", "--char=0x41", "run", "--name=test", "one", "two"});
+        assertNull(parser.optionParserByName("depth").field);
+        assertTrue(parser.optionParserByName("verbose").provided());
+        assertTrue(parser.optionParserByName("depth").provided());
+        assertEquals(root.getField("verbose").get(parser.data()), true);
+        assertEquals(field(root, "depth").get(parser.data()), 7);
+        assertEquals(root.getField("path").get(parser.data()).toString(), new File("/tmp").toPath().toString());
+        assertEquals(root.getField("aChar").get(parser.data()), 'A');
+        final CommandLineParser run = parser.selectedSubCommand();
+        assertEquals(run.name(), "run");
+        assertEquals(run.data().getClass().getField("name").get(run.data()), "test");
+        assertSame(root.getField("run").get(parser.data()), run.data());
+        assertEquals(run.parameters(), Arrays.asList("one", "two"));
+        assertSame(run.data().getClass().getField("parameters").get(run.data()), run.parameters());
+    }
+
+    @Test
+    public void testGeneratedUsageMatchesReflection() throws Exception {
+        assertEquals(usage(compile(true)), usage(compile(false)));
+    }
+
+    @Test
+    public void testFallbackToReflection() throws Exception {
+        final ClassLoader loader = compile(true);
+        try {
+            loader.loadClass("fixture.Final" + GeneratedCommandParser.SUFFIX);
+            fail("no parser should be generated for a final option field");
+        } catch (ClassNotFoundException ignored) {
+        }
+        final CommandLineParser parser = CommandLineParser.parse(loader.loadClass("fixture.Final"), new String[]{});
+        assertNotNull(parser.optionParserByName("name").field);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testGeneratedValues() throws Exception {
+        final ClassLoader loader = compile(true);
+        final Class<Object> values = (Class<Object>) loader.loadClass("fixture.Values");
+        assertTrue(CommandValues.class.isAssignableFrom(loader.loadClass("fixture.Values" + CommandValues.SUFFIX)));
+        final Object data = CommandParser.of(values).parse("-v", "--depth=7", "-r", "1.5", "one").data();
+        assertTrue(data instanceof CommandValues);
+        assertEquals(values.getMethod("verbose").invoke(data), true);
+        assertEquals(values.getMethod("depth").invoke(data), 7);
+        assertEquals(values.getMethod("ratio").invoke(data), 1.5f);
+        assertNull(values.getMethod("name").invoke(data));
+        assertEquals(values.getMethod("parameters").invoke(data), Arrays.asList("one"));
+        assertEquals(values.getMethod("deep").invoke(data), true);
+        assertTrue(CommandValues.provided(data, "depth"));
+        assertFalse(CommandValues.provided(data, "name"));
+        final Object proxied = CommandParser.of((Class<Object>) compile(false).loadClass("fixture.Values")).parse("-v", "--depth=7", "-r", "1.5", "one").data();
+        assertFalse(proxied instanceof CommandValues);
+        assertEquals(proxied.toString(), data.toString());
+    }
+
+    private static String usage(ClassLoader loader) throws ClassNotFoundException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(out, true));
+        try {
+            CommandLineParser.parse(loader.loadClass("fixture.Root"), new String[]{"--help"});
+        } finally {
+            System.setErr(stderr);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static Field field(Class<?> type, String name) throws NoSuchFieldException {
+        final Field rval = type.getDeclaredField(name);
+        rval.setAccessible(true);
+        return rval;
+    }
+
+    private static ClassLoader compile(boolean process) throws IOException {
+        final Path dir = Files.createTempDirectory("command-processor");
+        final Path sources = Files.createDirectories(dir.resolve("src/fixture"));
+        final Path classes = Files.createDirectories(dir.resolve("classes"));
+        final List<String> args = new ArrayList<>(Arrays.asList("-classpath", System.getProperty("java.class.path"), "-d", classes.toString()));
+        if (process) args.addAll(Arrays.asList("-processor", CommandProcessor.class.getName()));
+        else args.add("-proc:none");
+        for (String source : new String[]{ROOT_SOURCE, RUN_SOURCE, FINAL_SOURCE, VALUES_SOURCE}) {
+            final int start = source.indexOf(' ', source.indexOf("public ", source.indexOf('@')) + 7) + 1;
+            final String name = source.substring(start, source.indexOf(" {", start));
+            final Path file = sources.resolve(name + ".java");
+            Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+            args.add(file.toString());
+        }
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertEquals(0, compiler.run(null, null, null, args.toArray(new String[0])));
+        return new URLClassLoader(new URL[]{classes.toUri().toURL()}, CommandProcessorTests.class.getClassLoader());
+    }
+}
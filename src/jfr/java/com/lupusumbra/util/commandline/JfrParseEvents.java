@@ -0,0 +1,79 @@
+package com.lupusumbra.util.commandline;
+
+import com.lupusumbra.util.commandline.jfr.ConversionErrorEvent;
+import com.lupusumbra.util.commandline.jfr.ModelBuildEvent;
+import com.lupusumbra.util.commandline.jfr.ParseEvent;
+import jdk.jfr.FlightRecorder;
+
+/**
+ * The {@link ParseEvents} of a JVM with Flight Recorder; only loaded through reflection, once jdk.jfr is known to exist.
+ *
+ * Loading the first event class starts the Flight Recorder machinery, which costs a cold JVM hundreds of milliseconds;
+ * so the event classes are left alone until a recording has initialized Flight Recorder.
+ */
+final class JfrParseEvents extends ParseEvents {
+    @Override
+    Object beginParse() {
+        if (!FlightRecorder.isInitialized() || !Probes.PARSE.isEnabled()) return null;
+        final ParseEvent rval = new ParseEvent();
+        rval.begin();
+        return rval;
+    }
+
+    @Override
+    void endParse(Object event, ParseResult<?> result, int tokens, Throwable failure) {
+        final ParseEvent parse = (ParseEvent) event;
+        parse.end();
+        if (!parse.shouldCommit()) return;
+        parse.command = result.name();
+        parse.tokens = tokens;
+        parse.subCommandPath = String.join(" ", result.subCommandPath());
+        parse.failure = failure == null ? null : failure.toString();
+        parse.commit();
+    }
+
+    @Override
+    Object beginModel() {
+        if (!FlightRecorder.isInitialized() || !Probes.MODEL.isEnabled()) return null;
+        final ModelBuildEvent rval = new ModelBuildEvent();
+        rval.begin();
+        return rval;
+    }
+
+    @Override
+    void endModel(Object event, CommandModel model, String source) {
+        final ModelBuildEvent build = (ModelBuildEvent) event;
+        build.end();
+        if (!build.shouldCommit()) return;
+        build.command = model.name;
+        build.commandClass = model.dataClass;
+        build.options = model.options.length;
+        build.subCommands = model.subCommands.size();
+        build.source = source;
+        build.commit();
+    }
+
+    @Override
+    void conversionFailed(String command, String option, Class<?> fieldType, String value, Throwable error) {
+        if (!FlightRecorder.isInitialized() || !Probes.CONVERSION.isEnabled()) return;
+        final ConversionErrorEvent event = new ConversionErrorEvent();
+        event.command = command;
+        event.option = option;
+        event.fieldType = fieldType;
+        event.value = value;
+        event.error = error.toString();
+        event.commit();
+    }
+
+    /**
+     * The event probes, initialized on first use
+     */
+    private static final class Probes {
+        //probes whether parse events are enabled, without creating one per parse
+        static final ParseEvent PARSE = new ParseEvent();
+        //probes whether model build events are enabled
+        static final ModelBuildEvent MODEL = new ModelBuildEvent();
+        //probes whether conversion error events are enabled
+        static final ConversionErrorEvent CONVERSION = new ConversionErrorEvent();
+    }
+}
@@ -0,0 +1,33 @@
+package com.lupusumbra.util.commandline.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Flight Recorder event raised when a value cannot be converted and bound to an option field.
+ */
+@Name("com.lupusumbra.commandline.ConversionError")
+@Label("Option Conversion Error")
+@Category("Command Line Parser")
+@Description("A command-line value which couldn't be converted and bound to its option field")
+@Enabled
+public final class ConversionErrorEvent extends jdk.jfr.Event {
+    //the name of the Command owning the option
+    @Label("Command")
+    public String command;
+    //the registered option name
+    @Label("Option")
+    public String option;
+    //the option field type
+    @Label("Field Type")
+    public Class<?> fieldType;
+    //the raw value
+    @Label("Value")
+    public String value;
+    //the conversion or binding error
+    @Label("Error")
+    public String error;
+}
@@ -0,0 +1,38 @@
+package com.lupusumbra.util.commandline.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A Flight Recorder event spanning the construction of a Command model, including the scan of its annotations when
+ * there is neither a generated parser nor a model snapshot.
+ */
+@Name("com.lupusumbra.commandline.ModelBuild")
+@Label("Command Model Build")
+@Category("Command Line Parser")
+@Description("The construction of the cached model of a Command data Object class")
+@Enabled
+@Threshold("0 ms")
+@StackTrace(false)
+public final class ModelBuildEvent extends jdk.jfr.Event {
+    //the Command name
+    @Label("Command")
+    public String command;
+    //the Command data Object class
+    @Label("Command Class")
+    public Class<?> commandClass;
+    //the number of options
+    @Label("Options")
+    public int options;
+    //the number of SubCommands
+    @Label("SubCommands")
+    public int subCommands;
+    //where the model was built from: "generated", "snapshot" or "reflection"
+    @Label("Source")
+    public String source;
+}
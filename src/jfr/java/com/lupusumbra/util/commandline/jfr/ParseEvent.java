@@ -0,0 +1,34 @@
+package com.lupusumbra.util.commandline.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A Flight Recorder event spanning one parse of a command line, from the first argument to the last.
+ */
+@Name("com.lupusumbra.commandline.Parse")
+@Label("Command Line Parse")
+@Category("Command Line Parser")
+@Description("A parse of a command line into a Command data Object")
+@Enabled
+@Threshold("0 ms")
+@StackTrace(false)
+public final class ParseEvent extends jdk.jfr.Event {
+    //the root Command name
+    @Label("Command")
+    public String command;
+    //the number of arguments tokenized, option values excluded
+    @Label("Tokens")
+    public int tokens;
+    //the registered names of the selected SubCommands, space separated
+    @Label("SubCommand Path")
+    public String subCommandPath;
+    //the exception which stopped the parse, or null
+    @Label("Failure")
+    public String failure;
+}
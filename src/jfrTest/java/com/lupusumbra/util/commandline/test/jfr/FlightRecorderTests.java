@@ -0,0 +1,54 @@
+package com.lupusumbra.util.commandline.test.jfr;
+
+import com.lupusumbra.util.commandline.CommandParser;
+import com.lupusumbra.util.commandline.test.basic.config.BasicConfigObject;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FlightRecorderTests {
+    @Test
+    public void testFlightRecorderEvents() throws IOException {
+        final Path dump = Files.createTempFile("parse", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.lupusumbra.commandline.Parse");
+            recording.enable("com.lupusumbra.commandline.ConversionError");
+            recording.start();
+            final PrintStream stderr = System.err;
+            System.setErr(new PrintStream(new OutputStream() {
+                @Override
+                public void write(int b) {
+                }
+            }));
+            try {
+                CommandParser.of(BasicConfigObject.class).parse("-v", "--depth=deep", "param");
+            } finally {
+                System.setErr(stderr);
+            }
+            recording.stop();
+            recording.dump(dump);
+        }
+        try {
+            final List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+            final RecordedEvent parse = events.stream().filter(event -> event.getEventType().getName().equals("com.lupusumbra.commandline.Parse")).findFirst().orElseThrow(AssertionError::new);
+            assertEquals(parse.getString("command"), "root");
+            assertEquals(parse.getInt("tokens"), 3);
+            assertEquals(parse.getString("subCommandPath"), "");
+            final RecordedEvent error = events.stream().filter(event -> event.getEventType().getName().equals("com.lupusumbra.commandline.ConversionError")).findFirst().orElseThrow(AssertionError::new);
+            assertEquals(error.getString("option"), "depth");
+            assertEquals(error.getString("value"), "deep");
+        } finally {
+            Files.delete(dump);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.lupusumbra.util.commandline;
+
+import com.lupusumbra.util.commandline.test.basic.config.BasicConfigObject;
+import com.lupusumbra.util.commandline.test.subcommands.config.RootConfigObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of building a Command model, which the cache pays once per class: from the annotations, and from
+ * the snapshots written by the commandModels task.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelBenchmark {
+    @Benchmark
+    public CommandModel buildBasicModel() {
+        return CommandModel.reflect(BasicConfigObject.class);
+    }
+
+    @Benchmark
+    public CommandModel buildSubCommandModel() {
+        return CommandModel.reflect(RootConfigObject.class);
+    }
+
+    @Benchmark
+    public CommandModel loadBasicSnapshot() {
+        return ModelSnapshot.load(BasicConfigObject.class);
+    }
+
+    @Benchmark
+    public CommandModel loadSubCommandSnapshot() {
+        return ModelSnapshot.load(RootConfigObject.class);
+    }
+}
@@ -0,0 +1,46 @@
+package com.lupusumbra.util.commandline;
+
+import com.lupusumbra.util.commandline.test.basic.config.BasicConfigObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures warm parse throughput over the {@link BasicConfigObject} fixture.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+    //a typical mix of options and parameters
+    private static final String[] MIXED = {"--name=test", "-v", "-d", "7", "--balance=12.5", "first", "second"};
+    //compound short-format boolean flags
+    private static final String[] COMPOUND = {"-abcv"};
+    //long-format keys with inline values
+    private static final String[] LONG_KEY_VALUE = {"--name=test", "--depth=0x1f", "--value=1.5", "--long-value=123456789", "--byte=7", "--short=300", "--char=x", "--path=/tmp/data"};
+    //the shared parser
+    private final CommandParser<BasicConfigObject> parser = CommandParser.of(BasicConfigObject.class);
+
+    @Benchmark
+    public ParseResult<BasicConfigObject> parseMixed() {
+        return this.parser.parse(MIXED);
+    }
+
+    @Benchmark
+    public CommandLineParser parseMixedLegacy() {
+        return CommandLineParser.parse(BasicConfigObject.class, MIXED);
+    }
+
+    @Benchmark
+    public ParseResult<BasicConfigObject> parseCompoundShortFlags() {
+        return this.parser.parse(COMPOUND);
+    }
+
+    @Benchmark
+    public ParseResult<BasicConfigObject> parseLongKeyValues() {
+        return this.parser.parse(LONG_KEY_VALUE);
+    }
+}
@@ -0,0 +1,35 @@
+package com.lupusumbra.util.commandline;
+
+import com.lupusumbra.util.commandline.test.subcommands.config.RootConfigObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the first parse of a fresh JVM, which is what a one-shot command line run pays: with the models built from
+ * the annotations, and loaded from the snapshots written by the commandModels task.
+ *
+ * Every fork measures a single cold invocation. To measure AppCDS as well, dump an archive from
+ * build/commandline/classlist and pass it with -Pjmh="-jvmArgsAppend -XX:SharedArchiveFile=... StartupBenchmark".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class StartupBenchmark {
+    //selects a nested SubCommand, so every model of the tree is needed
+    private static final String[] ARGS = {"--name=test", "create", "--username=testuser", "groups", "wheel"};
+
+    @Benchmark
+    @Fork(value = 20, jvmArgsAppend = "-Dcom.lupusumbra.util.commandline.snapshots=false")
+    public ParseResult<RootConfigObject> annotations() {
+        return CommandParser.of(RootConfigObject.class).parse(ARGS);
+    }
+
+    @Benchmark
+    public ParseResult<RootConfigObject> snapshots() {
+        return CommandParser.of(RootConfigObject.class).parse(ARGS);
+    }
+}
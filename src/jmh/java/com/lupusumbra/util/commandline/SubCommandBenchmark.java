@@ -0,0 +1,34 @@
+package com.lupusumbra.util.commandline;
+
+import com.lupusumbra.util.commandline.test.subcommands.config.RootConfigObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures SubCommand selection over the {@link RootConfigObject} fixture tree.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubCommandBenchmark {
+    //root options only
+    private static final String[] ROOT = {"--name=test", "-v"};
+    //root -> create -> groups, with options at each level
+    private static final String[] DEEP = {"--name=test", "-v", "create", "--username=testuser", "--first-name=Test user", "-L", "Dealer", "-E", "test@user.com", "groups", "wheel", "bin", "users"};
+    //the shared parser
+    private final CommandParser<RootConfigObject> parser = CommandParser.of(RootConfigObject.class);
+
+    @Benchmark
+    public ParseResult<RootConfigObject> parseRoot() {
+        return this.parser.parse(ROOT);
+    }
+
+    @Benchmark
+    public ParseResult<RootConfigObject> parseDeepSubCommand() {
+        return this.parser.parse(DEEP);
+    }
+}
@@ -0,0 +1,48 @@
+package com.lupusumbra.util.commandline;
+
+import com.lupusumbra.util.commandline.annotation.Command;
+import com.lupusumbra.util.commandline.annotation.Option;
+import com.lupusumbra.util.commandline.test.basic.config.BasicConfigObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures usage rendering for the {@link BasicConfigObject} fixture, which has long, wrapped descriptions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UsageBenchmark {
+    //the shared parser
+    private final CommandParser<BasicConfigObject> parser = CommandParser.of(BasicConfigObject.class);
+    //the Command annotation values
+    private final Command command = BasicConfigObject.class.getAnnotation(Command.class);
+    //the option annotation values, in declaration order
+    private final List<Option> options = new ArrayList<>();
+    //the reused render target
+    private final StringBuilder out = new StringBuilder();
+
+    @Setup
+    public void setup() {
+        for (OptionModel option : CommandModel.of(BasicConfigObject.class).options) this.options.add(option.annotation);
+    }
+
+    @Benchmark
+    public StringBuilder renderUsage() throws IOException {
+        this.out.setLength(0);
+        CommandLineParser.renderUsage(this.command, this.options, this.out);
+        return this.out;
+    }
+
+    @Benchmark
+    public String toUsage() {
+        return this.parser.toUsage();
+    }
+}
@@ -0,0 +1,214 @@
+package com.lupusumbra.util.commandline;
+
+import com.lupusumbra.util.commandline.exception.CommandLineParserException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads arguments one at a time from UTF-8 text, such as an @argfile or stdin.
+ *
+ * Arguments are separated by whitespace; single or double quotes group whitespace into an argument, and a backslash
+ * escapes the next character within double quotes. Bytes are decoded through a small fixed buffer as arguments are
+ * requested, so only the current argument is ever held on the heap.
+ */
+abstract class ArgumentReader implements Closeable {
+    //the decoded characters buffer size
+    private static final int CHAR_BUFFER_SIZE = 8192;
+    //bytes not decoded yet
+    ByteBuffer bytes;
+    //the UTF-8 decoder
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+    //decoded characters not read yet
+    private final CharBuffer chars = empty(CharBuffer.allocate(CHAR_BUFFER_SIZE));
+    //the argument being read
+    private final StringBuilder argument = new StringBuilder();
+    //true once every byte has been handed to the decoder
+    private boolean endOfInput;
+    //true once the decoder has been flushed
+    private boolean done;
+
+    /**
+     * Instantiate an {@link ArgumentReader}
+     * @param bytes the first bytes
+     */
+    ArgumentReader(ByteBuffer bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * Open an argument file, which is read through a memory-mapped channel
+     * @param path the argument file
+     * @return the reader
+     * @throws IOException if the file cannot be opened
+     */
+    static ArgumentReader open(Path path) throws IOException {
+        return new MappedArgumentReader(FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    /**
+     * Read arguments from a channel, such as stdin
+     * @param channel the channel
+     * @return the reader
+     */
+    static ArgumentReader of(ReadableByteChannel channel) {
+        return new ChannelArgumentReader(channel);
+    }
+
+    /**
+     * Make more bytes available, keeping the remaining bytes of the current buffer
+     * @return false if there are no more bytes
+     * @throws IOException if the input cannot be read
+     */
+    abstract boolean refill() throws IOException;
+
+    /**
+     * Read the next argument
+     * @return the argument, or null if there are no more arguments
+     * @throws IOException if the input cannot be read or decoded
+     */
+    String next() throws IOException {
+        int c = this.read();
+        while (c != -1 && Character.isWhitespace(c)) c = this.read();
+        if (c == -1) return null;
+        this.argument.setLength(0);
+        int quote = 0;
+        while (c != -1 && (quote != 0 || !Character.isWhitespace(c))) {
+            if (quote == 0 && (c == '"' || c == '\'')) quote = c;
+            else if (c == quote) quote = 0;
+            else {
+                if (c == '\\' && quote == '"') c = this.read();
+                if (c == -1) break;
+                this.argument.append((char) c);
+            }
+            c = this.read();
+        }
+        if (quote != 0) throw new CommandLineParserException("Unterminated quote in argument: " + this.argument);
+        return this.argument.toString();
+    }
+
+    /**
+     * Read a character
+     * @return the character, or -1 at the end of the input
+     * @throws IOException if the input cannot be read or decoded
+     */
+    private int read() throws IOException {
+        return this.chars.hasRemaining() || this.decode() ? this.chars.get() : -1;
+    }
+
+    /**
+     * Empty a new buffer, as one whose content was all read
+     *
+     * Like every flip and clear of this class, it is called on the {@link Buffer} type: a call on CharBuffer or
+     * ByteBuffer compiled by a Java 9+ compiler links to their covariant overrides, which don't exist on Java 8.
+     * @param buffer the buffer
+     * @param <B> the buffer type
+     * @return buffer
+     */
+    private static <B extends Buffer> B empty(B buffer) {
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Decode more characters
+     * @return false at the end of the input
+     * @throws IOException if the input cannot be read or decoded
+     */
+    private boolean decode() throws IOException {
+        if (this.done) return false;
+        ((Buffer) this.chars).clear();
+        while (true) {
+            final CoderResult result = this.decoder.decode(this.bytes, this.chars, this.endOfInput);
+            if (result.isError()) result.throwException();
+            if (this.chars.position() > 0) break;
+            if (this.endOfInput) {
+                this.decoder.flush(this.chars);
+                this.done = true;
+                break;
+            }
+            if (!this.refill()) this.endOfInput = true;
+        }
+        ((Buffer) this.chars).flip();
+        return this.chars.hasRemaining();
+    }
+
+    /**
+     * Reads a file through a sliding memory-mapped window
+     */
+    private static final class MappedArgumentReader extends ArgumentReader {
+        //the mapped window size
+        private static final long WINDOW_SIZE = 1 << 26;
+        //the file
+        private final FileChannel channel;
+        //the file position of the current window
+        private long position;
+
+        /**
+         * Instantiate a {@link MappedArgumentReader}
+         * @param channel the file
+         */
+        MappedArgumentReader(FileChannel channel) {
+            super(ByteBuffer.allocate(0));
+            this.channel = channel;
+        }
+
+        @Override
+        boolean refill() throws IOException {
+            final long size = this.channel.size();
+            if (this.position + this.bytes.limit() >= size) return false;
+            this.position += this.bytes.position();
+            this.bytes = this.channel.map(FileChannel.MapMode.READ_ONLY, this.position, Math.min(WINDOW_SIZE, size - this.position));
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.channel.close();
+        }
+    }
+
+    /**
+     * Reads a channel through a fixed buffer
+     */
+    private static final class ChannelArgumentReader extends ArgumentReader {
+        //the buffer size
+        private static final int BUFFER_SIZE = 8192;
+        //the channel
+        private final ReadableByteChannel channel;
+
+        /**
+         * Instantiate a {@link ChannelArgumentReader}
+         * @param channel the channel
+         */
+        ChannelArgumentReader(ReadableByteChannel channel) {
+            super(empty(ByteBuffer.allocate(BUFFER_SIZE)));
+            this.channel = channel;
+        }
+
+        @Override
+        boolean refill() throws IOException {
+            this.bytes.compact();
+            final int read = this.channel.read(this.bytes);
+            ((Buffer) this.bytes).flip();
+            return read >= 0;
+        }
+
+        /**
+         * Leaves the channel open, it is owned by the caller
+         */
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.lupusumbra.util.commandline;
+
+/**
+ * A single-pass view of one command-line argument: its option prefix, key and inline value, as index ranges of the
+ * raw argument.
+ *
+ * One instance is reused for every argument of a parse, so scanning allocates nothing; Strings are only created when
+ * a key or value is actually needed.
+ */
+final class ArgumentToken {
+    //the raw argument
+    String arg;
+    //the number of leading dashes (0, 1 or 2)
+    private int prefix;
+    //the end of the key (the index of the first '=', or the argument length)
+    private int keyEnd;
+
+    /**
+     * Scan an argument
+     * @param arg the raw argument
+     * @return this token
+     */
+    ArgumentToken scan(final String arg) {
+        final int length = arg.length();
+        int prefix = 0;
+        while (prefix < 2 && prefix < length && arg.charAt(prefix) == '-') prefix++;
+        int keyEnd = prefix;
+        while (keyEnd < length && arg.charAt(keyEnd) != '=') keyEnd++;
+        this.arg = arg;
+        this.prefix = prefix;
+        this.keyEnd = keyEnd;
+        return this;
+    }
+
+    /**
+     * Checks if the argument is prefixed with either "-" or "--"
+     * @return true if the argument is an option
+     */
+    boolean isOption() {
+        return this.prefix > 0;
+    }
+
+    /**
+     * Check if the argument is a short-format key (a single "-" followed by at least one character)
+     * @return true if the argument is a short-format key
+     */
+    boolean isShort() {
+        return this.prefix == 1 && this.arg.length() > 1;
+    }
+
+    /**
+     * Get the key length
+     * @return the key length
+     */
+    int keyLength() {
+        return this.keyEnd - this.prefix;
+    }
+
+    /**
+     * Get the start of the key within the argument
+     * @return the index of the first key character
+     */
+    int keyStart() {
+        return this.prefix;
+    }
+
+    /**
+     * Get the end of the key within the argument
+     * @return the index following the last key character
+     */
+    int keyEnd() {
+        return this.keyEnd;
+    }
+
+    /**
+     * Get a character of the key
+     * @param index the index within the key
+     * @return the character
+     */
+    char keyChar(final int index) {
+        return this.arg.charAt(this.prefix + index);
+    }
+
+    /**
+     * Compare the key to a String without creating the key String
+     * @param key the String to compare to, may be null
+     * @return true if the key equals the String
+     */
+    boolean keyEquals(final String key) {
+        return key != null && key.length() == this.keyLength() && this.arg.regionMatches(this.prefix, key, 0, key.length());
+    }
+
+    /**
+     * Get the key
+     * @return the key, without prefix or value
+     */
+    String key() {
+        return this.arg.substring(this.prefix, this.keyEnd);
+    }
+
+    /**
+     * Check if the argument carries an inline ("key=value") value
+     * @return true if there is an inline value
+     */
+    boolean hasValue() {
+        return this.keyEnd < this.arg.length();
+    }
+
+    /**
+     * Get the inline value, which is everything after the first '='
+     * @return the inline value, or null if there is none
+     */
+    String value() {
+        return this.hasValue() ? this.arg.substring(this.keyEnd + 1) : null;
+    }
+}
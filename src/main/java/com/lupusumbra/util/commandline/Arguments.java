@@ -0,0 +1,110 @@
+package com.lupusumbra.util.commandline;
+
+import com.lupusumbra.util.commandline.exception.CommandLineParserException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Paths;
+
+/**
+ * A source of raw arguments, consumed one at a time by a parse.
+ */
+abstract class Arguments {
+    /**
+     * Get the next argument
+     * @return the argument, or null if there are no more arguments
+     */
+    abstract String next();
+
+    /**
+     * Release the resources held by the source
+     */
+    void close() {
+    }
+
+    /**
+     * Iterate over an argument array
+     * @param args the arguments
+     * @return the source
+     */
+    static Arguments of(final String[] args) {
+        return new Arguments() {
+            //the index of the next argument
+            private int index;
+
+            @Override
+            String next() {
+                return this.index < args.length ? args[this.index++] : null;
+            }
+        };
+    }
+
+    /**
+     * Iterate over an argument array, replacing "@path" with the arguments read from the file at path, and "-" with the
+     * arguments read from stdin; "@@" escapes a literal leading '@'
+     * @param args the arguments
+     * @param stdin the stdin stream
+     * @return the source
+     */
+    static Arguments expanding(final String[] args, final InputStream stdin) {
+        return new Arguments() {
+            //the index of the next argument
+            private int index;
+            //the reader being expanded, or null
+            private ArgumentReader reader;
+            //the name of the reader source, used to report errors
+            private String source;
+
+            @Override
+            String next() {
+                try {
+                    while (true) {
+                        if (this.reader != null) {
+                            final String rval = this.reader.next();
+                            if (rval != null) return rval;
+                            this.reader.close();
+                            this.reader = null;
+                        }
+                        if (this.index >= args.length) return null;
+                        final String arg = args[this.index++];
+                        if (arg.startsWith("@@")) return arg.substring(1);
+                        else if (arg.length() > 1 && arg.charAt(0) == '@') this.open(arg.substring(1));
+                        else if (arg.equals("-")) this.read(stdin);
+                        else return arg;
+                    }
+                } catch (IOException e) {
+                    throw new CommandLineParserException("Unable to read arguments from " + this.source + ": " + e);
+                }
+            }
+
+            @Override
+            void close() {
+                try {
+                    if (this.reader != null) this.reader.close();
+                } catch (IOException ignored) {
+                    //nothing left to read
+                }
+            }
+
+            /**
+             * Start reading an argument file
+             * @param path the file path
+             * @throws IOException if the file cannot be opened
+             */
+            private void open(final String path) throws IOException {
+                this.source = path;
+                this.reader = ArgumentReader.open(Paths.get(path));
+            }
+
+            /**
+             * Start reading stdin
+             * @param stdin the stdin stream
+             */
+            private void read(final InputStream stdin) {
+                this.source = "stdin";
+                this.reader = ArgumentReader.of(Channels.newChannel(stdin));
+            }
+        };
+    }
+}
@@ -0,0 +1,71 @@
+package com.lupusumbra.util.commandline;
+
+/**
+ * The outcome of parsing one argument vector of a batch: either a {@link ParseResult}, or the exception which stopped
+ * the parse.
+ *
+ * @param <T> the Command data Object type
+ */
+public final class BatchResult<T> {
+    //the argument vector
+    private final String[] args;
+    //the parse result, or null if the parse failed
+    private final ParseResult<T> result;
+    //the exception which stopped the parse, or null if it succeeded
+    private final RuntimeException error;
+
+    /**
+     * Instantiate a {@link BatchResult}
+     * @param args the argument vector
+     * @param result the parse result, or null
+     * @param error the exception which stopped the parse, or null
+     */
+    BatchResult(String[] args, ParseResult<T> result, RuntimeException error) {
+        this.args = args;
+        this.result = result;
+        this.error = error;
+    }
+
+    /**
+     * Get the argument vector
+     * @return the argument vector
+     */
+    public String[] args() {
+        return this.args;
+    }
+
+    /**
+     * Check if the argument vector was parsed
+     * @return true if the parse succeeded
+     */
+    public boolean succeeded() {
+        return this.error == null;
+    }
+
+    /**
+     * Get the parse result
+     * @return the parse result, or null if the parse failed
+     */
+    public ParseResult<T> result() {
+        return this.result;
+    }
+
+    /**
+     * Get the exception which stopped the parse
+     * @return the exception, or null if the parse succeeded
+     */
+    public RuntimeException error() {
+        return this.error;
+    }
+
+    /**
+     * Generates a String representation of the {@link BatchResult}
+     * @return the String representation
+     */
+    @Override
+    public String toString() {
+        return "BatchResult{" +
+                (this.error == null ? "result=" + this.result : "error=" + this.error) +
+                '}';
+    }
+}
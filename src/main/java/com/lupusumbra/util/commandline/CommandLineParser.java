@@ -2,98 +2,45 @@ package com.lupusumbra.util.commandline;
 
 import com.lupusumbra.util.commandline.annotation.Command;
 import com.lupusumbra.util.commandline.annotation.Option;
-import com.lupusumbra.util.commandline.annotation.Parameters;
-import com.lupusumbra.util.commandline.annotation.SubCommand;
 import com.lupusumbra.util.commandline.exception.CommandLineParserException;
-import com.lupusumbra.util.commandline.exception.UnknownOptionException;
-import javafx.util.Pair;
+import com.lupusumbra.util.commandline.listener.ParseListener;
 
-import java.lang.annotation.Annotation;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Field;
 import java.util.*;
 import java.util.function.Consumer;
-import java.util.function.Function;
-import java.util.regex.Pattern;
 
 @SuppressWarnings("WeakerAccess")
 public final class CommandLineParser {
     //string padding
     private static final String PADDING = String.format("%36s", "");
-    //word splitter regex
-    private static final Pattern WORD_SPLIT_REGEX = Pattern.compile("(?<!^)\\s+");
-    //option prefix regex
-    private static final Pattern OPTION_PREFIX = Pattern.compile("^-{1,2}");
     //option Comparator
     private static final Comparator<String> OPTION_COMPARATOR = Comparator.comparing(CommandLineParser::stripOptionPrefix);
+    //the global parse listener, or null
+    private static volatile ParseListener listener;
     //CommandLineParser name
     private final String name;
-    //options lookup by name
-    private final Map<String, OptionParser> optionsByName = new HashMap<>();
-    //options lookup by short-format name
-    private final Map<String, OptionParser> optionsByShortKey = new HashMap<>();
-    //options lookup by long-format name
-    private final Map<String, OptionParser> optionsByLongKey = new HashMap<>();
-    //SubCommand lookup by name
-    private final Map<String, CommandLineParser> subCommands = new HashMap<>();
-    //Command Argument Object
-    private Object data = null;
-    //The Command annotation
-    private final Command annotation;
-    //List of additional, non-option parameters
-    private final List<String> parameters = new ArrayList<>();
-    //selected flag
-    private boolean selected;
-    //selected SubCommand object
-    private CommandLineParser selectedSubCommand = null;
-    private String usageKeyShort = null;
-    private String getUsageKeyLong = null;
+    //the per-invocation parse state
+    private final ParseResult<?> result;
+    //option views, indexed like the model options
+    private final OptionParser[] options;
+    //SubCommand views by name, created on first lookup; null until then
+    private Map<String, CommandLineParser> subCommands;
     private Consumer<String> usage;
 
     /**
-     * Creates a new instance of {@link CommandLineParser}
-     * @param data the data Object
+     * Creates a new instance of {@link CommandLineParser}, a view of a {@link ParseResult}
+     * @param result the parse result
      */
-    private CommandLineParser(final Object data) {
-        this(data.getClass(), data);
-    }
-
-    /**
-     * Creates a new instance of {@link CommandLineParser}
-     * @param dataClass the data Object class
-     */
-    private CommandLineParser(final Class<?> dataClass) {
-        this(dataClass, newInstance(dataClass));
-    }
-
-    /**
-     * Creates a new instance of {@link CommandLineParser}
-     * @param dataClass the data Object class
-     * @param data the data Object
-     */
-    private CommandLineParser(final Class<?> dataClass, final Object data) {
-        this.data = data;
-        if (this.data == null)
-            throw new CommandLineParserException("The Command Data Object *MUST* not be null, and *MUST* have a no-args public constructor");
-        this.annotation = getAnnotation(dataClass, Command.class);
-        if (this.annotation == null)
-            throw new CommandLineParserException("A Command Data Object class *MUST* be annotated with @Command: " + dataClass.getName());
-        this.name = this.annotation.name();
-        fieldAnnotations(dataClass, SubCommand.class, this::analyzeSubCommandAnnotation);
-        fieldAnnotations(dataClass, Option.class, this::analyzeCommandLineOptionAnnotation);
-        fieldAnnotations(dataClass, Parameters.class, this::analyzeParametersAnnotation);
-        Arrays.stream(this.annotation.usage()).forEach(this::setUsageKey);
+    private CommandLineParser(final ParseResult<?> result) {
+        this.result = result;
+        this.name = result.name();
+        this.options = new OptionParser[result.model.options.length];
+        for (OptionModel option : result.model.options) this.options[option.index] = new OptionParser(option, result);
         this.usage(this::defaultUsagePrinter);
     }
 
-    /**
-     * sets the usage key
-     * @param key the usage key
-     */
-    private void setUsageKey(String key) {
-        if(isTokenShortKey(key)) this.usageKeyShort = stripOptionPrefix(key);
-        else this.getUsageKeyLong = stripOptionPrefix(key);
-    }
-
     /**
      * defines the usage processor
      * @param usage usage message consumer
@@ -117,7 +64,7 @@ public final class CommandLineParser {
      * @return true if selected
      */
     public final boolean selected() {
-        return this.selected;
+        return this.result.selected();
     }
 
     /**
@@ -127,7 +74,7 @@ public final class CommandLineParser {
      */
     public final <T> T data() {
         //noinspection unchecked
-        return (T) this.data;
+        return (T) this.result.data();
     }
 
     /**
@@ -143,7 +90,7 @@ public final class CommandLineParser {
      * @return the list of parameters
      */
     public final List<String> parameters() {
-        return this.parameters;
+        return this.result.parameters();
     }
 
     /**
@@ -152,7 +99,15 @@ public final class CommandLineParser {
      * @return the SubCommand
      */
     public final CommandLineParser subCommand(String name) {
-        return this.subCommands.get(name);
+        CommandLineParser rval = this.subCommands == null ? null : this.subCommands.get(name);
+        if (rval == null) {
+            final ParseResult<?> subCommand = this.result.subCommand(name);
+            if (subCommand == null) return null;
+            rval = new CommandLineParser(subCommand);
+            if (this.subCommands == null) this.subCommands = new HashMap<>();
+            this.subCommands.put(name, rval);
+        }
+        return rval;
     }
 
     /**
@@ -160,78 +115,24 @@ public final class CommandLineParser {
      * @return the list of SubCommands
      */
     public final Set<String> subCommands() {
-        return this.subCommands.keySet();
+        return this.result.subCommands();
     }
 
     /**
-     * Register a {@link CommandLineParser} as a SubCommand
-     * @param name the name of the SubCommand
-     * @param commandArgsClass the Command Args Object class
-     * @return the SubCommand
+     * writes the help String, which is rendered once per Command class
+     * @param out the target, such as a {@link java.io.Writer}
+     * @throws IOException if out cannot be written
      */
-    private CommandLineParser registerSubCommand(String name, Class<?> commandArgsClass) {
-        return this.registerSubCommand(name, new CommandLineParser(commandArgsClass));
+    public final void writeUsage(Appendable out) throws IOException {
+        out.append(this.result.model.usage());
     }
 
     /**
-     * Register a {@link CommandLineParser} as a SubCommand
-     * @param name the name of the SubCommand
-     * @param subCommand the SubCommand
-     * @return the SubCommand
+     * Get the per-invocation parse state
+     * @return the parse result
      */
-    private CommandLineParser registerSubCommand(String name, CommandLineParser subCommand) {
-        this.subCommands.put(name, subCommand);
-        return subCommand;
-    }
-
-    /**
-     * Analyzes a {@link Field} annotated with {@link SubCommand}
-     * @param fieldAnnotation a {@link Pair} of {@link Field} and {@link SubCommand}
-     */
-    private void analyzeSubCommandAnnotation(Pair<Field,SubCommand> fieldAnnotation) {
-        final CommandLineParser subCommand = this.registerSubCommand(fieldAnnotation.getValue().name(), fieldAnnotation.getKey().getType());
-        setObjectValue(this.data, fieldAnnotation.getKey(), subCommand.data());
-    }
-
-    /**
-     * Analyzes a {@link Field} annotated with {@link Parameters}
-     * @param fieldAnnotation a {@link Pair} of {@link Field} and {@link Parameters}
-     */
-    private void analyzeParametersAnnotation(final Pair<Field,Parameters> fieldAnnotation) {
-        setObjectValue(data, fieldAnnotation.getKey(), this.parameters);
-    }
-
-    /**
-     * Analyzes a {@link Field} annotated with {@link Option}
-     * @param fieldAnnotation a {@link Pair} of {@link Field} and {@link Option}
-     */
-    private void analyzeCommandLineOptionAnnotation(Pair<Field,Option> fieldAnnotation) {
-        final Field field = fieldAnnotation.getKey();
-        if(!field.isAccessible()) {
-            try {
-                field.setAccessible(true);
-            } catch (Exception ignored) {
-                throw new CommandLineParserException(String.format("@Option on field '%s' is invalid: it must be public, or you must have permission to call setAccessible on the field", field));
-            }
-        }
-        final Option option = fieldAnnotation.getValue();
-        final String shortKey = stripOptionPrefix(option.shortKey());
-        final String longKey = stripOptionPrefix(option.longKey());
-        final boolean invalidName = option.name().isEmpty();
-        final boolean invalidKey = shortKey.isEmpty() && longKey.isEmpty();
-        final boolean invalidConfig = option.hidden() && option.required();
-        final boolean invalidAnnotation = invalidName || invalidKey || invalidConfig;
-        if (invalidAnnotation)
-            throw new CommandLineParserException(String.format("@Option on field '%s' is invalid: %s", field, invalidName ? "a name is required" : invalidKey ? "shortKey, longKey, or both must be selected" : "hidden and required cannot be requested for the same option"));
-        final OptionParser optionParser = new OptionParser(field, option);
-        final String optionName = option.name();
-        if (this.optionsByName.containsKey(optionName)) {
-            final OptionParser lastOptionParser = this.optionsByName.get(optionName);
-            throw new CommandLineParserException(String.format("The '%s' option has been defined on multiple fields ('%s', '%s').", option, lastOptionParser.field.getName(), optionParser.field.getName()));
-        }
-        this.optionsByName.put(optionName, optionParser);
-        if (!shortKey.isEmpty()) this.optionsByShortKey.put(shortKey, optionParser);
-        if (!longKey.isEmpty()) this.optionsByLongKey.put(longKey, optionParser);
+    public final ParseResult<?> result() {
+        return this.result;
     }
 
     /**
@@ -242,31 +143,60 @@ public final class CommandLineParser {
     public String toString() {
         return "CommandLineParser{" +
                 "name='" + name + '\'' +
-                (subCommands.isEmpty()?"":(",subCommands=" + Arrays.toString(subCommands.keySet().toArray()))) +
+                (subCommands().isEmpty()?"":(",subCommands=" + Arrays.toString(subCommands().toArray()))) +
                 '}';
     }
 
     /**
-     * generates a help String
+     * renders a help String
+     * @param command the Command annotation
+     * @param options the Option annotations
      * @return the help String
      */
-    private String toUsage() {
+    static String renderUsage(Command command, Collection<Option> options) {
         final StringBuilder rval = new StringBuilder();
-        this.appendDescription(rval,this.annotation.descriptions());
-        final List<String> sorted = new ArrayList<>(this.optionsByName.size());
-        this.optionsByName.values().stream().filter(option -> !option.annotation.hidden()).forEach(option -> sorted.add(option.toString()));
-        sorted.sort(OPTION_COMPARATOR);
-        sorted.forEach(optionString -> rval.append('\n').append(optionString));
-        rval.append(formatSentences(this.annotation.detailedDescription(), true));
+        try {
+            renderUsage(command, options, rval);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); //StringBuilder doesn't throw
+        }
         return rval.toString();
     }
 
     /**
-     * Append description to StringBuilder
-     * @param rval the target {@link StringBuilder}
+     * renders a help String to an {@link Appendable}, piece by piece
+     * @param command the Command annotation
+     * @param options the Option annotations
+     * @param out the target
+     * @throws IOException if out cannot be written
+     */
+    static void renderUsage(Command command, Collection<Option> options, Appendable out) throws IOException {
+        appendDescription(out, command.descriptions());
+        final List<String> sorted = new ArrayList<>(options.size());
+        for (Option option : options) if (!option.hidden()) sorted.add(formatOption(option));
+        sorted.sort(OPTION_COMPARATOR);
+        for (String optionString : sorted) out.append('\n').append(optionString);
+        out.append(formatSentences(command.detailedDescription(), true));
+    }
+
+    /**
+     * Generates the info message for an option
+     * @param option the Option annotation
+     * @return the info message
+     */
+    static String formatOption(Option option) {
+        final String optsText = formatOptions(option.shortKey(), option.longKey());
+        final String descText = formatSentence(option.description(), true);
+        return String.format("%s  %s", optsText, descText);
+    }
+
+    /**
+     * Append description to an {@link Appendable}
+     * @param rval the target {@link Appendable}
      * @param descriptions the String array containing descriptions
+     * @throws IOException if rval cannot be written
      */
-    private void appendDescription(StringBuilder rval, String[] descriptions) {
+    private static void appendDescription(Appendable rval, String[] descriptions) throws IOException {
         if(descriptions.length>0) {
             rval.append(descriptions[0]);
             if (descriptions.length > 1) {
@@ -283,98 +213,16 @@ public final class CommandLineParser {
      * @return the OptionParser, or null if it doesn't exist
      */
     public final OptionParser optionParserByName(final String name) {
-        return this.optionsByName.get(name);
-    }
-
-    /**
-     * Lookup an {@link OptionParser} by its short-format key
-     * @param key the short-format key
-     * @return the OptionParser, or null if it doesn't exist
-     */
-    private OptionParser optionParserByShortKey(final String key) {
-        return this.optionsByShortKey.get(key);
-    }
-
-    /**
-     * Lookup an {@link OptionParser} by its long-format key
-     * @param key the long-format key
-     * @return the OptionParser, or null if it doesn't exist
-     */
-    private OptionParser optionParserByLongKey(final String key) {
-        return this.optionsByLongKey.get(stripOptionPrefix(key));
-    }
-
-    /**
-     * Checks if key is a short-format key for a boolean Option
-     * @param key the key
-     * @return true if key is a short-format key for a boolean Option
-     */
-    private boolean isBooleanShortKey(final String key) {
-        final Class<?> type = this.optionsByShortKey.containsKey(key) ? this.optionParserByShortKey(key).fieldType : null;
-        return type == boolean.class || type == Boolean.class;
-    }
-
-    /**
-     * Process token String as an Option
-     * @param token the token String
-     * @return true if the next raw token is the value
-     */
-    private boolean parseTokenAsOption(final String token) {
-        processToken(token, kv -> this.processOption(token, kv));
-        final boolean isShort = isTokenShortKey(token);
-        final String[] kvParts = stripOptionPrefix(token).split("=");
-        return kvParts.length != 0 && (isShort && token.contains("=")) && !isBooleanShortKey(kvParts[0]);
-    }
-
-    /**
-     * Process an Option token
-     * @param optionToken the raw option token String
-     * @param kv the option key-value token
-     */
-    private void processOption(String optionToken, String kv) {
-        final String[] kvParts = kv.split("=");
-        final String key = kvParts[0];
-        final String value = kv.contains("=") ? kv.split("=")[1] : null;
-        final OptionParser optionParser = isTokenShortKey(optionToken) ? optionParserByShortKey(key) : optionParserByLongKey(key);
-        if (optionParser == null) throw new UnknownOptionException("Unknown option: '" + key + "'");
-        optionParser.process(this.data, value);
+        return this.optionParser(this.result.model.optionsByName.get(name));
     }
 
     /**
-     * Checks to see if the token is a Sub Command
-     * @param token the token
-     * @return true if the token is a registered Sub Command
+     * Get the per-invocation {@link OptionParser} for a model option
+     * @param option the model option
+     * @return the OptionParser, or null if option is null
      */
-    private boolean isSubCommand(String token) {
-        return this.subCommands.containsKey(token);
-    }
-
-    /**
-     * Appends a parameter
-     * @param param the parameter to append
-     */
-    private void appendParameter(String param) {
-        this.parameters.add(param);
-    }
-
-    private boolean isUsage(String kv) {
-        final String[] kvParts = stripOptionPrefix(kv).split("=");
-        return kvParts.length!=0 && (kvParts[0].equals(this.usageKeyShort) || kvParts[0].equals(this.getUsageKeyLong));
-    }
-
-    /**
-     * Parse a key-value arg
-     * @param kv the arg, in key-value format
-     * @return true if the next token should be skipped (typically if the key is a boolean key)
-     */
-    private boolean parse(String kv) {
-        this.selected = true;
-        if(this.isUsage(kv)) this.usage.accept(this.toUsage());
-        else if (this.isSubCommand(kv)) this.selectedSubCommand = subCommand(kv);
-        else if (this.selectedSubCommand != null) return this.selectedSubCommand.parse(kv);
-        else if (isOption(kv)) return this.parseTokenAsOption(kv);
-        else this.appendParameter(kv);
-        return false;
+    private OptionParser optionParser(final OptionModel option) {
+        return option == null ? null : this.options[option.index];
     }
 
     /**
@@ -382,7 +230,8 @@ public final class CommandLineParser {
      * @return the selected Sub Command
      */
     public CommandLineParser selectedSubCommand() {
-        return this.selectedSubCommand;
+        final String name = this.result.selectedSubCommandName();
+        return name == null ? null : this.subCommand(name);
     }
 
     /**
@@ -391,38 +240,7 @@ public final class CommandLineParser {
      * @return true id a subCommand is selected
      */
     public boolean usingSubCommand() {
-        return this.selectedSubCommand != null;
-    }
-
-    /**
-     * converts args into key/value pairs.
-     *
-     * For long keys, this is pretty straightforward, as they are already in key=value form.
-     * For short keys, we take the next arg if it isn't a key, and append it as a value, resulting in a key=value string
-     *
-     * @param args      the command line args
-     * @param kvHandler a function which processes a key/value string, and returns true if the next arg should be skipped (typically this is the case if it's a non-boolean short form key)
-     */
-    private void processArgs(String[] args, Function<String, Boolean> kvHandler) {
-        final int length = args.length;
-        String curr, next;
-        String kv;
-        for (int i = 0; i < length; i++) {
-            curr = args[i];
-            next = i >= (length - 1) ? null : args[i + 1];
-            kv = (curr.startsWith("-") && (next != null && !next.startsWith("-"))) ? (curr + '=' + next) : curr;
-            if (kvHandler.apply(kv)) i++;
-        }
-    }
-
-    /**
-     * parse a command line
-     * @param args the String[] containing the commandline
-     * @return the {@link CommandLineParser}
-     */
-    private CommandLineParser parseArgs(String[] args) {
-        this.processArgs(args, this::parse);
-        return this;
+        return this.result.selectedSubCommand() != null;
     }
 
     /**
@@ -430,8 +248,8 @@ public final class CommandLineParser {
      * @param token the raw token
      * @return the stripped token
      */
-    private static String stripOptionPrefix(String token) {
-        return OPTION_PREFIX.matcher(token).replaceFirst("");
+    static String stripOptionPrefix(String token) {
+        return token.startsWith("--") ? token.substring(2) : token.startsWith("-") ? token.substring(1) : token;
     }
 
     /**
@@ -450,58 +268,10 @@ public final class CommandLineParser {
      * @param token the token String
      * @return true if the token starts with a short-format key
      */
-    private static boolean isTokenShortKey(String token) {
+    static boolean isTokenShortKey(String token) {
         return token.length() > 1 && token.charAt(0) == '-' && token.charAt(1) != '-';
     }
 
-    /**
-     * Process a token as a short-format key
-     *
-     * if it is a compound key ( for example -abc ), process as multiple short-format keys
-     * @param token the raw token
-     * @param kv the key-value consumer
-     */
-    private static void processShortKey(String token, Consumer<String> kv) {
-        final String stripped = stripOptionPrefix(token);
-        if(stripped.isEmpty())return;
-        final String[] kvParts = stripped.split("=");
-        if(kvParts.length==0)
-            return;
-        final boolean isCompoundKey = kvParts[0].length()>1;
-        if(isCompoundKey) for (char c : stripped.toCharArray()) kv.accept("" + c);
-        else kv.accept(stripped);
-    }
-
-    /**
-     * Process a token as a long-format key
-     *
-     * @param token the raw token
-     * @param kv the key-value consumer
-     */
-    private static void processLongKey(String token, Consumer<String> kv) {
-        kv.accept(token);
-    }
-
-    /**
-     * Process a token as a key
-     * @param token the raw token
-     * @param kv the key-value consumer
-     */
-    private static void processToken(String token, Consumer<String> kv) {
-        if (isTokenShortKey(token)) processShortKey(token, kv);
-        else processLongKey(stripOptionPrefix(token), kv);
-    }
-
-    /**
-     * Checks if token matches the Option pattern (prefixed with either "-" or "--")
-     * @param token the token
-     * @return true if the token matches the Option prefix pattern
-     */
-    private static boolean isOption(String token) {
-        return OPTION_PREFIX.matcher(token).find();
-    }
-
-
     /**
      * Assigns a value to a field.
      *
@@ -510,7 +280,7 @@ public final class CommandLineParser {
      * @param field the target field
      * @param value the value to be assigned to the field
      */
-    private static void setObjectValue(Object data, Field field, Object value) {
+    static void setObjectValue(Object data, Field field, Object value) {
         try {
             field.set(data,value);
         } catch (Exception e) {
@@ -566,40 +336,37 @@ public final class CommandLineParser {
 
     /**
      * Tokenize a sentence into an List of words strings
+     *
+     * Words are separated by whitespace runs, except a run at the very start of the sentence, which stays part of the
+     * first word; trailing whitespace is dropped.
      * @param sentence the sentence
      * @return the words
      */
     private static List<String> tokenizeSentence(String sentence) { // split to words
-        return Arrays.asList(WORD_SPLIT_REGEX.split(sentence));
-    }
-
-    /**
-     * A convenience method which calls a method to process all occurrences of a field Annotation
-     *
-     * @param classToScan the class to scan
-     * @param annotationClass the Annotation we are scanning for
-     * @param fieldAnnotationConsumer the Consumer which processes each occurrence
-     * @param <T> the Type of the Annotation we are scanning for
-     */
-    private static <T extends Annotation> void fieldAnnotations(Class classToScan, Class<T> annotationClass, Consumer<Pair<Field, T>> fieldAnnotationConsumer) {
-        for (Field field : classToScan.getDeclaredFields()) {
-            if (!field.isSynthetic()) {
-                final T annotation = field.getAnnotation(annotationClass);
-                if (annotation != null) fieldAnnotationConsumer.accept(new Pair<>(field, annotation));
+        final List<String> rval = new ArrayList<>();
+        final int length = sentence.length();
+        int start = 0;
+        int i = 1;
+        while (i < length) {
+            if (!isWordSeparator(sentence.charAt(i))) {
+                i++;
+                continue;
             }
+            rval.add(sentence.substring(start, i));
+            while (i < length && isWordSeparator(sentence.charAt(i))) i++;
+            start = i;
         }
+        if (start < length || rval.isEmpty()) rval.add(sentence.substring(start));
+        return rval;
     }
 
     /**
-     * A convenience method to get an Annotation from a class
-     * @param classToScan the class to scan
-     * @param annotationClass the Annotation we are scanning for
-     * @param <T> the Type of the Annotation we are scanning for
-     * @return the annotation
+     * Check if a character separates words, matching the regex \s class
+     * @param c the character
+     * @return true for ' ', '\t', '\n', vertical tab, '\f' and '\r'
      */
-    private static <T extends Annotation> T getAnnotation(Class classToScan, Class<T> annotationClass) {
-        //noinspection unchecked
-        return (T) classToScan.getAnnotation(annotationClass);
+    private static boolean isWordSeparator(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\013' || c == '\f' || c == '\r';
     }
 
     /**
@@ -608,7 +375,7 @@ public final class CommandLineParser {
      * @param clazz the class to instantiate
      * @return the new instance of clazz
      */
-    private static <T> T newInstance(Class<T> clazz) {
+    static <T> T newInstance(Class<T> clazz) {
         try {
             return clazz.newInstance();
         } catch (Exception ignored) {
@@ -616,6 +383,39 @@ public final class CommandLineParser {
         }
     }
 
+    /**
+     * Register the global parse listener
+     *
+     * The listener receives the model builds of every Command class, and the parses of this class and of the
+     * {@link CommandParser} instances created afterwards.
+     * @param listener the listener, which must be thread-safe; null to unregister it
+     */
+    public static void listener(final ParseListener listener) {
+        CommandLineParser.listener = listener;
+    }
+
+    /**
+     * Get the global parse listener
+     * @return the listener, or null
+     */
+    static ParseListener listener() {
+        return listener;
+    }
+
+    /**
+     * complete the argument under the cursor of a partial command line, without binding any value
+     *
+     * Candidates come from an index built once per Command class, so a completion costs a binary search per argument
+     * under the cursor, and a lookup per argument before it.
+     * @param commandDataClass the type of the Command Data Args object
+     * @param args the partial commandline arguments
+     * @param cursor the index of the argument under the cursor; args.length to complete a new argument
+     * @return the completion
+     */
+    public static Completion complete(final Class<?> commandDataClass, String[] args, int cursor) {
+        return CommandParser.of(commandDataClass).complete(args, cursor);
+    }
+
     /**
      * parse commandline arguments into a Command Data Args object of the commandDataClass type
      * @param commandDataClass the type of the Command Data Args object
@@ -623,7 +423,7 @@ public final class CommandLineParser {
      * @return the root-level {@link CommandLineParser} object
      */
     public static CommandLineParser parse(final Class<?> commandDataClass, String[] args) {
-        return new CommandLineParser(commandDataClass).parseArgs(args);
+        return new CommandLineParser(CommandParser.of(commandDataClass).parse(args));
     }
 
     /**
@@ -633,7 +433,9 @@ public final class CommandLineParser {
      * @return the root-level {@link CommandLineParser} object
      */
     public static CommandLineParser parse(final Object commandDataObject, String[] args) {
-        return new CommandLineParser(commandDataObject).parseArgs(args);
+        if (commandDataObject == null)
+            throw new CommandLineParserException("The Command Data Object *MUST* not be null, and *MUST* have a no-args public constructor");
+        return new CommandLineParser(new ParseResult<>(CommandModel.of(commandDataObject.getClass()), commandDataObject).parse(Arguments.of(args), CommandParser.DEFAULT_USAGE, listener, OptionSources.SYSTEM));
     }
 
     public <T> CommandLineParser then(Consumer<T> action){
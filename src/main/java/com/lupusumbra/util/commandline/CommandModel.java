@@ -0,0 +1,604 @@
+package com.lupusumbra.util.commandline;
+
+import com.lupusumbra.util.commandline.annotation.Command;
+import com.lupusumbra.util.commandline.annotation.Option;
+import com.lupusumbra.util.commandline.annotation.Parameters;
+import com.lupusumbra.util.commandline.annotation.SubCommand;
+import com.lupusumbra.util.commandline.exception.CommandLineParserException;
+import com.lupusumbra.util.commandline.listener.ParseListener;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * The immutable, per-class description of a Command: its options, keys, usage keys and SubCommand names.
+ *
+ * Models are built from the annotations once per class and cached, so repeated parses of the same Command class
+ * only pay for tokenizing and binding. The model of a SubCommand is only built once it is selected.
+ */
+final class CommandModel {
+    //thread-safe, class-keyed model registry
+    private static final ClassValue<CommandModel> MODELS = new ClassValue<CommandModel>() {
+        @Override
+        protected CommandModel computeValue(Class<?> type) {
+            final ParseListener listener = CommandLineParser.listener();
+            final long start = listener == null ? 0 : System.nanoTime();
+            final CommandModel rval = build(type);
+            if (listener != null) listener.modelBuilt(type, System.nanoTime() - start);
+            return rval;
+        }
+    };
+    //the Command data Object class
+    final Class<?> dataClass;
+    //the generated parser backing this model, or null if the model was built through reflection
+    private final GeneratedCommandParser<Object> generated;
+    //creates the values of an interface Command, or null for a Command class
+    private final Supplier<Object> factory;
+    //the Command annotation
+    final Command annotation;
+    //the Command name
+    final String name;
+    //options, in declaration order
+    final OptionModel[] options;
+    //options lookup by name
+    final Map<String, OptionModel> optionsByName;
+    //the highest short-format key held by the direct-indexed table
+    private static final char MAX_TABLE_KEY = 0xff;
+    //options by single-character short-format key, direct-indexed
+    private final OptionModel[] shortKeys;
+    //options by short-format keys beyond MAX_TABLE_KEY
+    private final Map<Character, OptionModel> extendedShortKeys;
+    //options by long-format key, or unambiguous prefix
+    private final LongKeyTrie longKeys;
+    //SubCommand lookup by name
+    final SubCommandTable subCommands;
+    //the indexes of the options read from the environment or a properties file when not given on the command line
+    final int[] sourcedOptions;
+    //assigns the parameter list to the fields annotated with @Parameters
+    final FieldWriter parameters;
+    //true if the parameters are held in a CompactStringList
+    final boolean compactParameters;
+    //the rendered usage, or null until first needed
+    private volatile String usage;
+    //the completion index, or null until first needed
+    private volatile CompletionIndex completion;
+    //the short-format usage key, without prefix
+    final String usageKeyShort;
+    //the long-format usage key, without prefix
+    final String usageKeyLong;
+
+    /**
+     * Builds the model for a Command data Object class
+     * @param dataClass the Command data Object class
+     */
+    private CommandModel(final Class<?> dataClass) {
+        this.dataClass = dataClass;
+        this.generated = null;
+        this.factory = null;
+        this.annotation = dataClass.getAnnotation(Command.class);
+        if (this.annotation == null)
+            throw new CommandLineParserException("A Command Data Object class *MUST* be annotated with @Command: " + dataClass.getName());
+        this.name = this.annotation.name();
+        final List<OptionModel> options = new ArrayList<>();
+        final Map<String, OptionModel> optionsByName = new HashMap<>();
+        final Map<String, SubCommandModel> subCommands = new HashMap<>();
+        final List<Field> parameterFields = new ArrayList<>();
+        for (Field field : dataClass.getDeclaredFields()) {
+            if (field.isSynthetic()) continue;
+            final SubCommand subCommand = field.getAnnotation(SubCommand.class);
+            if (subCommand != null) subCommands.put(subCommand.name(), new SubCommandModel(subCommand.name(), field.getType(), (data, value) -> CommandLineParser.setObjectValue(data, field, value)));
+            final Option option = field.getAnnotation(Option.class);
+            if (option != null) {
+                final OptionModel optionModel = analyzeOption(this.name, options.size(), field, option);
+                final OptionModel last = optionsByName.get(option.name());
+                if (last != null)
+                    throw new CommandLineParserException(String.format("The '%s' option has been defined on multiple fields ('%s', '%s').", option, last.fieldName, field.getName()));
+                options.add(optionModel);
+                optionsByName.put(option.name(), optionModel);
+            }
+            if (field.getAnnotation(Parameters.class) != null) parameterFields.add(field);
+        }
+        this.options = options.toArray(new OptionModel[0]);
+        this.optionsByName = Collections.unmodifiableMap(optionsByName);
+        this.shortKeys = shortKeyTable(this.options);
+        this.extendedShortKeys = extendedShortKeys(this.options);
+        this.longKeys = longKeyTrie(this.options);
+        this.sourcedOptions = sourcedOptions(this.options, false);
+        this.subCommands = subCommandTable(this.dataClass, subCommands);
+        this.parameters = (data, value) -> parameterFields.forEach(field -> CommandLineParser.setObjectValue(data, field, value));
+        this.compactParameters = parameterFields.stream().anyMatch(field -> field.getAnnotation(Parameters.class).compact());
+        this.usageKeyShort = usageKey(this.annotation, true);
+        this.usageKeyLong = usageKey(this.annotation, false);
+    }
+
+    /**
+     * Builds the model from a parser generated at compile time, without reflecting over the annotations
+     * @param generatedParser the generated parser
+     */
+    @SuppressWarnings("unchecked")
+    private CommandModel(final GeneratedCommandParser<?> generatedParser) {
+        final GeneratedCommandParser<Object> generated = (GeneratedCommandParser<Object>) generatedParser;
+        this.dataClass = generated.commandClass;
+        this.generated = generated;
+        this.factory = null;
+        this.annotation = generated.command;
+        this.name = this.annotation.name();
+        this.options = new OptionModel[generated.options.length];
+        final Map<String, OptionModel> optionsByName = new HashMap<>();
+        for (int i = 0; i < this.options.length; i++) {
+            final int index = i;
+            final Option option = generated.options[i];
+            final Class<?> type = generated.optionTypes[i];
+            final String shortKey = CommandLineParser.stripOptionPrefix(option.shortKey());
+            final String longKey = CommandLineParser.stripOptionPrefix(option.longKey());
+            if (ValueAccumulator.repeatable(type)) {
+                this.options[i] = OptionModel.repeatable(i, null, generated.optionFields[i], type, type.isArray() ? type.getComponentType() : generated.elementType(i), option, shortKey, longKey, (data, value) -> generated.setValues(index, data, value));
+            } else {
+                final OptionModel.Binder binder = (data, value) -> generated.set(index, data, value);
+                OptionModel.Binder defaultBinder = binder;
+                try {
+                    final Object converted = generated.convertValue(index, OptionModel.defaultValue(type, option));
+                    defaultBinder = (data, value) -> generated.setValues(index, data, converted);
+                } catch (Exception ignored) {
+                    //reported each time the default is bound, as for any other value
+                }
+                this.options[i] = new OptionModel(i, null, generated.optionFields[i], type, option, shortKey, longKey, binder, defaultBinder, generated.lazyType(i));
+            }
+            optionsByName.put(option.name(), this.options[i]);
+        }
+        this.optionsByName = Collections.unmodifiableMap(optionsByName);
+        this.shortKeys = shortKeyTable(this.options);
+        this.extendedShortKeys = extendedShortKeys(this.options);
+        this.longKeys = longKeyTrie(this.options);
+        this.sourcedOptions = sourcedOptions(this.options, false);
+        final Map<String, SubCommandModel> subCommands = new HashMap<>();
+        for (int i = 0; i < generated.subCommands.length; i++) {
+            final int index = i;
+            subCommands.put(generated.subCommands[i], new SubCommandModel(generated.subCommands[i], generated.subCommandTypes[i], (data, value) -> generated.setSubCommand(index, data, value)));
+        }
+        this.subCommands = subCommandTable(this.dataClass, subCommands);
+        this.parameters = (data, value) -> generated.setParameters(data, (List<String>) value);
+        this.compactParameters = generated.compactParameters();
+        this.usageKeyShort = usageKey(this.annotation, true);
+        this.usageKeyLong = usageKey(this.annotation, false);
+    }
+
+    /**
+     * Builds the model from a snapshot written at build time, or from the getters of an interface Command
+     * @param dataClass the Command data Object class, or interface
+     * @param annotation the Command values
+     * @param options the options, in declaration order
+     * @param subCommands the SubCommands by registered name
+     * @param parameters assigns the parameter list to the fields annotated with @Parameters
+     * @param compactParameters true if the parameters are held in a CompactStringList
+     * @param usage the rendered usage, or null to render it when first needed
+     * @param factory creates the values of an interface Command, or null for a Command class
+     */
+    CommandModel(final Class<?> dataClass, final Command annotation, final OptionModel[] options, final Map<String, SubCommandModel> subCommands, final FieldWriter parameters, final boolean compactParameters, final String usage, final Supplier<Object> factory) {
+        this.dataClass = dataClass;
+        this.generated = null;
+        this.factory = factory;
+        this.annotation = annotation;
+        this.name = annotation.name();
+        this.options = options;
+        final Map<String, OptionModel> optionsByName = new HashMap<>();
+        for (OptionModel option : options) optionsByName.put(option.annotation.name(), option);
+        this.optionsByName = Collections.unmodifiableMap(optionsByName);
+        this.shortKeys = shortKeyTable(this.options);
+        this.extendedShortKeys = extendedShortKeys(this.options);
+        this.longKeys = longKeyTrie(this.options);
+        this.sourcedOptions = sourcedOptions(this.options, dataClass.isInterface());
+        this.subCommands = subCommandTable(this.dataClass, subCommands);
+        this.parameters = parameters;
+        this.compactParameters = compactParameters;
+        this.usage = usage;
+        this.usageKeyShort = usageKey(this.annotation, true);
+        this.usageKeyLong = usageKey(this.annotation, false);
+    }
+
+    /**
+     * Build the SubCommand table of a Command, adding its {@link SubCommandPlugin}s
+     * @param dataClass the Command data Object class
+     * @param subCommands the SubCommands declared by fields, by registered name
+     * @return the table, a field taking precedence over a plugin with the same name
+     */
+    private static SubCommandTable subCommandTable(final Class<?> dataClass, final Map<String, SubCommandModel> subCommands) {
+        final Map<String, SubCommandModel> plugins = SubCommandIndex.plugins(dataClass);
+        if (plugins.isEmpty()) return SubCommandTable.of(subCommands);
+        final Map<String, SubCommandModel> rval = new HashMap<>(plugins);
+        rval.putAll(subCommands);
+        return SubCommandTable.of(rval);
+    }
+
+    /**
+     * Find the usage key of a Command
+     * @param command the Command annotation
+     * @param isShort true to find the short-format key, false to find the long-format key
+     * @return the usage key without prefix, or null if there is none
+     */
+    private static String usageKey(Command command, boolean isShort) {
+        String rval = null;
+        for (String key : command.usage())
+            if (CommandLineParser.isTokenShortKey(key) == isShort) rval = CommandLineParser.stripOptionPrefix(key);
+        return rval;
+    }
+
+    /**
+     * Build the direct-indexed short-format key table, the last option registering a key wins
+     * @param options the options
+     * @return the table, indexed by key character
+     */
+    private static OptionModel[] shortKeyTable(OptionModel[] options) {
+        int length = 0;
+        for (OptionModel option : options)
+            if (option.shortKey.length() == 1 && option.shortKey.charAt(0) <= MAX_TABLE_KEY) length = Math.max(length, option.shortKey.charAt(0) + 1);
+        final OptionModel[] rval = new OptionModel[length];
+        for (OptionModel option : options)
+            if (option.shortKey.length() == 1 && option.shortKey.charAt(0) <= MAX_TABLE_KEY) rval[option.shortKey.charAt(0)] = option;
+        return rval;
+    }
+
+    /**
+     * Collect the short-format keys which don't fit the direct-indexed table, the last option registering a key wins
+     * @param options the options
+     * @return the options by key
+     */
+    private static Map<Character, OptionModel> extendedShortKeys(OptionModel[] options) {
+        final Map<Character, OptionModel> rval = new HashMap<>();
+        for (OptionModel option : options)
+            if (option.shortKey.length() == 1 && option.shortKey.charAt(0) > MAX_TABLE_KEY) rval.put(option.shortKey.charAt(0), option);
+        return rval.isEmpty() ? Collections.emptyMap() : rval;
+    }
+
+    /**
+     * Find the options read from the environment or a properties file, or, for an interface Command whose getters have
+     * no initializer, from their default value
+     * @param options the options
+     * @param defaults true to include the options with a default value
+     * @return the indexes of the options with an env or property key, or a default value
+     */
+    private static int[] sourcedOptions(OptionModel[] options, boolean defaults) {
+        return Arrays.stream(options).filter(option -> !option.annotation.env().isEmpty() || !option.annotation.property().isEmpty() || defaults && !option.annotation.defaultValue().isEmpty()).mapToInt(option -> option.index).toArray();
+    }
+
+    /**
+     * Build the long-format key trie, the last option registering a key wins
+     * @param options the options
+     * @return the trie
+     */
+    private static LongKeyTrie longKeyTrie(OptionModel[] options) {
+        final Map<String, Integer> keys = new HashMap<>();
+        for (OptionModel option : options) if (!option.longKey.isEmpty()) keys.put(option.longKey, option.index);
+        return new LongKeyTrie(keys);
+    }
+
+    /**
+     * Validates a {@link Field} annotated with {@link Option} and builds its {@link OptionModel}
+     * @param index the position of the option within the model
+     * @param field the annotated field
+     * @param option the annotation
+     * @return the option model
+     */
+    private static OptionModel analyzeOption(String command, int index, Field field, Option option) {
+        if (!field.isAccessible()) {
+            try {
+                field.setAccessible(true);
+            } catch (Exception ignored) {
+                throw new CommandLineParserException(String.format("@Option on field '%s' is invalid: it must be public, or you must have permission to call setAccessible on the field", field));
+            }
+        }
+        validateOption(field, option);
+        return OptionModel.reflect(command, index, field, option, CommandLineParser.stripOptionPrefix(option.shortKey()), CommandLineParser.stripOptionPrefix(option.longKey()));
+    }
+
+    /**
+     * Validates the annotation of an option
+     * @param member the annotated field or getter
+     * @param option the annotation
+     */
+    private static void validateOption(Member member, Option option) {
+        final boolean invalidName = option.name().isEmpty();
+        final boolean invalidKey = CommandLineParser.stripOptionPrefix(option.shortKey()).isEmpty() && CommandLineParser.stripOptionPrefix(option.longKey()).isEmpty();
+        final boolean invalidConfig = option.hidden() && option.required();
+        final boolean invalidAnnotation = invalidName || invalidKey || invalidConfig;
+        if (invalidAnnotation)
+            throw new CommandLineParserException(String.format("@Option on %s is invalid: %s", OptionModel.describe(member), invalidName ? "a name is required" : invalidKey ? "shortKey, longKey, or both must be selected" : "hidden and required cannot be requested for the same option"));
+    }
+
+    /**
+     * Build the model of an interface Command from its getters
+     *
+     * The getters are sorted by name, which gives each option its ordinal, so a generated implementation and the model
+     * agree on the slots without sharing any state; the parameter lists take the slots after the options.
+     * @param commandInterface the Command interface
+     * @return the model
+     */
+    private static CommandModel reflectInterface(final Class<?> commandInterface) {
+        final Command annotation = commandInterface.getAnnotation(Command.class);
+        if (annotation == null)
+            throw new CommandLineParserException("A Command Data Object class *MUST* be annotated with @Command: " + commandInterface.getName());
+        final List<OptionModel> options = new ArrayList<>();
+        final Map<String, OptionModel> optionsByName = new HashMap<>();
+        final List<Method> parameterGetters = new ArrayList<>();
+        final Map<Method, Integer> slots = new HashMap<>();
+        for (Method getter : getters(commandInterface)) {
+            final Option option = getter.getAnnotation(Option.class);
+            final Parameters parameters = getter.getAnnotation(Parameters.class);
+            if (option == null && parameters == null)
+                throw new CommandLineParserException(String.format("The method '%s' of an interface Command must be annotated with @Option or @Parameters", getter));
+            if (getter.getParameterCount() != 0 || getter.getReturnType() == void.class)
+                throw new CommandLineParserException(String.format("The method '%s' of an interface Command must be a getter", getter));
+            if (option != null) {
+                validateOption(getter, option);
+                final OptionModel last = optionsByName.get(option.name());
+                if (last != null)
+                    throw new CommandLineParserException(String.format("The '%s' option has been defined on multiple methods ('%s', '%s').", option, last.fieldName, getter.getName()));
+                final OptionModel optionModel = OptionModel.values(annotation.name(), options.size(), getter, option, CommandLineParser.stripOptionPrefix(option.shortKey()), CommandLineParser.stripOptionPrefix(option.longKey()));
+                slots.put(getter, optionModel.index);
+                options.add(optionModel);
+                optionsByName.put(option.name(), optionModel);
+            } else {
+                parameterGetters.add(getter);
+            }
+        }
+        final int[] parameterSlots = new int[parameterGetters.size()];
+        for (int i = 0; i < parameterSlots.length; i++) {
+            parameterSlots[i] = options.size() + i;
+            slots.put(parameterGetters.get(i), parameterSlots[i]);
+        }
+        final FieldWriter parameters = (data, value) -> {
+            final CommandValues values = CommandValues.of(data);
+            for (int slot : parameterSlots) values.setObject(slot, value);
+        };
+        final boolean compactParameters = parameterGetters.stream().anyMatch(getter -> getter.getAnnotation(Parameters.class).compact());
+        return new CommandModel(commandInterface, annotation, options.toArray(new OptionModel[0]), Collections.emptyMap(), parameters, compactParameters, null, valuesFactory(commandInterface, options.size(), slots));
+    }
+
+    /**
+     * List the abstract methods of an interface Command, sorted by name
+     * @param commandInterface the Command interface
+     * @return the getters, the most specific declaration of each
+     */
+    private static Collection<Method> getters(final Class<?> commandInterface) {
+        final Map<String, Method> rval = new TreeMap<>();
+        for (Method method : commandInterface.getMethods()) {
+            if (!Modifier.isAbstract(method.getModifiers())) continue;
+            final Method last = rval.get(method.getName());
+            if (last == null || last.getDeclaringClass().isAssignableFrom(method.getDeclaringClass())) rval.put(method.getName(), method);
+        }
+        return rval.values();
+    }
+
+    /**
+     * Build the factory of the values of an interface Command: its generated implementation if there is one, a proxy
+     * otherwise
+     * @param commandInterface the Command interface
+     * @param options the number of options
+     * @param slots the slots by getter: the options, then the parameter lists
+     * @return the factory
+     * @throws CommandLineParserException if a proxy cannot call a default method of the interface
+     */
+    private static Supplier<Object> valuesFactory(final Class<?> commandInterface, final int options, final Map<Method, Integer> slots) {
+        final ClassLoader loader = commandInterface.getClassLoader();
+        Class<?> generated = null;
+        if (loader != null) {
+            try {
+                generated = Class.forName(commandInterface.getName() + CommandValues.SUFFIX, false, loader);
+            } catch (ClassNotFoundException | LinkageError ignored) {
+                //no generated implementation
+            }
+        }
+        if (generated != null && CommandValues.class.isAssignableFrom(generated) && commandInterface.isAssignableFrom(generated)) {
+            final Constructor<?> constructor;
+            try {
+                constructor = generated.getConstructor();
+            } catch (NoSuchMethodException e) {
+                throw new CommandLineParserException("Unable to instantiate the generated values " + generated.getName() + ": " + e);
+            }
+            return () -> {
+                try {
+                    return constructor.newInstance();
+                } catch (Exception e) {
+                    throw new CommandLineParserException("Unable to instantiate the generated values " + constructor.getName() + ": " + e);
+                }
+            };
+        }
+        final Map<Method, MethodHandle> defaults = ProxyValues.defaults(commandInterface);
+        return () -> new ProxyValues(commandInterface, options, slots, defaults).data();
+    }
+
+    /**
+     * Creates a new Command data Object
+     * @return the new data Object, or null if it could not be instantiated
+     */
+    Object newInstance() {
+        if (this.generated != null) return this.generated.newInstance();
+        return this.factory == null ? CommandLineParser.newInstance(this.dataClass) : this.factory.get();
+    }
+
+    /**
+     * Lookup an option by its short-format key
+     * @param key the short-format key
+     * @return the option, or null if it doesn't exist
+     */
+    OptionModel optionByShortKey(char key) {
+        if (key < this.shortKeys.length) return this.shortKeys[key];
+        return key > MAX_TABLE_KEY ? this.extendedShortKeys.get(key) : null;
+    }
+
+    /**
+     * Lookup an option by its long-format key, or an unambiguous prefix of it, without creating the key String
+     * @param arg the raw argument
+     * @param from the start of the key within arg
+     * @param to the end of the key within arg
+     * @return the option index, {@link LongKeyTrie#NONE}, or {@link LongKeyTrie#AMBIGUOUS}
+     */
+    int findLongKey(String arg, int from, int to) {
+        return this.longKeys.find(arg, from, to);
+    }
+
+    /**
+     * List the long-format keys starting with a prefix
+     * @param prefix the prefix
+     * @return the matching keys, sorted
+     */
+    List<String> longKeysWithPrefix(String prefix) {
+        return this.longKeys.keysWithPrefix(prefix);
+    }
+
+    /**
+     * generates the help String, once per model
+     *
+     * Concurrent first calls may each render it; they all produce the same String.
+     * @return the help String
+     */
+    String usage() {
+        String rval = this.usage;
+        if (rval == null) {
+            rval = this.generated == null ? CommandLineParser.renderUsage(this.annotation, Arrays.stream(this.options).map(option -> option.annotation).collect(Collectors.toList())) : this.generated.usage;
+            this.usage = rval;
+        }
+        return rval;
+    }
+
+    /**
+     * Get the completion index, built once per model
+     *
+     * Concurrent first calls may each build it; they all build the same index.
+     * @return the completion index
+     */
+    CompletionIndex completion() {
+        CompletionIndex rval = this.completion;
+        if (rval == null) {
+            rval = new CompletionIndex(this);
+            this.completion = rval;
+        }
+        return rval;
+    }
+
+    /**
+     * Build the model of a Command data Object class, bypassing the cache: from its generated parser, its snapshot, or its
+     * annotations, whichever is found first
+     * @param dataClass the Command data Object class
+     * @return the new model
+     */
+    static CommandModel build(final Class<?> dataClass) {
+        final Object event = ParseEvents.INSTANCE.beginModel();
+        final GeneratedCommandParser<?> generated = GeneratedCommandParser.find(dataClass);
+        final CommandModel snapshot = generated == null ? ModelSnapshot.load(dataClass) : null;
+        final CommandModel rval = generated != null ? new CommandModel(generated) : snapshot != null ? snapshot : reflect(dataClass);
+        if (event != null) ParseEvents.INSTANCE.endModel(event, rval, generated != null ? "generated" : snapshot != null ? "snapshot" : "reflection");
+        return rval;
+    }
+
+    /**
+     * Build the model of a Command data Object class, or interface, from its annotations, bypassing the cache
+     * @param dataClass the Command data Object class, or interface
+     * @return the new model
+     */
+    static CommandModel reflect(final Class<?> dataClass) {
+        return dataClass.isInterface() ? reflectInterface(dataClass) : new CommandModel(dataClass);
+    }
+
+    /**
+     * Get the cached model for a Command data Object class, building it on first use
+     * @param dataClass the Command data Object class
+     * @return the model
+     */
+    static CommandModel of(final Class<?> dataClass) {
+        return MODELS.get(dataClass);
+    }
+
+    /**
+     * A SubCommand entry of a {@link CommandModel}
+     *
+     * The entry only holds the name and class of the SubCommand: its model is built when a parse or a completion first
+     * selects it, so building a model never walks the SubCommand tree. The class of an indexed {@link SubCommandPlugin}
+     * is only known by name until then.
+     */
+    static final class SubCommandModel {
+        //the registered SubCommand name
+        final String name;
+        //the SubCommand data Object class name
+        private final String typeName;
+        //loads the SubCommand data Object class by name
+        private final ClassLoader loader;
+        //the SubCommand data Object class, or null until first needed
+        private volatile Class<?> type;
+        //assigns the SubCommand data Object to the parent field
+        final FieldWriter field;
+
+        /**
+         * Instantiate a {@link SubCommandModel}
+         * @param name the registered SubCommand name
+         * @param type the SubCommand data Object class
+         * @param field assigns the SubCommand data Object to the parent field
+         */
+        SubCommandModel(String name, Class<?> type, FieldWriter field) {
+            this.name = name;
+            this.typeName = type.getName();
+            this.loader = type.getClassLoader();
+            this.type = type;
+            this.field = field;
+        }
+
+        /**
+         * Instantiate a {@link SubCommandModel} whose class is loaded when first needed
+         * @param name the registered SubCommand name
+         * @param typeName the SubCommand data Object class name
+         * @param loader loads the SubCommand data Object class
+         * @param field assigns the SubCommand data Object to the parent field
+         */
+        SubCommandModel(String name, String typeName, ClassLoader loader, FieldWriter field) {
+            this.name = name;
+            this.typeName = typeName;
+            this.loader = loader;
+            this.field = field;
+        }
+
+        /**
+         * Get the SubCommand data Object class, loading it on first use
+         * @return the class
+         * @throws CommandLineParserException if the class cannot be loaded
+         */
+        Class<?> type() {
+            Class<?> rval = this.type;
+            if (rval == null) {
+                try {
+                    rval = Class.forName(this.typeName, false, this.loader);
+                } catch (ClassNotFoundException | LinkageError e) {
+                    throw new CommandLineParserException("Unable to load the SubCommand '" + this.name + "': " + e);
+                }
+                this.type = rval;
+            }
+            return rval;
+        }
+
+        /**
+         * Get the SubCommand model, building it on first use
+         * @return the model
+         */
+        CommandModel model() {
+            return of(this.type());
+        }
+    }
+
+    /**
+     * Assigns an Object to a field of a Command data Object
+     */
+    interface FieldWriter {
+        /**
+         * Assign the value
+         * @param data the Command data Object
+         * @param value the value
+         */
+        void set(Object data, Object value);
+    }
+}
@@ -0,0 +1,256 @@
+package com.lupusumbra.util.commandline;
+
+import com.lupusumbra.util.commandline.exception.CommandLineParserException;
+import com.lupusumbra.util.commandline.listener.ParseListener;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An immutable parser for one Command class.
+ *
+ * A CommandParser holds no parse state: every call to {@link #parse(String...)} returns its own {@link ParseResult}, so
+ * a single instance can be built once and shared by any number of threads without locking.
+ *
+ * @param <T> the Command data Object type
+ */
+public final class CommandParser<T> {
+    //prints usage messages to the current System.err
+    static final Consumer<String> DEFAULT_USAGE = message -> System.err.println(message);
+    //the shared, per-class Command model
+    private final CommandModel model;
+    //the usage message consumer
+    private final Consumer<String> usage;
+    //true to expand @argfiles and "-"
+    private final boolean argumentFiles;
+    //the parse listener, or null
+    private final ParseListener listener;
+    //the sources of the options not given on the command line
+    private final OptionSources sources;
+
+    /**
+     * Creates a new instance of {@link CommandParser}
+     * @param model the Command model
+     * @param usage the usage message consumer
+     * @param argumentFiles true to expand @argfiles and "-"
+     * @param listener the parse listener, or null
+     * @param sources the sources of the options not given on the command line
+     */
+    private CommandParser(final CommandModel model, final Consumer<String> usage, final boolean argumentFiles, final ParseListener listener, final OptionSources sources) {
+        this.model = model;
+        this.usage = usage;
+        this.argumentFiles = argumentFiles;
+        this.listener = listener;
+        this.sources = sources;
+    }
+
+    /**
+     * Get the parser of a Command class, reporting to the global listener if one is registered
+     * @param commandDataClass the type of the Command Data Args object
+     * @param <T> the Command data Object type
+     * @return the parser
+     */
+    public static <T> CommandParser<T> of(final Class<T> commandDataClass) {
+        return new CommandParser<>(CommandModel.of(commandDataClass), DEFAULT_USAGE, false, CommandLineParser.listener(), OptionSources.SYSTEM);
+    }
+
+    /**
+     * Get a parser which hands usage messages to another consumer
+     * @param usage usage message consumer, which must be thread-safe if the parser is shared
+     * @return the new parser
+     */
+    public CommandParser<T> usage(final Consumer<String> usage) {
+        return new CommandParser<>(this.model, usage, this.argumentFiles, this.listener, this.sources);
+    }
+
+    /**
+     * Get a parser which expands argument files
+     *
+     * An "@path" arg is replaced by the args read from the file at path, and a "-" arg by the args read from stdin;
+     * "@@" escapes a literal leading '@'. Args are separated by whitespace, and may be quoted with single or double
+     * quotes. Files are memory-mapped and tokenized as the parse advances, so their args are never held in full.
+     * @return the new parser
+     */
+    public CommandParser<T> argumentFiles() {
+        return new CommandParser<>(this.model, this.usage, true, this.listener, this.sources);
+    }
+
+    /**
+     * Get a parser which reports its parses to a listener
+     * @param listener the listener, which must be thread-safe if the parser is shared; null to report to none
+     * @return the new parser
+     */
+    public CommandParser<T> listener(final ParseListener listener) {
+        return new CommandParser<>(this.model, this.usage, this.argumentFiles, listener, this.sources);
+    }
+
+    /**
+     * Get a parser which reads the options not given on the command line from other environment variables than those
+     * of the running process; the returned parser shares the properties file index of this one
+     * @param environment the environment variables, copied
+     * @return the new parser
+     */
+    public CommandParser<T> environment(final Map<String, String> environment) {
+        return new CommandParser<>(this.model, this.usage, this.argumentFiles, this.listener, this.sources.environment(environment));
+    }
+
+    /**
+     * Get a parser which reads the options given neither on the command line nor by their environment variable from a
+     * properties file
+     *
+     * The file is read and indexed once, on the first parse which needs one of its properties; parsers sharing the
+     * returned one, including those derived from it by {@link #environment}, share its index, so later changes to the
+     * file aren't seen.
+     * @param file the properties file, in {@link java.util.Properties} format and UTF-8; null for none
+     * @return the new parser
+     */
+    public CommandParser<T> properties(final Path file) {
+        return new CommandParser<>(this.model, this.usage, this.argumentFiles, this.listener, this.sources.properties(file));
+    }
+
+    /**
+     * Get the Command name
+     * @return the name
+     */
+    public String name() {
+        return this.model.name;
+    }
+
+    /**
+     * generates the help String
+     * @return the help String
+     */
+    public String toUsage() {
+        return this.model.usage();
+    }
+
+    /**
+     * writes the help String, which is rendered once per Command class
+     * @param out the target, such as a {@link java.io.Writer}
+     * @throws IOException if out cannot be written
+     */
+    public void writeUsage(final Appendable out) throws IOException {
+        out.append(this.model.usage());
+    }
+
+    /**
+     * complete the argument under the cursor of a partial command line, without binding any value
+     * @param args the partial commandline arguments
+     * @param cursor the index of the argument under the cursor; args.length to complete a new argument
+     * @return the completion
+     */
+    public Completion complete(final String[] args, final int cursor) {
+        return CompletionIndex.complete(this.model, args, cursor);
+    }
+
+    /**
+     * parse commandline arguments into a new Command Data Args object
+     * @param args the commandline arguments
+     * @return the result
+     */
+    public ParseResult<T> parse(final String... args) {
+        return new ParseResult<T>(this.model, this.model.newInstance()).parse(this.arguments(args), this.usage, this.listener, this.sources);
+    }
+
+    /**
+     * parse commandline arguments into a Command Data Args object
+     * @param commandDataObject the Command Data Args object, which must not be shared with a concurrent parse
+     * @param args the commandline arguments
+     * @return the result
+     * @throws CommandLineParserException if the Command is an interface
+     */
+    public ParseResult<T> parse(final T commandDataObject, final String... args) {
+        if (this.model.dataClass.isInterface())
+            throw new CommandLineParserException("The values of an interface Command are created by the parse: " + this.model.dataClass.getName());
+        if (commandDataObject != null && commandDataObject.getClass() != this.model.dataClass)
+            throw new CommandLineParserException("The Command Data Object must be a " + this.model.dataClass.getName() + ": " + commandDataObject.getClass().getName());
+        return new ParseResult<T>(this.model, commandDataObject).parse(this.arguments(args), this.usage, this.listener, this.sources);
+    }
+
+    /**
+     * Get the source of the commandline arguments
+     * @param args the commandline arguments
+     * @return the source
+     */
+    private Arguments arguments(final String[] args) {
+        return this.argumentFiles ? Arguments.expanding(args, System.in) : Arguments.of(args);
+    }
+
+    /**
+     * parse a batch of argument vectors in parallel
+     * @param argv the argument vectors
+     * @param pool the pool running the parses
+     * @return one result per argument vector, in input order
+     */
+    public List<BatchResult<T>> parseAll(final List<String[]> argv, final ForkJoinPool pool) {
+        return this.parseAll(argv.parallelStream(), pool);
+    }
+
+    /**
+     * parse a batch of argument vectors in parallel
+     * @param argv the argument vectors
+     * @param pool the pool running the parses
+     * @return one result per argument vector, in input order
+     */
+    public List<BatchResult<T>> parseAll(final Spliterator<String[]> argv, final ForkJoinPool pool) {
+        return this.parseAll(StreamSupport.stream(argv, true), pool);
+    }
+
+    /**
+     * parse a batch of argument vectors in parallel
+     *
+     * The parses share this parser, and so the Command model; a parse which throws doesn't stop the others, its
+     * exception is returned in its {@link BatchResult}.
+     * @param argv the argument vectors
+     * @param pool the pool running the parses
+     * @return one result per argument vector, in input order
+     */
+    public List<BatchResult<T>> parseAll(final Stream<String[]> argv, final ForkJoinPool pool) {
+        return pool.submit(() -> argv.parallel().map(this::tryParse).collect(Collectors.toList())).join();
+    }
+
+    /**
+     * parse a stream of argument vectors in parallel, without keeping the input order
+     *
+     * Unlike {@link #parseAll(Stream, ForkJoinPool)}, the results aren't buffered to be put back in input order: each is
+     * collected as soon as its parse ends.
+     * @param argv the argument vectors
+     * @param pool the pool running the parses
+     * @return one result per argument vector, in no particular order
+     */
+    public List<BatchResult<T>> parseUnordered(final Stream<String[]> argv, final ForkJoinPool pool) {
+        return pool.submit(() -> argv.parallel().unordered().map(this::tryParse).collect(Collectors.toList())).join();
+    }
+
+    /**
+     * parse an argument vector, capturing the exception which stops the parse
+     * @param args the commandline arguments
+     * @return the result
+     */
+    private BatchResult<T> tryParse(final String[] args) {
+        try {
+            return new BatchResult<>(args, this.parse(args), null);
+        } catch (RuntimeException e) {
+            return new BatchResult<>(args, null, e);
+        }
+    }
+
+    /**
+     * Generates a String representation of the {@link CommandParser}
+     * @return the String representation
+     */
+    @Override
+    public String toString() {
+        return "CommandParser{" +
+                "name='" + this.model.name + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,275 @@
+package com.lupusumbra.util.commandline;
+
+import com.lupusumbra.util.commandline.exception.CommandLineParserException;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+
+/**
+ * The flat storage behind a Command declared as an interface, whose getters carry the {@link com.lupusumbra.util.commandline.annotation.Option}
+ * and {@link com.lupusumbra.util.commandline.annotation.Parameters} annotations.
+ *
+ * Options are slotted by ordinal, the getters sorted by name: primitive values are held as their bits in one long array,
+ * other values in one Object array, followed by the parameter lists; a bitmap records the options given on the command
+ * line. The parser writes the slots without boxing primitives or reflecting over fields, and the interface exposes
+ * getters only, so values can't change once parsed; {@link #copy} duplicates them with three array copies.
+ *
+ * The annotation processor generates a subclass implementing the interface, named after its binary name followed by
+ * {@link #SUFFIX}; interfaces without one are implemented by a {@link Proxy} over the same storage.
+ */
+public abstract class CommandValues implements Cloneable {
+    //the suffix of the generated implementation class names
+    public static final String SUFFIX = "_CommandValues";
+    //the Command interface
+    final Class<?> commandInterface;
+    //primitive option values, as bits, by option ordinal
+    private long[] primitives;
+    //other option values by option ordinal, then the parameter lists
+    private Object[] objects;
+    //the options given on the command line, one bit per option ordinal
+    private long[] provided;
+
+    /**
+     * Instantiate a {@link CommandValues}
+     * @param commandInterface the Command interface
+     * @param options the number of options
+     * @param slots the number of Object slots: the options, then the parameter lists
+     */
+    protected CommandValues(final Class<?> commandInterface, final int options, final int slots) {
+        this.commandInterface = commandInterface;
+        this.primitives = new long[options];
+        this.objects = new Object[slots];
+        this.provided = new long[(options + 63) >>> 6];
+    }
+
+    /**
+     * Copy the values of an interface Command
+     * @param data the values, as returned by a parse
+     * @param <T> the Command interface type
+     * @return the copy
+     * @throws CommandLineParserException if data wasn't created by a parse of an interface Command
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T copy(final T data) {
+        return (T) of(data).duplicate();
+    }
+
+    /**
+     * Check if an option of an interface Command was given on the command line
+     * @param data the values, as returned by a parse
+     * @param option the registered name of the option
+     * @return true if the option was provided, false if it wasn't or doesn't exist
+     * @throws CommandLineParserException if data wasn't created by a parse of an interface Command
+     */
+    public static boolean provided(final Object data, final String option) {
+        final CommandValues values = of(data);
+        final OptionModel model = CommandModel.of(values.commandInterface).optionsByName.get(option);
+        return model != null && (values.provided[model.index >>> 6] & 1L << model.index) != 0;
+    }
+
+    /**
+     * Get the storage of the values of an interface Command
+     * @param data a generated implementation, or a proxy
+     * @return the storage
+     * @throws CommandLineParserException if data wasn't created by a parse of an interface Command
+     */
+    static CommandValues of(final Object data) {
+        if (data instanceof CommandValues) return (CommandValues) data;
+        if (data != null && Proxy.isProxyClass(data.getClass()) && Proxy.getInvocationHandler(data) instanceof CommandValues)
+            return (CommandValues) Proxy.getInvocationHandler(data);
+        throw new CommandLineParserException("Not the values of an interface Command: " + (data == null ? null : data.getClass().getName()));
+    }
+
+    /**
+     * Get the Command interface implementation backed by this storage
+     * @return this, unless the storage is held by a proxy
+     */
+    Object data() {
+        return this;
+    }
+
+    /**
+     * Copy the storage
+     * @return the Command interface implementation backed by the copy
+     */
+    Object duplicate() {
+        final CommandValues rval;
+        try {
+            rval = (CommandValues) this.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+        rval.primitives = this.primitives.clone();
+        rval.objects = this.objects.clone();
+        rval.provided = this.provided.clone();
+        rval.copied();
+        return rval.data();
+    }
+
+    /**
+     * Called on a copy, once its arrays are copied
+     */
+    void copied() {
+    }
+
+    /**
+     * Mark an option as given on the command line
+     * @param option the option ordinal
+     */
+    final void provide(final int option) {
+        this.provided[option >>> 6] |= 1L << option;
+    }
+
+    /**
+     * Write the bits of a primitive value
+     * @param option the option ordinal
+     * @param bits the bits, as encoded by {@link #bits}
+     */
+    final void setBits(final int option, final long bits) {
+        this.primitives[option] = bits;
+    }
+
+    /**
+     * Write an Object value, or a parameter list
+     * @param slot the option ordinal, or the parameter list slot
+     * @param value the value
+     */
+    final void setObject(final int slot, final Object value) {
+        this.objects[slot] = value;
+    }
+
+    /**
+     * Encode a boxed primitive value as the bits held in its slot
+     * @param type the primitive type
+     * @param value the boxed value
+     * @return the bits
+     */
+    static long bits(final Class<?> type, final Object value) {
+        if (type == boolean.class) return (Boolean) value ? 1 : 0;
+        if (type == double.class) return Double.doubleToRawLongBits((Double) value);
+        if (type == float.class) return Float.floatToRawIntBits((Float) value);
+        if (type == char.class) return (Character) value;
+        return ((Number) value).longValue();
+    }
+
+    /**
+     * Read a value of any type, boxing primitives
+     * @param slot the option ordinal, or the parameter list slot
+     * @param type the value type
+     * @return the value
+     */
+    final Object value(final int slot, final Class<?> type) {
+        if (!type.isPrimitive()) return this.objects[slot];
+        if (type == boolean.class) return this.booleanValue(slot);
+        if (type == int.class) return this.intValue(slot);
+        if (type == long.class) return this.longValue(slot);
+        if (type == double.class) return this.doubleValue(slot);
+        if (type == float.class) return this.floatValue(slot);
+        if (type == short.class) return this.shortValue(slot);
+        if (type == byte.class) return this.byteValue(slot);
+        return this.charValue(slot);
+    }
+
+    /**
+     * Read a boolean option
+     * @param option the option ordinal
+     * @return the value
+     */
+    protected final boolean booleanValue(final int option) {
+        return this.primitives[option] != 0;
+    }
+
+    /**
+     * Read a byte option
+     * @param option the option ordinal
+     * @return the value
+     */
+    protected final byte byteValue(final int option) {
+        return (byte) this.primitives[option];
+    }
+
+    /**
+     * Read a short option
+     * @param option the option ordinal
+     * @return the value
+     */
+    protected final short shortValue(final int option) {
+        return (short) this.primitives[option];
+    }
+
+    /**
+     * Read a char option
+     * @param option the option ordinal
+     * @return the value
+     */
+    protected final char charValue(final int option) {
+        return (char) this.primitives[option];
+    }
+
+    /**
+     * Read an int option
+     * @param option the option ordinal
+     * @return the value
+     */
+    protected final int intValue(final int option) {
+        return (int) this.primitives[option];
+    }
+
+    /**
+     * Read a long option
+     * @param option the option ordinal
+     * @return the value
+     */
+    protected final long longValue(final int option) {
+        return this.primitives[option];
+    }
+
+    /**
+     * Read a float option
+     * @param option the option ordinal
+     * @return the value
+     */
+    protected final float floatValue(final int option) {
+        return Float.intBitsToFloat((int) this.primitives[option]);
+    }
+
+    /**
+     * Read a double option
+     * @param option the option ordinal
+     * @return the value
+     */
+    protected final double doubleValue(final int option) {
+        return Double.longBitsToDouble(this.primitives[option]);
+    }
+
+    /**
+     * Read an Object option, or a parameter list
+     * @param slot the option ordinal, or the parameter list slot
+     * @param <V> the value type
+     * @return the value
+     */
+    @SuppressWarnings("unchecked")
+    protected final <V> V objectValue(final int slot) {
+        return (V) this.objects[slot];
+    }
+
+    /**
+     * Generates a String representation of the {@link CommandValues}
+     * @return the String representation
+     */
+    @Override
+    public String toString() {
+        final CommandModel model = CommandModel.of(this.commandInterface);
+        final StringBuilder rval = new StringBuilder(this.commandInterface.getSimpleName()).append('{');
+        for (OptionModel option : model.options) {
+            if (option.index > 0) rval.append(", ");
+            final Object value = this.value(option.index, option.fieldType);
+            //renders arrays by content, wrapped in an array to reach deepToString
+            final String array = value != null && value.getClass().isArray() ? Arrays.deepToString(new Object[]{value}) : null;
+            rval.append(option.fieldName).append('=').append(array == null ? value : array.substring(1, array.length() - 1));
+        }
+        if (this.objects.length > model.options.length)
+            rval.append(model.options.length > 0 ? ", " : "").append("parameters=").append(Arrays.asList(this.objects).subList(model.options.length, this.objects.length));
+        return rval.append('}').toString();
+    }
+}
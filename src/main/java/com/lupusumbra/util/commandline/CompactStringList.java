@@ -0,0 +1,96 @@
+package com.lupusumbra.util.commandline;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * An append-only List of Strings which keeps every element in one contiguous char buffer, plus an array of end
+ * offsets.
+ *
+ * Elements cost their characters and one int, instead of a String and its array each; a String is only created when
+ * an element is accessed. Used for {@code @Parameters(compact = true)} fields.
+ */
+public final class CompactStringList extends AbstractList<String> implements RandomAccess {
+    //the initial capacities
+    private static final int INITIAL_CAPACITY = 16;
+    //the characters of every element, back to back
+    private char[] chars = new char[INITIAL_CAPACITY * 8];
+    //the end offset of each element within chars
+    private int[] ends = new int[INITIAL_CAPACITY];
+    //the number of elements
+    private int size;
+
+    @Override
+    public String get(final int index) {
+        this.checkIndex(index);
+        final int start = index == 0 ? 0 : this.ends[index - 1];
+        return new String(this.chars, start, this.ends[index] - start);
+    }
+
+    /**
+     * Get the length of an element, without creating it
+     * @param index the element index
+     * @return the element length
+     */
+    public int length(final int index) {
+        this.checkIndex(index);
+        return this.ends[index] - (index == 0 ? 0 : this.ends[index - 1]);
+    }
+
+    /**
+     * Append an element to a {@link StringBuilder}, without creating it
+     * @param index the element index
+     * @param rval the target {@link StringBuilder}
+     * @return rval
+     */
+    public StringBuilder appendTo(final int index, final StringBuilder rval) {
+        this.checkIndex(index);
+        final int start = index == 0 ? 0 : this.ends[index - 1];
+        return rval.append(this.chars, start, this.ends[index] - start);
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Appends an element; elements can only be added at the end of the list
+     * @param index the index, which must be the list size
+     * @param element the element
+     */
+    @Override
+    public void add(final int index, final String element) {
+        if (index != this.size) throw new UnsupportedOperationException("Elements can only be appended");
+        final int start = this.size == 0 ? 0 : this.ends[this.size - 1];
+        final int end = start + element.length();
+        if (end > this.chars.length) this.chars = Arrays.copyOf(this.chars, Math.max(end, this.chars.length * 2));
+        if (this.size == this.ends.length) this.ends = Arrays.copyOf(this.ends, Math.max(INITIAL_CAPACITY, this.size * 2));
+        element.getChars(0, element.length(), this.chars, start);
+        this.ends[this.size++] = end;
+        this.modCount++;
+    }
+
+    @Override
+    public void clear() {
+        this.size = 0;
+        this.modCount++;
+    }
+
+    /**
+     * Release the unused capacity
+     */
+    public void trimToSize() {
+        this.chars = Arrays.copyOf(this.chars, this.size == 0 ? 0 : this.ends[this.size - 1]);
+        this.ends = Arrays.copyOf(this.ends, this.size);
+    }
+
+    /**
+     * Check an element index
+     * @param index the element index
+     */
+    private void checkIndex(final int index) {
+        if (index < 0 || index >= this.size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+    }
+}
@@ -0,0 +1,71 @@
+package com.lupusumbra.util.commandline;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The candidates for the argument under the cursor of a partial command line, and a hint of what it should hold.
+ *
+ * Candidates are whole arguments: SubCommand names and option keys when a key is expected, enum constants (prefixed
+ * with "--key=" when the value is inline) when the value of an enum option is expected.
+ */
+public final class Completion {
+    /**
+     * What the argument under the cursor should hold
+     */
+    public enum Hint {
+        //a SubCommand name, an option key, or a parameter
+        KEY,
+        //one of the candidates
+        CHOICE,
+        //a file system path, to be completed by the shell
+        PATH,
+        //a number
+        NUMBER,
+        //any other value
+        TEXT
+    }
+
+    //the candidates, sorted
+    private final List<String> candidates;
+    //the hint
+    private final Hint hint;
+
+    /**
+     * Instantiate a {@link Completion}
+     * @param candidates the candidates, sorted
+     * @param hint the hint
+     */
+    Completion(List<String> candidates, Hint hint) {
+        this.candidates = Collections.unmodifiableList(candidates);
+        this.hint = hint;
+    }
+
+    /**
+     * Get the candidates
+     * @return the candidates, sorted; empty if there are none, or if the hint is a free value
+     */
+    public List<String> candidates() {
+        return this.candidates;
+    }
+
+    /**
+     * Get the hint
+     * @return what the argument under the cursor should hold
+     */
+    public Hint hint() {
+        return this.hint;
+    }
+
+    /**
+     * Generates a String representation of the {@link Completion}
+     * @return the String representation
+     */
+    @Override
+    public String toString() {
+        return "Completion{" +
+                "hint=" + this.hint +
+                ", candidates=" + this.candidates +
+                '}';
+    }
+}
@@ -0,0 +1,166 @@
+package com.lupusumbra.util.commandline;
+
+import com.lupusumbra.util.commandline.Completion.Hint;
+import com.lupusumbra.util.commandline.converter.TypeConverter;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The completion candidates of one Command, precomputed into sorted arrays so a prefix lookup is a binary search
+ * followed by a scan of the matches.
+ *
+ * Completing a partial command line walks the args before the cursor the way a parse would, selecting SubCommands and
+ * skipping option values, but never converts or binds a value.
+ */
+final class CompletionIndex {
+    //SubCommand names and the keys of the visible options and of usage, with their prefix, sorted
+    private final String[] keys;
+    //the value hint of each option, indexed like the model options
+    private final Hint[] hints;
+    //the enum constants of each enum option, sorted ignoring case, indexed like the model options, null for other options
+    private final String[][] choices;
+
+    /**
+     * Build the index of a Command
+     * @param model the Command model
+     */
+    CompletionIndex(final CommandModel model) {
+        final List<String> keys = new ArrayList<>(model.subCommands.keySet());
+        this.hints = new Hint[model.options.length];
+        this.choices = new String[model.options.length][];
+        for (OptionModel option : model.options) {
+            if (!option.annotation.hidden()) {
+                if (!option.shortKey.isEmpty()) keys.add("-" + option.shortKey);
+                if (!option.longKey.isEmpty()) keys.add("--" + option.longKey);
+            }
+            this.hints[option.index] = hint(option);
+            if (this.hints[option.index] == Hint.CHOICE) this.choices[option.index] = choices(option.valueType());
+        }
+        if (!model.usageKeyShort.isEmpty()) keys.add("-" + model.usageKeyShort);
+        if (!model.usageKeyLong.isEmpty()) keys.add("--" + model.usageKeyLong);
+        this.keys = keys.stream().distinct().sorted().toArray(String[]::new);
+    }
+
+    /**
+     * Complete the argument under the cursor of a partial command line
+     * @param root the root Command model
+     * @param args the partial command line
+     * @param cursor the index of the argument under the cursor; args.length to complete a new argument
+     * @return the completion
+     */
+    static Completion complete(final CommandModel root, final String[] args, final int cursor) {
+        if (cursor < 0 || cursor > args.length) throw new IndexOutOfBoundsException("Cursor: " + cursor + ", Args: " + args.length);
+        final List<CommandModel> path = new ArrayList<>();
+        path.add(root);
+        OptionModel pending = null;
+        for (int i = 0; i < cursor; i++) {
+            final String arg = args[i];
+            final OptionModel awaiting = pending;
+            pending = null;
+            if (awaiting != null && !arg.startsWith("-")) continue;
+            if (select(path, arg)) continue;
+            if (arg.startsWith("-") && arg.indexOf('=') < 0) {
+                final OptionModel option = option(path.get(path.size() - 1), arg);
+                if (option != null && !option.isBoolean) pending = option;
+            }
+        }
+        final CommandModel model = path.get(path.size() - 1);
+        final String word = cursor < args.length ? args[cursor] : "";
+        if (pending != null && !word.startsWith("-")) return values(model, pending, "", word);
+        final int separator = word.startsWith("-") ? word.indexOf('=') : -1;
+        if (separator < 0) return new Completion(withPrefix(model.completion().keys, false, "", word), Hint.KEY);
+        final OptionModel option = option(model, word.substring(0, separator));
+        if (option == null || option.isBoolean) return new Completion(Collections.emptyList(), Hint.TEXT);
+        return values(model, option, word.substring(0, separator + 1), word.substring(separator + 1));
+    }
+
+    /**
+     * Select a SubCommand if an arg names one, looking from the outermost selected Command inwards like a parse does
+     * @param path the selected Commands, outermost first
+     * @param arg the arg
+     * @return true if the arg selected a SubCommand
+     */
+    private static boolean select(final List<CommandModel> path, final String arg) {
+        for (int level = 0; level < path.size(); level++) {
+            final CommandModel.SubCommandModel subCommand = path.get(level).subCommands.get(arg);
+            if (subCommand == null) continue;
+            path.subList(level + 1, path.size()).clear();
+            path.add(subCommand.model());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Lookup the option of a key arg, without value; for compound short-format keys, the last key
+     * @param model the Command model
+     * @param arg the key arg
+     * @return the option, or null if the key is unknown or ambiguous
+     */
+    private static OptionModel option(final CommandModel model, final String arg) {
+        if (arg.startsWith("--")) {
+            final int index = model.findLongKey(arg, 2, arg.length());
+            return index >= 0 ? model.options[index] : null;
+        }
+        return arg.length() > 1 ? model.optionByShortKey(arg.charAt(arg.length() - 1)) : null;
+    }
+
+    /**
+     * Complete the value of an option
+     * @param model the Command model
+     * @param option the option
+     * @param prefix the prefix of every candidate, such as "--key="
+     * @param word the partial value
+     * @return the completion
+     */
+    private static Completion values(final CommandModel model, final OptionModel option, final String prefix, final String word) {
+        final CompletionIndex index = model.completion();
+        final String[] choices = index.choices[option.index];
+        return new Completion(choices == null ? Collections.emptyList() : withPrefix(choices, true, prefix, word), index.hints[option.index]);
+    }
+
+    /**
+     * List the sorted Strings starting with a prefix
+     * @param sorted the sorted Strings
+     * @param ignoreCase true if sorted is sorted, and matched, ignoring case
+     * @param prefix the prefix to prepend to every match
+     * @param word the prefix to look for
+     * @return the matches, with prefix prepended
+     */
+    private static List<String> withPrefix(final String[] sorted, final boolean ignoreCase, final String prefix, final String word) {
+        final int from = Arrays.binarySearch(sorted, word, ignoreCase ? String.CASE_INSENSITIVE_ORDER : Comparator.naturalOrder());
+        final List<String> rval = new ArrayList<>();
+        for (int i = from < 0 ? -from - 1 : from; i < sorted.length && sorted[i].regionMatches(ignoreCase, 0, word, 0, word.length()); i++)
+            rval.add(prefix + sorted[i]);
+        return rval;
+    }
+
+    /**
+     * Get the value hint of an option
+     * @param option the option
+     * @return the hint
+     */
+    private static Hint hint(final OptionModel option) {
+        if (option.annotation.converter() != TypeConverter.class) return Hint.TEXT;
+        final Class<?> type = OptionModel.boxed(option.valueType());
+        if (type.isEnum()) return Hint.CHOICE;
+        if (type == File.class || type == Path.class) return Hint.PATH;
+        if (Number.class.isAssignableFrom(type)) return Hint.NUMBER;
+        return Hint.TEXT;
+    }
+
+    /**
+     * Get the constant names of an enum, sorted ignoring case
+     * @param type the enum type
+     * @return the names
+     */
+    private static String[] choices(final Class<?> type) {
+        return Arrays.stream(type.getEnumConstants()).map(constant -> ((Enum<?>) constant).name()).sorted(String.CASE_INSENSITIVE_ORDER).toArray(String[]::new);
+    }
+}
@@ -0,0 +1,414 @@
+package com.lupusumbra.util.commandline;
+
+import com.lupusumbra.util.commandline.annotation.Command;
+import com.lupusumbra.util.commandline.annotation.Option;
+import com.lupusumbra.util.commandline.converter.TypeConverter;
+import com.lupusumbra.util.commandline.converter.TypeConverters;
+import com.lupusumbra.util.commandline.exception.CommandLineParserException;
+
+import java.lang.annotation.Annotation;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The base class of the reflection-free parsers generated at compile time by the command-line-parser annotation processor.
+ *
+ * A generated parser is named after the binary name of its Command class, followed by {@link #SUFFIX}, and lives in the
+ * same package. When one is present, {@link CommandLineParser} builds the Command model from it instead of scanning the
+ * annotations, and binds values through direct field writes.
+ *
+ * @param <T> the Command data Object type
+ */
+public abstract class GeneratedCommandParser<T> {
+    //the generated class name suffix
+    public static final String SUFFIX = "_CommandParser";
+    //the Command data Object class
+    final Class<T> commandClass;
+    //the Command annotation values
+    final Command command;
+    //the pre-rendered usage text
+    final String usage;
+    //the option field names, in option order
+    final String[] optionFields;
+    //the option field types, in option order
+    final Class<?>[] optionTypes;
+    //the option annotation values, in option order
+    final Option[] options;
+    //the SubCommand names, in SubCommand order
+    final String[] subCommands;
+    //the SubCommand data Object classes, in SubCommand order
+    final Class<?>[] subCommandTypes;
+
+    /**
+     * Instantiate a {@link GeneratedCommandParser}
+     * @param commandClass the Command data Object class
+     * @param command the Command annotation values
+     * @param usage the pre-rendered usage text
+     * @param optionFields the option field names
+     * @param optionTypes the option field types
+     * @param options the option annotation values
+     * @param subCommands the SubCommand names
+     * @param subCommandTypes the SubCommand data Object classes
+     */
+    protected GeneratedCommandParser(Class<T> commandClass, Command command, String usage, String[] optionFields, Class<?>[] optionTypes, Option[] options, String[] subCommands, Class<?>[] subCommandTypes) {
+        this.commandClass = commandClass;
+        this.command = command;
+        this.usage = usage;
+        this.optionFields = optionFields;
+        this.optionTypes = optionTypes;
+        this.options = options;
+        this.subCommands = subCommands;
+        this.subCommandTypes = subCommandTypes;
+    }
+
+    /**
+     * Creates a new Command data Object
+     * @return the new data Object
+     */
+    protected abstract T newInstance();
+
+    /**
+     * Converts and assigns a value to an option field
+     * @param option the option index
+     * @param data the Command data Object
+     * @param value the raw value
+     * @throws Exception if the value cannot be converted
+     */
+    protected abstract void set(int option, T data, String value) throws Exception;
+
+    /**
+     * Converts a value to the type of an option field, without assigning it
+     * @param option the option index
+     * @param value the raw value
+     * @return the converted value, boxed if the field is primitive
+     * @throws Exception if the value cannot be converted
+     */
+    protected Object convertValue(int option, String value) throws Exception {
+        throw new UnsupportedOperationException("Unknown option: " + option);
+    }
+
+    /**
+     * Assigns a converted value to an option field: the accumulated values of a repeatable option, or a default value
+     * converted once by {@link #convertValue}
+     * @param option the option index
+     * @param data the Command data Object
+     * @param value the value, as the field type
+     */
+    protected void setValues(int option, T data, Object value) {
+    }
+
+    /**
+     * Get the element type of a repeatable List, Set or Collection option
+     * @param option the option index
+     * @return the erased type argument of the field, or null if the option isn't a collection
+     */
+    protected Class<?> elementType(int option) {
+        return null;
+    }
+
+    /**
+     * Get the value type of a {@link Lazy} option
+     * @param option the option index
+     * @return the erased type argument of the field, or null if the option isn't Lazy
+     */
+    protected Class<?> lazyType(int option) {
+        return null;
+    }
+
+    /**
+     * Assigns a SubCommand data Object to its parent field
+     * @param subCommand the SubCommand index
+     * @param data the Command data Object
+     * @param value the SubCommand data Object
+     */
+    protected void setSubCommand(int subCommand, T data, Object value) {
+    }
+
+    /**
+     * Assigns the parameter list to the fields annotated with @Parameters
+     * @param data the Command data Object
+     * @param parameters the parameter list
+     */
+    protected void setParameters(T data, List<String> parameters) {
+    }
+
+    /**
+     * Check if the parameters are held in a {@link CompactStringList}
+     * @return true if a @Parameters field requests compact storage
+     */
+    protected boolean compactParameters() {
+        return false;
+    }
+
+    /**
+     * Converts a char option value, accepting either a single character or a "0x" prefixed code point
+     * @param value the raw value
+     * @return the char
+     */
+    protected static char parseChar(String value) {
+        return TypeConverters.parseChar(value);
+    }
+
+    /**
+     * Converts an option value through a converter resolved when the generated parser was loaded
+     * @param converter the converter, or null if the field type is not supported
+     * @param value the raw value
+     * @param <V> the converted type
+     * @return the converted value
+     * @throws Exception if the value cannot be converted, or if there is no converter
+     */
+    protected static <V> V convert(TypeConverter<V> converter, String value) throws Exception {
+        if (converter == null) throw new CommandLineParserException("Unsupported object type");
+        return converter.convert(value);
+    }
+
+    /**
+     * Wraps the raw value of a {@link Lazy} option, converted through a converter resolved when the generated parser was
+     * loaded on first access
+     * @param option the option index
+     * @param type the value type
+     * @param converter the converter, or null if the value type is not supported
+     * @param value the raw value
+     * @param <V> the value type
+     * @return the lazy value
+     */
+    protected final <V> Lazy<V> lazy(int option, Class<V> type, TypeConverter<V> converter, String value) {
+        return new Lazy<>(this.command.name(), this.options[option].name(), this.optionFields[option], type, raw -> convert(converter, raw), value);
+    }
+
+    /**
+     * Creates the {@link Command} values of a generated parser
+     * @param name the Command name
+     * @param descriptions the descriptions
+     * @param detailedDescription the detailed description
+     * @param usage the usage keys
+     * @return the Command values
+     */
+    public static Command command(String name, String[] descriptions, String[] detailedDescription, String[] usage) {
+        return new CommandLiteral(name, descriptions, detailedDescription, usage);
+    }
+
+    /**
+     * Creates the {@link Option} values of a generated parser
+     * @param name the option name
+     * @param shortKey the short-format key
+     * @param longKey the long-format key
+     * @param description the description
+     * @param required the required flag
+     * @param hidden the hidden flag
+     * @param defaultValue the default value
+     * @return the Option values
+     */
+    public static Option option(String name, String shortKey, String longKey, String description, boolean required, boolean hidden, String defaultValue) {
+        return new OptionLiteral(name, shortKey, longKey, description, required, hidden, defaultValue, TypeConverter.class, "", "");
+    }
+
+    /**
+     * Creates the {@link Option} values of a generated parser, for an option with its own converter
+     * @param name the option name
+     * @param shortKey the short-format key
+     * @param longKey the long-format key
+     * @param description the description
+     * @param required the required flag
+     * @param hidden the hidden flag
+     * @param defaultValue the default value
+     * @param converter the converter class
+     * @return the Option values
+     */
+    @SuppressWarnings("rawtypes")
+    public static Option option(String name, String shortKey, String longKey, String description, boolean required, boolean hidden, String defaultValue, Class<? extends TypeConverter> converter) {
+        return new OptionLiteral(name, shortKey, longKey, description, required, hidden, defaultValue, converter, "", "");
+    }
+
+    /**
+     * Creates the {@link Option} values of a generated parser, for an option read from the environment or a properties
+     * file when not given on the command line
+     * @param name the option name
+     * @param shortKey the short-format key
+     * @param longKey the long-format key
+     * @param description the description
+     * @param required the required flag
+     * @param hidden the hidden flag
+     * @param defaultValue the default value
+     * @param converter the converter class, {@link TypeConverter} to use the registry
+     * @param env the environment variable
+     * @param property the property key
+     * @return the Option values
+     */
+    @SuppressWarnings("rawtypes")
+    public static Option option(String name, String shortKey, String longKey, String description, boolean required, boolean hidden, String defaultValue, Class<? extends TypeConverter> converter, String env, String property) {
+        return new OptionLiteral(name, shortKey, longKey, description, required, hidden, defaultValue, converter, env, property);
+    }
+
+    /**
+     * Renders the usage text exactly as the runtime would
+     * @param command the Command values
+     * @param options the option values
+     * @return the usage text
+     */
+    public static String renderUsage(Command command, Option[] options) {
+        return CommandLineParser.renderUsage(command, Arrays.asList(options));
+    }
+
+    /**
+     * Find the generated parser of a Command data Object class
+     * @param commandClass the Command data Object class
+     * @return the generated parser, or null if the class has none
+     */
+    static GeneratedCommandParser<?> find(Class<?> commandClass) {
+        final ClassLoader loader = commandClass.getClassLoader();
+        if (loader == null) return null;
+        final Class<?> parserClass;
+        try {
+            parserClass = Class.forName(commandClass.getName() + SUFFIX, true, loader);
+        } catch (ClassNotFoundException | LinkageError ignored) {
+            return null;
+        }
+        if (!GeneratedCommandParser.class.isAssignableFrom(parserClass)) return null;
+        try {
+            final GeneratedCommandParser<?> parser = (GeneratedCommandParser<?>) parserClass.getDeclaredConstructor().newInstance();
+            return parser.commandClass == commandClass ? parser : null;
+        } catch (Exception e) {
+            throw new CommandLineParserException("Unable to instantiate the generated parser " + parserClass.getName() + ": " + e);
+        }
+    }
+
+    /**
+     * {@link Command} values held by a generated parser
+     */
+    private static final class CommandLiteral implements Command {
+        private final String name;
+        private final String[] descriptions;
+        private final String[] detailedDescription;
+        private final String[] usage;
+
+        CommandLiteral(String name, String[] descriptions, String[] detailedDescription, String[] usage) {
+            this.name = name;
+            this.descriptions = descriptions;
+            this.detailedDescription = detailedDescription;
+            this.usage = usage;
+        }
+
+        @Override
+        public String name() {
+            return this.name;
+        }
+
+        @Override
+        public String[] descriptions() {
+            return this.descriptions.clone();
+        }
+
+        @Override
+        public String[] detailedDescription() {
+            return this.detailedDescription.clone();
+        }
+
+        @Override
+        public String[] usage() {
+            return this.usage.clone();
+        }
+
+        @Override
+        public Class<? extends Annotation> annotationType() {
+            return Command.class;
+        }
+
+        @Override
+        public String toString() {
+            return "@" + Command.class.getName() + "(name=" + this.name + ", descriptions=" + Arrays.toString(this.descriptions) + ", detailedDescription=" + Arrays.toString(this.detailedDescription) + ", usage=" + Arrays.toString(this.usage) + ")";
+        }
+    }
+
+    /**
+     * {@link Option} values held by a generated parser
+     */
+    private static final class OptionLiteral implements Option {
+        private final String name;
+        private final String shortKey;
+        private final String longKey;
+        private final String description;
+        private final boolean required;
+        private final boolean hidden;
+        private final String defaultValue;
+        @SuppressWarnings("rawtypes")
+        private final Class<? extends TypeConverter> converter;
+        private final String env;
+        private final String property;
+
+        @SuppressWarnings("rawtypes")
+        OptionLiteral(String name, String shortKey, String longKey, String description, boolean required, boolean hidden, String defaultValue, Class<? extends TypeConverter> converter, String env, String property) {
+            this.name = name;
+            this.shortKey = shortKey;
+            this.longKey = longKey;
+            this.description = description;
+            this.required = required;
+            this.hidden = hidden;
+            this.defaultValue = defaultValue;
+            this.converter = converter;
+            this.env = env;
+            this.property = property;
+        }
+
+        @Override
+        public String name() {
+            return this.name;
+        }
+
+        @Override
+        public String shortKey() {
+            return this.shortKey;
+        }
+
+        @Override
+        public String longKey() {
+            return this.longKey;
+        }
+
+        @Override
+        public String description() {
+            return this.description;
+        }
+
+        @Override
+        public boolean required() {
+            return this.required;
+        }
+
+        @Override
+        public boolean hidden() {
+            return this.hidden;
+        }
+
+        @Override
+        public String defaultValue() {
+            return this.defaultValue;
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes")
+        public Class<? extends TypeConverter> converter() {
+            return this.converter;
+        }
+
+        @Override
+        public String env() {
+            return this.env;
+        }
+
+        @Override
+        public String property() {
+            return this.property;
+        }
+
+        @Override
+        public Class<? extends Annotation> annotationType() {
+            return Option.class;
+        }
+
+        @Override
+        public String toString() {
+            return "@" + Option.class.getName() + "(name=" + this.name + ", shortKey=" + this.shortKey + ", longKey=" + this.longKey + ", description=" + this.description + ", required=" + this.required + ", hidden=" + this.hidden + ", defaultValue=" + this.defaultValue + ", env=" + this.env + ", property=" + this.property + ")";
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.lupusumbra.util.commandline;
+
+import com.lupusumbra.util.commandline.converter.TypeConverter;
+import com.lupusumbra.util.commandline.exception.OptionConversionException;
+
+import java.util.function.Supplier;
+
+/**
+ * An option value which is converted on first access, instead of during the parse.
+ *
+ * Declaring an {@code @Option} field as {@code Lazy<T>} keeps the raw value; {@link #get()} converts it with the
+ * converter of T (or the option's own converter) once, then returns the same value. A value which cannot be converted
+ * throws an {@link OptionConversionException}, naming the Command, the option and the raw value, on every access.
+ * Options never read are never converted. A Lazy option always takes a value, even a {@code Lazy<Boolean>}.
+ *
+ * @param <T> the value type
+ */
+public final class Lazy<T> implements Supplier<T> {
+    //the state of a value not yet converted
+    private static final Object UNSET = new Object();
+    //the state of a value which couldn't be converted
+    private static final Object FAILED = new Object();
+    //the name of the Command owning the option
+    private final String command;
+    //the registered name of the option
+    private final String option;
+    //the name of the option field
+    private final String field;
+    //the value type
+    private final Class<?> type;
+    //converts the raw value
+    private final TypeConverter<? extends T> converter;
+    //the raw value
+    private final String raw;
+    //the converted value, UNSET, or FAILED
+    private volatile Object value = UNSET;
+    //the conversion error, written before value is set to FAILED
+    private Throwable error;
+
+    /**
+     * Instantiate a {@link Lazy}
+     * @param command the name of the Command owning the option
+     * @param option the registered name of the option
+     * @param field the name of the option field
+     * @param type the value type
+     * @param converter converts the raw value
+     * @param raw the raw value
+     */
+    Lazy(final String command, final String option, final String field, final Class<?> type, final TypeConverter<? extends T> converter, final String raw) {
+        this.command = command;
+        this.option = option;
+        this.field = field;
+        this.type = type;
+        this.converter = converter;
+        this.raw = raw;
+    }
+
+    /**
+     * Get the value, converting it on first access
+     * @return the value
+     * @throws OptionConversionException if the raw value cannot be converted
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get() {
+        Object rval = this.value;
+        if (rval == UNSET) rval = this.convert();
+        if (rval == FAILED) throw new OptionConversionException(this.command, this.option, this.field, this.type, this.raw, this.error);
+        return (T) rval;
+    }
+
+    /**
+     * Get the raw value, without converting it
+     * @return the raw value
+     */
+    public String raw() {
+        return this.raw;
+    }
+
+    /**
+     * Check if the value was converted, successfully or not
+     * @return true if {@link #get()} was called
+     */
+    public boolean converted() {
+        return this.value != UNSET;
+    }
+
+    /**
+     * Convert the raw value, once
+     * @return the converted value, or FAILED
+     */
+    private synchronized Object convert() {
+        if (this.value != UNSET) return this.value;
+        try {
+            this.value = this.converter.convert(this.raw);
+        } catch (Exception e) {
+            this.error = e;
+            this.value = FAILED;
+            ParseEvents.INSTANCE.conversionFailed(this.command, this.option, this.type, this.raw, e);
+        }
+        return this.value;
+    }
+
+    /**
+     * Generates a String representation of the {@link Lazy}
+     * @return the String representation
+     */
+    @Override
+    public String toString() {
+        return "Lazy{" +
+                "option='" + this.option + '\'' +
+                ", raw='" + this.raw + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,151 @@
+package com.lupusumbra.util.commandline;
+
+import java.util.*;
+
+/**
+ * An immutable trie of long-format keys, searched directly over a char range of the raw argument.
+ *
+ * Besides exact keys, a lookup resolves unambiguous prefixes, GNU style ("--verb" for "--verbose"). Each node records
+ * the single option reachable below it, or that there are several, so a prefix lookup costs the same as an exact one.
+ * Nodes are stored in flat arrays, and children are found by binary search over sorted labels.
+ */
+final class LongKeyTrie {
+    //lookup result for a key which matches nothing
+    static final int NONE = -1;
+    //lookup result for a prefix of several keys
+    static final int AMBIGUOUS = -2;
+    //child labels by node, sorted
+    private final char[][] labels;
+    //child nodes by node, parallel to labels
+    private final int[][] children;
+    //the option whose key ends at the node, or NONE
+    private final int[] exact;
+    //the only option reachable from the node, NONE, or AMBIGUOUS
+    private final int[] unique;
+    //the keys by node, used to report ambiguous prefixes
+    private final String[] keys;
+
+    /**
+     * Builds a trie
+     * @param keys option indexes by key, without prefix
+     */
+    LongKeyTrie(final Map<String, Integer> keys) {
+        final List<TreeMap<Character, Integer>> nodes = new ArrayList<>();
+        final List<Integer> exact = new ArrayList<>();
+        final List<Integer> unique = new ArrayList<>();
+        nodes.add(new TreeMap<>());
+        exact.add(NONE);
+        unique.add(NONE);
+        final List<String> sorted = new ArrayList<>(keys.keySet());
+        Collections.sort(sorted);
+        final String[] nodeKeys = new String[1 + sorted.stream().mapToInt(String::length).sum()];
+        for (String key : sorted) {
+            final int index = keys.get(key);
+            int node = 0;
+            unique.set(node, merge(unique.get(node), index));
+            for (int i = 0; i < key.length(); i++) {
+                Integer child = nodes.get(node).get(key.charAt(i));
+                if (child == null) {
+                    child = nodes.size();
+                    nodes.get(node).put(key.charAt(i), child);
+                    nodes.add(new TreeMap<>());
+                    exact.add(NONE);
+                    unique.add(NONE);
+                }
+                node = child;
+                unique.set(node, merge(unique.get(node), index));
+            }
+            exact.set(node, index);
+            nodeKeys[node] = key;
+        }
+        final int size = nodes.size();
+        this.labels = new char[size][];
+        this.children = new int[size][];
+        this.exact = new int[size];
+        this.unique = new int[size];
+        this.keys = Arrays.copyOf(nodeKeys, size);
+        for (int node = 0; node < size; node++) {
+            final TreeMap<Character, Integer> edges = nodes.get(node);
+            this.labels[node] = new char[edges.size()];
+            this.children[node] = new int[edges.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> edge : edges.entrySet()) {
+                this.labels[node][i] = edge.getKey();
+                this.children[node][i++] = edge.getValue();
+            }
+            this.exact[node] = exact.get(node);
+            this.unique[node] = unique.get(node);
+        }
+    }
+
+    /**
+     * Merge an option into the unique option of a node
+     * @param unique the unique option of the node so far
+     * @param index the option
+     * @return the new unique option
+     */
+    private static int merge(final int unique, final int index) {
+        return unique == NONE || unique == index ? index : AMBIGUOUS;
+    }
+
+    /**
+     * Find the node of a key
+     * @param arg the raw argument
+     * @param from the start of the key within arg
+     * @param to the end of the key within arg
+     * @return the node, or NONE
+     */
+    private int node(final String arg, final int from, final int to) {
+        int node = 0;
+        for (int i = from; i < to && node >= 0; i++) {
+            final int child = Arrays.binarySearch(this.labels[node], arg.charAt(i));
+            node = child < 0 ? NONE : this.children[node][child];
+        }
+        return node;
+    }
+
+    /**
+     * Lookup a key, or an unambiguous prefix of a key
+     * @param arg the raw argument
+     * @param from the start of the key within arg
+     * @param to the end of the key within arg
+     * @return the option index, NONE, or AMBIGUOUS
+     */
+    int find(final String arg, final int from, final int to) {
+        if (from == to) return NONE;
+        final int node = this.node(arg, from, to);
+        if (node < 0) return NONE;
+        return this.exact[node] != NONE ? this.exact[node] : this.unique[node];
+    }
+
+    /**
+     * Lookup a key, or an unambiguous prefix of a key
+     * @param key the key, without prefix
+     * @return the option index, NONE, or AMBIGUOUS
+     */
+    int find(final String key) {
+        return this.find(key, 0, key.length());
+    }
+
+    /**
+     * List the keys starting with a prefix, used to report ambiguous prefixes
+     * @param prefix the prefix
+     * @return the matching keys, sorted
+     */
+    List<String> keysWithPrefix(final String prefix) {
+        final List<String> rval = new ArrayList<>();
+        final int node = this.node(prefix, 0, prefix.length());
+        if (node >= 0) this.collect(node, rval);
+        return rval;
+    }
+
+    /**
+     * Collect the keys ending at or below a node
+     * @param node the node
+     * @param rval the keys
+     */
+    private void collect(final int node, final List<String> rval) {
+        if (this.exact[node] != NONE) rval.add(this.keys[node]);
+        for (int child : this.children[node]) this.collect(child, rval);
+    }
+}
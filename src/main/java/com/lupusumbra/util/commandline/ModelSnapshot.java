@@ -0,0 +1,326 @@
+package com.lupusumbra.util.commandline;
+
+import com.lupusumbra.util.commandline.CommandModel.FieldWriter;
+import com.lupusumbra.util.commandline.CommandModel.SubCommandModel;
+import com.lupusumbra.util.commandline.annotation.Command;
+import com.lupusumbra.util.commandline.annotation.Option;
+import com.lupusumbra.util.commandline.annotation.Parameters;
+import com.lupusumbra.util.commandline.annotation.SubCommand;
+import com.lupusumbra.util.commandline.converter.TypeConverter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * A compact binary snapshot of a resolved Command model, written at build time and loaded instead of scanning the
+ * annotations of the Command class.
+ *
+ * The snapshot of a class is the resource META-INF/commandline/&lt;class name&gt;.model; it holds the CRC32 of the class
+ * file, the Command values, the rendered usage, the option values with their field names and types, and the SubCommand
+ * and parameter field names. Loading it compares the CRC32 with the class file and looks fields up by name, but never
+ * reads an annotation. A snapshot which no longer matches its class file is ignored, and the model is built from the
+ * annotations. Interface Commands have no snapshot.
+ *
+ * Snapshots are written by {@link #main}, for the given classes and their SubCommand classes, declared or registered by
+ * {@link SubCommandPlugin}s; it also reads each one back and parses an empty command line with it, so that a JVM run
+ * with -XX:DumpLoadedClassList records the classes worth archiving with AppCDS. Setting the
+ * com.lupusumbra.util.commandline.snapshots system property to false disables snapshots.
+ */
+public final class ModelSnapshot {
+    //the snapshot resource directory
+    static final String RESOURCE_PREFIX = "META-INF/commandline/";
+    //the snapshot resource suffix
+    static final String RESOURCE_SUFFIX = ".model";
+    //"CLPM", the first bytes of a snapshot
+    private static final int MAGIC = 0x434C504D;
+    //the snapshot format version
+    private static final int VERSION = 3;
+    //false to ignore snapshots
+    private static final boolean ENABLED = !"false".equals(System.getProperty("com.lupusumbra.util.commandline.snapshots"));
+
+    private ModelSnapshot() {
+    }
+
+    /**
+     * Write the snapshots of Command classes and of their SubCommand classes, then parse an empty command line with each
+     * snapshot
+     * @param args the output directory, followed by the Command class names
+     * @throws Exception if a class cannot be loaded, or a snapshot cannot be written
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("USAGE: ModelSnapshot <output directory> <command class>...");
+            System.exit(2);
+        }
+        final Path output = Paths.get(args[0]).resolve(RESOURCE_PREFIX);
+        Files.createDirectories(output);
+        final Set<Class<?>> classes = new LinkedHashSet<>();
+        for (int i = 1; i < args.length; i++) collect(Class.forName(args[i]), classes);
+        for (Class<?> dataClass : classes) {
+            if (dataClass.isInterface()) continue;
+            final Path file = output.resolve(dataClass.getName() + RESOURCE_SUFFIX);
+            final long fingerprint = fingerprint(dataClass);
+            if (fingerprint < 0) throw new IllegalStateException("Unable to read the class file of " + dataClass.getName());
+            try (OutputStream out = Files.newOutputStream(file)) {
+                write(CommandModel.reflect(dataClass), fingerprint, out);
+            }
+            final CommandModel model = read(dataClass, fingerprint, bytes(file.toUri().toURL()));
+            if (model == null) throw new IllegalStateException("Unable to read back the snapshot of " + dataClass.getName());
+            new ParseResult<>(model, model.newInstance()).parse(Arguments.of(new String[0]), message -> { }, null, OptionSources.SYSTEM);
+        }
+    }
+
+    /**
+     * Collect a Command class and its SubCommand classes, declared or registered by plugins
+     * @param dataClass the Command class
+     * @param classes the collected classes
+     */
+    private static void collect(Class<?> dataClass, Set<Class<?>> classes) {
+        if (!classes.add(dataClass)) return;
+        for (Field field : dataClass.getDeclaredFields())
+            if (field.getAnnotation(SubCommand.class) != null) collect(field.getType(), classes);
+        for (SubCommandModel plugin : SubCommandIndex.plugins(dataClass).values()) collect(plugin.type(), classes);
+    }
+
+    /**
+     * Write the snapshot of a model built from annotations
+     * @param model the model
+     * @param fingerprint the fingerprint of the class file, see {@link #fingerprint}
+     * @param target the target stream
+     * @throws IOException if target cannot be written
+     */
+    static void write(CommandModel model, long fingerprint, OutputStream target) throws IOException {
+        final DataOutputStream out = new DataOutputStream(target);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeString(out, model.dataClass.getName());
+        out.writeLong(fingerprint);
+        final Command command = model.annotation;
+        writeString(out, command.name());
+        writeStrings(out, command.descriptions());
+        writeStrings(out, command.detailedDescription());
+        writeStrings(out, command.usage());
+        writeString(out, model.usage());
+        out.writeInt(model.options.length);
+        for (OptionModel option : model.options) {
+            final Option annotation = option.annotation;
+            writeString(out, option.fieldName);
+            writeString(out, option.fieldType.getName());
+            writeString(out, annotation.name());
+            writeString(out, annotation.shortKey());
+            writeString(out, annotation.longKey());
+            writeString(out, annotation.description());
+            out.writeBoolean(annotation.required());
+            out.writeBoolean(annotation.hidden());
+            writeString(out, annotation.defaultValue());
+            writeString(out, annotation.converter() == TypeConverter.class ? "" : annotation.converter().getName());
+            writeString(out, annotation.env());
+            writeString(out, annotation.property());
+        }
+        final List<String> subCommands = new ArrayList<>();
+        final List<String> parameters = new ArrayList<>();
+        boolean compact = false;
+        for (Field field : model.dataClass.getDeclaredFields()) {
+            final SubCommand subCommand = field.getAnnotation(SubCommand.class);
+            if (subCommand != null) {
+                subCommands.add(subCommand.name());
+                subCommands.add(field.getName());
+            }
+            final Parameters parameter = field.getAnnotation(Parameters.class);
+            if (parameter != null) {
+                parameters.add(field.getName());
+                compact |= parameter.compact();
+            }
+        }
+        writeStrings(out, subCommands.toArray(new String[0]));
+        writeStrings(out, parameters.toArray(new String[0]));
+        out.writeBoolean(compact);
+        out.flush();
+    }
+
+    /**
+     * Load the snapshot of a Command class, memory-mapping it when it is a file
+     *
+     * Any failure, including a class named by the snapshot which cannot be linked, falls back to reflection.
+     * @param dataClass the Command data Object class
+     * @return the model, or null if there is no usable snapshot
+     */
+    static CommandModel load(Class<?> dataClass) {
+        if (!ENABLED || dataClass.isInterface()) return null;
+        final ClassLoader loader = dataClass.getClassLoader();
+        if (loader == null) return null;
+        final URL url = loader.getResource(RESOURCE_PREFIX + dataClass.getName() + RESOURCE_SUFFIX);
+        if (url == null) return null;
+        try {
+            final long fingerprint = fingerprint(dataClass);
+            return fingerprint < 0 ? null : read(dataClass, fingerprint, bytes(url));
+        } catch (IOException | RuntimeException | ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Compute the fingerprint of a class: the CRC32 of its class file
+     * @param dataClass the class
+     * @return the fingerprint, or -1 if the class file isn't available as a resource
+     * @throws IOException if the class file cannot be read
+     */
+    private static long fingerprint(Class<?> dataClass) throws IOException {
+        final ClassLoader loader = dataClass.getClassLoader();
+        final URL url = loader == null ? null : loader.getResource(dataClass.getName().replace('.', '/') + ".class");
+        if (url == null) return -1;
+        final CRC32 rval = new CRC32();
+        try (InputStream in = url.openStream()) {
+            final byte[] buffer = new byte[8192];
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) rval.update(buffer, 0, read);
+        }
+        return rval.getValue();
+    }
+
+    /**
+     * Get the bytes of a snapshot resource
+     * @param url the resource
+     * @return the bytes, memory-mapped if the resource is a file
+     * @throws IOException if the resource cannot be read
+     */
+    private static ByteBuffer bytes(URL url) throws IOException {
+        if ("file".equals(url.getProtocol())) {
+            try (FileChannel channel = FileChannel.open(Paths.get(url.toURI()), StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } catch (URISyntaxException e) {
+                throw new IOException(e);
+            }
+        }
+        try (InputStream in = url.openStream()) {
+            final ByteArrayOutputStream rval = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) rval.write(buffer, 0, read);
+            return ByteBuffer.wrap(rval.toByteArray());
+        }
+    }
+
+    /**
+     * Build a model from a snapshot
+     * @param dataClass the Command data Object class
+     * @param fingerprint the fingerprint of the class file, see {@link #fingerprint}
+     * @param in the snapshot
+     * @return the model, or null if the snapshot doesn't match the class
+     * @throws ReflectiveOperationException if a field or converter named by the snapshot doesn't exist
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static CommandModel read(Class<?> dataClass, long fingerprint, ByteBuffer in) throws ReflectiveOperationException {
+        if (in.getInt() != MAGIC || in.getInt() != VERSION || !readString(in).equals(dataClass.getName()) || in.getLong() != fingerprint) return null;
+        final Command command = GeneratedCommandParser.command(readString(in), readStrings(in), readStrings(in), readStrings(in));
+        final String usage = readString(in);
+        final OptionModel[] options = new OptionModel[in.getInt()];
+        for (int i = 0; i < options.length; i++) {
+            final Field field = field(dataClass, readString(in));
+            if (!field.getType().getName().equals(readString(in))) return null;
+            final String name = readString(in);
+            final String shortKey = readString(in);
+            final String longKey = readString(in);
+            final String description = readString(in);
+            final boolean required = in.get() != 0;
+            final boolean hidden = in.get() != 0;
+            final String defaultValue = readString(in);
+            final String converter = readString(in);
+            final String env = readString(in);
+            final String property = readString(in);
+            final Option option = GeneratedCommandParser.option(name, shortKey, longKey, description, required, hidden, defaultValue,
+                    converter.isEmpty() ? TypeConverter.class : (Class<? extends TypeConverter>) Class.forName(converter, false, dataClass.getClassLoader()), env, property);
+            options[i] = OptionModel.reflect(command.name(), i, field, option, CommandLineParser.stripOptionPrefix(shortKey), CommandLineParser.stripOptionPrefix(longKey));
+        }
+        final String[] subCommandFields = readStrings(in);
+        final Map<String, SubCommandModel> subCommands = new HashMap<>();
+        for (int i = 0; i < subCommandFields.length; i += 2) {
+            final Field field = field(dataClass, subCommandFields[i + 1]);
+            subCommands.put(subCommandFields[i], new SubCommandModel(subCommandFields[i], field.getType(), (data, value) -> CommandLineParser.setObjectValue(data, field, value)));
+        }
+        final List<Field> parameterFields = new ArrayList<>();
+        for (String name : readStrings(in)) parameterFields.add(field(dataClass, name));
+        final FieldWriter parameters = (data, value) -> parameterFields.forEach(field -> CommandLineParser.setObjectValue(data, field, value));
+        return new CommandModel(dataClass, command, options, subCommands, parameters, in.get() != 0, usage, null);
+    }
+
+    /**
+     * Lookup an accessible field by name
+     * @param dataClass the Command data Object class
+     * @param name the field name
+     * @return the field
+     * @throws NoSuchFieldException if the field doesn't exist
+     */
+    private static Field field(Class<?> dataClass, String name) throws NoSuchFieldException {
+        final Field rval = dataClass.getDeclaredField(name);
+        if (!rval.isAccessible()) rval.setAccessible(true);
+        return rval;
+    }
+
+    /**
+     * Write a String as its UTF-8 length and bytes
+     * @param out the target
+     * @param value the String
+     * @throws IOException if out cannot be written
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Write a String array as its length and Strings
+     * @param out the target
+     * @param values the Strings
+     * @throws IOException if out cannot be written
+     */
+    private static void writeStrings(DataOutputStream out, String[] values) throws IOException {
+        out.writeInt(values.length);
+        for (String value : values) writeString(out, value);
+    }
+
+    /**
+     * Read a String written by {@link #writeString}
+     * @param in the snapshot
+     * @return the String
+     */
+    private static String readString(ByteBuffer in) {
+        final int length = in.getInt();
+        final ByteBuffer bytes = in.slice();
+        //through Buffer, as the ByteBuffer overrides added in Java 9 don't exist on Java 8
+        ((Buffer) bytes).limit(length);
+        ((Buffer) in).position(in.position() + length);
+        return StandardCharsets.UTF_8.decode(bytes).toString();
+    }
+
+    /**
+     * Read a String array written by {@link #writeStrings}
+     * @param in the snapshot
+     * @return the Strings
+     */
+    private static String[] readStrings(ByteBuffer in) {
+        final String[] rval = new String[in.getInt()];
+        for (int i = 0; i < rval.length; i++) rval[i] = readString(in);
+        return rval;
+    }
+}
@@ -0,0 +1,183 @@
+package com.lupusumbra.util.commandline;
+
+import com.lupusumbra.util.commandline.annotation.Option;
+import com.lupusumbra.util.commandline.annotation.Parameters;
+import com.lupusumbra.util.commandline.annotation.SubCommand;
+import com.lupusumbra.util.commandline.converter.TypeConverter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes the GraalVM native-image configuration of Command classes, so that their parsers run in a native image
+ * without a hand-maintained reflect-config.json.
+ *
+ * The configuration lists what the parser reaches reflectively from a root Command class down its SubCommand tree,
+ * including the SubCommands of {@link SubCommandPlugin}s: each Command class with its no-arg constructor and annotated
+ * fields, the parser generated for it if there is one, the {@link Option#converter()} classes and the enum option
+ * types; and, as resources, the {@link ModelSnapshot}s of the Command classes, and the plugin service files and
+ * {@link SubCommandIndex} indexes. The class files of the Command classes are registered as resources too: a snapshot
+ * is only used once the checksum of its class file matches, and a native image has no class files otherwise. An
+ * interface Command is listed with its public methods and its generated {@link CommandValues}, or, without one, in
+ * proxy-config.json. The Flight Recorder events are not listed: without them the parser emits no event.
+ */
+public final class NativeImageMetadata {
+    //the configuration directory, under which each root Command class gets its own directory
+    static final String RESOURCE_PREFIX = "META-INF/native-image/";
+    //the no-arg constructor entry
+    private static final String CONSTRUCTOR = "{\"name\":\"<init>\",\"parameterTypes\":[]}";
+
+    private NativeImageMetadata() {
+    }
+
+    /**
+     * Write the native-image configuration of Command classes and of their SubCommand classes to
+     * &lt;output directory&gt;/META-INF/native-image/&lt;first command class name&gt;/
+     * @param args the output directory, followed by the Command class names
+     * @throws Exception if a class cannot be loaded or isn't a valid Command, or the configuration cannot be written
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("USAGE: NativeImageMetadata <output directory> <command class>...");
+            System.exit(2);
+        }
+        final List<Class<?>> roots = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) roots.add(Class.forName(args[i]));
+        write(Paths.get(args[0]).resolve(RESOURCE_PREFIX + roots.get(0).getName()), roots);
+    }
+
+    /**
+     * Write the reflect-config.json and resource-config.json of Command classes and of their SubCommand classes, and the
+     * proxy-config.json of the interface Commands without a generated implementation
+     * @param directory the configuration directory
+     * @param roots the Command classes
+     * @throws IOException if the configuration cannot be written
+     */
+    static void write(Path directory, List<Class<?>> roots) throws IOException {
+        final Set<Class<?>> commands = new LinkedHashSet<>();
+        for (Class<?> root : roots) collect(root, commands);
+        //reflect-config entries by class name, in discovery order
+        final Map<String, String> reflection = new LinkedHashMap<>();
+        final List<String> resources = new ArrayList<>();
+        final List<String> proxies = new ArrayList<>();
+        boolean plugins = false;
+        for (Class<?> dataClass : commands) {
+            plugins |= !SubCommandIndex.plugins(dataClass).isEmpty();
+            //fails on an invalid Command class, rather than in the native image
+            final CommandModel model = CommandModel.reflect(dataClass);
+            for (OptionModel option : model.options) optionTypes(option, reflection);
+            if (dataClass.isInterface()) {
+                reflection.put(dataClass.getName(), entry(dataClass, "\"allPublicMethods\":true"));
+                final Class<?> generated = generated(dataClass, CommandValues.SUFFIX);
+                if (generated != null) reflection.put(generated.getName(), entry(generated, "\"methods\":[" + CONSTRUCTOR + "]"));
+                else proxies.add("{\"interfaces\":[" + quote(dataClass.getName()) + "]}");
+                continue;
+            }
+            final List<String> fields = new ArrayList<>();
+            for (Field field : dataClass.getDeclaredFields()) {
+                final Option option = field.getAnnotation(Option.class);
+                if (option == null && field.getAnnotation(SubCommand.class) == null && field.getAnnotation(Parameters.class) == null) continue;
+                fields.add("{\"name\":" + quote(field.getName()) + ",\"allowWrite\":true}");
+            }
+            reflection.put(dataClass.getName(), entry(dataClass, "\"allDeclaredFields\":true,\"fields\":[" + String.join(",", fields) + "],\"methods\":[" + CONSTRUCTOR + "]"));
+            final Class<?> generated = generated(dataClass, GeneratedCommandParser.SUFFIX);
+            if (generated != null) reflection.put(generated.getName(), entry(generated, "\"methods\":[" + CONSTRUCTOR + "]"));
+            resources.add("{\"pattern\":" + quote("\\Q" + ModelSnapshot.RESOURCE_PREFIX + dataClass.getName() + ModelSnapshot.RESOURCE_SUFFIX + "\\E") + "}");
+            //the snapshot is checked against the class file, see ModelSnapshot.fingerprint
+            resources.add("{\"pattern\":" + quote("\\Q" + dataClass.getName().replace('.', '/') + ".class\\E") + "}");
+        }
+        if (plugins) {
+            resources.add("{\"pattern\":" + quote("\\Q" + SubCommandIndex.SERVICES + "\\E") + "}");
+            resources.add("{\"pattern\":" + quote("\\Q" + SubCommandIndex.RESOURCE + "\\E") + "}");
+        }
+        Files.createDirectories(directory);
+        try (Writer out = Files.newBufferedWriter(directory.resolve("reflect-config.json"), StandardCharsets.UTF_8)) {
+            out.write("[\n" + String.join(",\n", reflection.values()) + "\n]\n");
+        }
+        try (Writer out = Files.newBufferedWriter(directory.resolve("resource-config.json"), StandardCharsets.UTF_8)) {
+            out.write("{\"resources\":{\"includes\":[\n" + String.join(",\n", resources) + "\n]}}\n");
+        }
+        if (proxies.isEmpty()) return;
+        try (Writer out = Files.newBufferedWriter(directory.resolve("proxy-config.json"), StandardCharsets.UTF_8)) {
+            out.write("[\n" + String.join(",\n", proxies) + "\n]\n");
+        }
+    }
+
+    /**
+     * Add the converter and enum type of an option to the reflect-config.json entries
+     * @param option the option
+     * @param reflection the entries by class name
+     */
+    @SuppressWarnings("rawtypes")
+    private static void optionTypes(OptionModel option, Map<String, String> reflection) {
+        final Class<? extends TypeConverter> converter = option.annotation.converter();
+        if (converter != TypeConverter.class)
+            reflection.putIfAbsent(converter.getName(), entry(converter, "\"methods\":[" + CONSTRUCTOR + "]"));
+        final Class<?> type = option.valueType();
+        if (type.isEnum())
+            reflection.putIfAbsent(type.getName(), entry(type, "\"methods\":[{\"name\":\"values\",\"parameterTypes\":[]}]"));
+    }
+
+    /**
+     * Collect a Command class and its SubCommand classes, declared or registered by plugins
+     * @param dataClass the Command class
+     * @param classes the collected classes
+     */
+    private static void collect(Class<?> dataClass, Set<Class<?>> classes) {
+        if (!classes.add(dataClass)) return;
+        for (Field field : dataClass.getDeclaredFields())
+            if (field.getAnnotation(SubCommand.class) != null) collect(field.getType(), classes);
+        for (CommandModel.SubCommandModel plugin : SubCommandIndex.plugins(dataClass).values()) collect(plugin.type(), classes);
+    }
+
+    /**
+     * Get the class generated for a Command class or interface
+     * @param dataClass the Command class or interface
+     * @param suffix the generated class name suffix
+     * @return the generated class, or null if there is none
+     */
+    private static Class<?> generated(Class<?> dataClass, String suffix) {
+        try {
+            return Class.forName(dataClass.getName() + suffix, false, dataClass.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Build a reflect-config.json entry, on one line
+     * @param type the class
+     * @param members the members of the entry, after its name
+     * @return the entry
+     */
+    private static String entry(Class<?> type, String members) {
+        return "{\"name\":" + quote(type.getName()) + "," + members + "}";
+    }
+
+    /**
+     * Quote a JSON String
+     * @param value the value
+     * @return the quoted value
+     */
+    private static String quote(String value) {
+        final StringBuilder rval = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') rval.append('\\').append(c);
+            else if (c < 0x20) rval.append(String.format("\\u%04x", (int) c));
+            else rval.append(c);
+        }
+        return rval.append('"').toString();
+    }
+}
@@ -0,0 +1,578 @@
+package com.lupusumbra.util.commandline;
+
+import com.lupusumbra.util.commandline.annotation.Option;
+import com.lupusumbra.util.commandline.converter.TypeConverter;
+import com.lupusumbra.util.commandline.converter.TypeConverters;
+import com.lupusumbra.util.commandline.exception.CommandLineParserException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.function.Supplier;
+
+/**
+ * The immutable, per-field part of an option: the field, its annotation, resolved keys and binders.
+ *
+ * Options of an interface Command are bound to a getter instead, and write to the slots of its {@link CommandValues}.
+ *
+ * Instances are built once per {@link CommandModel} and shared by every parse of that Command class.
+ */
+final class OptionModel {
+    //the lookup used to resolve field setters
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    //the position of the option within its CommandModel
+    final int index;
+    //the field the option is bound to (null when bound by a generated parser, or to a getter)
+    final Field field;
+    //the name of the field the option is bound to
+    final String fieldName;
+    //the field type
+    final Class<?> fieldType;
+    //the annotation associated with the field
+    final Option annotation;
+    //the short-format key, without prefix (may be empty)
+    final String shortKey;
+    //the long-format key, without prefix (may be empty)
+    final String longKey;
+    //true if the field holds a boolean value
+    final boolean isBoolean;
+    //the raw value used when none is given: "true" for booleans, the annotation defaultValue otherwise
+    private final String defaultValue;
+    //converts and writes values to the field
+    private final Binder binder;
+    //writes the default value to the field
+    private final Binder defaultBinder;
+    //the element type of a repeatable option, or null if the option takes a single value, or it isn't known
+    final Class<?> elementType;
+    //the value type of a Lazy option, or null if the option isn't Lazy
+    final Class<?> lazyType;
+    //creates the buffer of a repeatable option for each parse, or null if the option takes a single value
+    final Supplier<ValueAccumulator> accumulator;
+    //assigns the values of a repeatable option, once accumulated
+    private final CommandModel.FieldWriter writer;
+
+    /**
+     * Instantiate an {@link OptionModel}
+     * @param index the position of the option within its CommandModel
+     * @param field the field, or null
+     * @param fieldName the field name
+     * @param fieldType the field type
+     * @param annotation the annotation
+     * @param shortKey the short-format key, without prefix
+     * @param longKey the long-format key, without prefix
+     * @param binder converts and writes values to the field
+     * @param defaultBinder writes the default value to the field, ignoring the value it is given
+     * @param lazyType the value type of a Lazy option, or null
+     */
+    OptionModel(int index, Field field, String fieldName, Class<?> fieldType, Option annotation, String shortKey, String longKey, Binder binder, Binder defaultBinder, Class<?> lazyType) {
+        this(index, field, fieldName, fieldType, annotation, shortKey, longKey, binder, defaultBinder, null, lazyType, null, null);
+    }
+
+    /**
+     * Instantiate an {@link OptionModel}
+     * @param index the position of the option within its CommandModel
+     * @param field the field, or null
+     * @param fieldName the field name
+     * @param fieldType the field type
+     * @param annotation the annotation
+     * @param shortKey the short-format key, without prefix
+     * @param longKey the long-format key, without prefix
+     * @param binder converts and writes values to the field, or adds them to the buffer of a repeatable option
+     * @param defaultBinder writes the default value to the field, ignoring the value it is given
+     * @param elementType the element type of a repeatable option, or null
+     * @param lazyType the value type of a Lazy option, or null
+     * @param accumulator creates the buffer of a repeatable option, or null
+     * @param writer assigns the values of a repeatable option, or null
+     */
+    private OptionModel(int index, Field field, String fieldName, Class<?> fieldType, Option annotation, String shortKey, String longKey, Binder binder, Binder defaultBinder, Class<?> elementType, Class<?> lazyType, Supplier<ValueAccumulator> accumulator, CommandModel.FieldWriter writer) {
+        this.index = index;
+        this.field = field;
+        this.fieldName = fieldName;
+        this.fieldType = fieldType;
+        this.annotation = annotation;
+        this.shortKey = shortKey;
+        this.longKey = longKey;
+        this.isBoolean = isBoolean(fieldType);
+        this.defaultValue = defaultValue(fieldType, annotation);
+        this.binder = binder;
+        this.defaultBinder = defaultBinder;
+        this.elementType = elementType;
+        this.lazyType = lazyType;
+        this.accumulator = accumulator;
+        this.writer = writer;
+    }
+
+    /**
+     * Build an {@link OptionModel} bound to an accessible field
+     *
+     * The converter and a specialized setter are resolved once, and the default value is converted once, so binding
+     * does no type dispatch. Primitive fields are written through typed {@link MethodHandle#invokeExact} calls, which
+     * avoids boxing. A {@link Lazy} field gets a converter which only wraps the raw value, so its default value is wrapped
+     * once and shared by every parse.
+     * @param command the name of the Command owning the option
+     * @param index the position of the option within its CommandModel
+     * @param field the accessible field
+     * @param annotation the annotation
+     * @param shortKey the short-format key, without prefix
+     * @param longKey the long-format key, without prefix
+     * @return the option model
+     */
+    static OptionModel reflect(String command, int index, Field field, Option annotation, String shortKey, String longKey) {
+        if (ValueAccumulator.repeatable(field.getType()))
+            return repeatable(index, field, field.getName(), field.getType(), elementType(field, field.getType(), field.getGenericType()), annotation, shortKey, longKey, (data, value) -> CommandLineParser.setObjectValue(data, field, value));
+        final boolean custom = annotation.converter() != TypeConverter.class;
+        final boolean lazy = field.getType() == Lazy.class;
+        final Class<?> valueType = lazy ? lazyValueType(field, field.getGenericType()) : field.getType();
+        final TypeConverter<?> valueConverter = custom ? newConverter(describe(field), annotation) : TypeConverters.find(boxed(valueType));
+        final TypeConverter<?> converter = lazy ? lazyConverter(command, field, annotation, valueType, valueConverter) : valueConverter;
+        MethodHandle setter;
+        try {
+            setter = LOOKUP.unreflectSetter(field);
+        } catch (IllegalAccessException ignored) {
+            setter = null;
+        }
+        final Binder binder = setter == null ? reflectiveBinder(field, converter) : custom || !field.getType().isPrimitive() ? binder(setter, converter) : primitiveBinder(setter, field.getType());
+        final String defaultValue = defaultValue(field.getType(), annotation);
+        Binder defaultBinder = binder;
+        if (converter != null) {
+            try {
+                final Object converted = converter.convert(defaultValue);
+                defaultBinder = setter == null ? (data, value) -> field.set(data, converted) : constantBinder(setter, converted);
+            } catch (Exception ignored) {
+                //reported each time the default is bound, as for any other value
+            }
+        }
+        return new OptionModel(index, field, field.getName(), field.getType(), annotation, shortKey, longKey, binder, defaultBinder, lazy ? valueType : null);
+    }
+
+    /**
+     * Build an {@link OptionModel} bound to a getter of an interface Command
+     *
+     * Values are written to the option's slot of the {@link CommandValues}: primitives as their bits, parsed without
+     * boxing unless the option has its own converter, anything else as an Object. The default value is converted once.
+     * @param command the name of the Command owning the option
+     * @param index the option ordinal
+     * @param getter the getter
+     * @param annotation the annotation
+     * @param shortKey the short-format key, without prefix
+     * @param longKey the long-format key, without prefix
+     * @return the option model
+     */
+    static OptionModel values(String command, int index, Method getter, Option annotation, String shortKey, String longKey) {
+        final Class<?> type = getter.getReturnType();
+        if (ValueAccumulator.repeatable(type))
+            return repeatable(index, null, getter.getName(), type, elementType(getter, type, getter.getGenericReturnType()), annotation, shortKey, longKey, (data, value) -> CommandValues.of(data).setObject(index, value));
+        final boolean custom = annotation.converter() != TypeConverter.class;
+        final boolean lazy = type == Lazy.class;
+        final Class<?> valueType = lazy ? lazyValueType(getter, getter.getGenericReturnType()) : type;
+        final TypeConverter<?> valueConverter = custom ? newConverter(describe(getter), annotation) : TypeConverters.find(boxed(valueType));
+        final TypeConverter<?> converter = lazy ? lazyConverter(command, getter, annotation, valueType, valueConverter) : valueConverter;
+        final Binder binder = custom || !type.isPrimitive() ? valuesBinder(index, type, converter) : primitiveValuesBinder(index, type);
+        Binder defaultBinder = binder;
+        if (converter != null) {
+            try {
+                final Object converted = converter.convert(defaultValue(type, annotation));
+                if (type.isPrimitive()) {
+                    final long bits = CommandValues.bits(type, converted);
+                    defaultBinder = (data, value) -> CommandValues.of(data).setBits(index, bits);
+                } else {
+                    defaultBinder = (data, value) -> CommandValues.of(data).setObject(index, converted);
+                }
+            } catch (Exception ignored) {
+                //reported each time the default is bound, as for any other value
+            }
+        }
+        return new OptionModel(index, null, getter.getName(), type, annotation, shortKey, longKey, binder, defaultBinder, lazy ? valueType : null);
+    }
+
+    /**
+     * Build an {@link OptionModel} taking every occurrence of its keys, see {@link ValueAccumulator}
+     *
+     * Values are added to a buffer created for each parse, which is assigned once the parse ends; a key without a value
+     * adds the default value, if any.
+     * @param index the position of the option within its CommandModel
+     * @param field the field, or null
+     * @param fieldName the name of the field or getter
+     * @param type the field type, or the getter return type
+     * @param elementType the element type, or null if it isn't known
+     * @param annotation the annotation
+     * @param shortKey the short-format key, without prefix
+     * @param longKey the long-format key, without prefix
+     * @param writer assigns the values
+     * @return the option model
+     */
+    static OptionModel repeatable(int index, Field field, String fieldName, Class<?> type, Class<?> elementType, Option annotation, String shortKey, String longKey, CommandModel.FieldWriter writer) {
+        final boolean builtIn = type == int[].class || type == long[].class || type == double[].class;
+        final TypeConverter<?> converter = annotation.converter() != TypeConverter.class ? newConverter(String.format("option '%s'", annotation.name()), annotation) : builtIn || elementType == null ? null : TypeConverters.find(boxed(elementType));
+        final Binder binder = (values, value) -> ((ValueAccumulator) values).addAll(value);
+        return new OptionModel(index, field, fieldName, type, annotation, shortKey, longKey, binder, binder, elementType, null, ValueAccumulator.factory(type, converter), writer);
+    }
+
+    /**
+     * Assign the values of a repeatable option, unless none was accumulated
+     * @param data the command data object
+     * @param values the buffer
+     */
+    void complete(final Object data, final ValueAccumulator values) {
+        if (!values.isEmpty()) this.writer.set(data, values.value());
+    }
+
+    /**
+     * Get the type values of this option are converted to
+     * @return the element type of a repeatable option, the value type of a Lazy option, else the field type
+     */
+    Class<?> valueType() {
+        return this.elementType != null ? this.elementType : this.lazyType != null ? this.lazyType : this.fieldType;
+    }
+
+    /**
+     * Generates the info message for this option
+     * @return the info message
+     */
+    @Override
+    public String toString() {
+        return CommandLineParser.formatOption(this.annotation);
+    }
+
+    /**
+     * bind a command-line value to the field
+     * @param data the command data object
+     * @param value the value
+     * @return the error which prevented the value from being converted or bound, or null if it was bound
+     */
+    Throwable process(final Object data, final String value) {
+        return this.bind(data, this.isBoolean || value == null || value.isEmpty() ? null : value);
+    }
+
+    /**
+     * bind a value read from an option source; the default value is bound as converted once, when the model was built,
+     * unless it is a boolean one, which may differ from the value of a key given alone
+     * @param data the command data object
+     * @param value the value
+     * @param isDefault true if the value is the default value of the option
+     * @return the error which prevented the value from being converted or bound, or null if it was bound
+     */
+    Throwable resolve(final Object data, final String value, final boolean isDefault) {
+        return this.bind(data, isDefault && !this.isBoolean && this.accumulator == null ? null : value);
+    }
+
+    /**
+     * bind a value to the field, converting it even for boolean fields
+     * @param data the command data object
+     * @param value the value, or null to bind the default value
+     * @return the error which prevented the value from being converted or bound, or null if it was bound
+     */
+    Throwable bind(final Object data, final String value) {
+        final boolean useDefault = value == null;
+        try {
+            if (useDefault) this.defaultBinder.bind(data, this.defaultValue);
+            else this.binder.bind(data, value);
+            return null;
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            System.err.println("Unable to set field(name='" + this.fieldName + "', type='" + this.fieldType.getName() + "') with value: '" + (useDefault ? this.defaultValue : value) + "'");
+            e.printStackTrace();
+            return e;
+        }
+    }
+
+    /**
+     * Check if a field type holds a boolean value
+     * @param type the field type
+     * @return true for boolean and Boolean
+     */
+    static boolean isBoolean(Class<?> type) {
+        return type == boolean.class || type == Boolean.class;
+    }
+
+    /**
+     * Get the raw value bound when an option is given without one
+     * @param type the field type
+     * @param annotation the annotation
+     * @return "true" for boolean fields, the annotation defaultValue otherwise
+     */
+    static String defaultValue(Class<?> type, Option annotation) {
+        return isBoolean(type) ? "true" : annotation.defaultValue();
+    }
+
+    /**
+     * Describe the field or getter an option is bound to, for error messages
+     * @param member the field or getter
+     * @return the description
+     */
+    static String describe(Member member) {
+        return String.format("%s '%s'", member instanceof Field ? "field" : "method", member);
+    }
+
+    /**
+     * Instantiate the converter requested by an annotation
+     * @param member the description of the field or getter
+     * @param annotation the annotation
+     * @return the converter
+     */
+    private static TypeConverter<?> newConverter(String member, Option annotation) {
+        try {
+            return annotation.converter().getDeclaredConstructor().newInstance();
+        } catch (Exception e) {
+            throw new CommandLineParserException(String.format("@Option on %s is invalid: unable to instantiate converter '%s'", member, annotation.converter().getName()));
+        }
+    }
+
+    /**
+     * Get the element type of a repeatable field or getter
+     * @param member the field or getter
+     * @param type the field type, or the getter return type
+     * @param genericType the generic type of the field, or the generic return type of the getter
+     * @return the component type of an array, the type argument of a collection, erased
+     */
+    static Class<?> elementType(Member member, Class<?> type, Type genericType) {
+        if (type.isArray()) return type.getComponentType();
+        final Class<?> rval = typeArgument(genericType);
+        if (rval == null)
+            throw new CommandLineParserException(String.format("@Option on %s is invalid: a repeatable option must declare its element type", describe(member)));
+        return rval;
+    }
+
+    /**
+     * Get the first type argument of a generic type
+     * @param type the generic type
+     * @return the type argument, erased, or null if there is none
+     */
+    private static Class<?> typeArgument(Type type) {
+        if (type instanceof ParameterizedType) {
+            final Type argument = ((ParameterizedType) type).getActualTypeArguments()[0];
+            if (argument instanceof Class) return (Class<?>) argument;
+            if (argument instanceof ParameterizedType) return (Class<?>) ((ParameterizedType) argument).getRawType();
+        }
+        return null;
+    }
+
+    /**
+     * Get the value type of a {@link Lazy} field or getter
+     * @param member the field or getter
+     * @param type the generic type of the field, or the generic return type of the getter
+     * @return the type argument, erased
+     */
+    private static Class<?> lazyValueType(Member member, Type type) {
+        final Class<?> rval = typeArgument(type);
+        if (rval != null) return rval;
+        throw new CommandLineParserException(String.format("@Option on %s is invalid: a Lazy option must declare its value type", describe(member)));
+    }
+
+    /**
+     * Build the converter of a {@link Lazy} option, which wraps raw values without converting them
+     * @param command the name of the Command owning the option
+     * @param member the field or getter
+     * @param annotation the annotation
+     * @param valueType the value type
+     * @param converter the converter of the value type, or null if the value type is not supported
+     * @return the converter
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static TypeConverter<?> lazyConverter(String command, Member member, Option annotation, Class<?> valueType, TypeConverter<?> converter) {
+        final TypeConverter<?> values = converter != null ? converter : value -> {
+            throw new CommandLineParserException("Unsupported object type");
+        };
+        return value -> new Lazy(command, annotation.name(), member.getName(), valueType, values, value);
+    }
+
+    /**
+     * Get the wrapper type of a primitive type
+     * @param type the type
+     * @return the wrapper type, or type if it is not primitive
+     */
+    static Class<?> boxed(Class<?> type) {
+        if (!type.isPrimitive()) return type;
+        if (type == boolean.class) return Boolean.class;
+        if (type == int.class) return Integer.class;
+        if (type == long.class) return Long.class;
+        if (type == byte.class) return Byte.class;
+        if (type == short.class) return Short.class;
+        if (type == double.class) return Double.class;
+        if (type == float.class) return Float.class;
+        if (type == char.class) return Character.class;
+        return Void.class;
+    }
+
+    /**
+     * Build a binder which converts values and writes them through a setter
+     * @param setter the field setter
+     * @param converter the converter, or null if the field type is not supported
+     * @return the binder
+     */
+    private static Binder binder(MethodHandle setter, TypeConverter<?> converter) {
+        if (converter == null) return unsupported();
+        final MethodHandle handle = setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+        return (data, value) -> {
+            handle.invokeExact(data, (Object) converter.convert(value));
+        };
+    }
+
+    /**
+     * Build a binder which always writes the same, already converted, value
+     * @param setter the field setter
+     * @param converted the converted value
+     * @return the binder
+     */
+    private static Binder constantBinder(MethodHandle setter, Object converted) {
+        final MethodHandle handle = setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+        return (data, value) -> {
+            handle.invokeExact(data, converted);
+        };
+    }
+
+    /**
+     * Build a binder which converts and writes through {@link Field#set}, used when no setter can be resolved
+     * @param field the field
+     * @param converter the converter, or null if the field type is not supported
+     * @return the binder
+     */
+    private static Binder reflectiveBinder(Field field, TypeConverter<?> converter) {
+        if (converter == null) return unsupported();
+        return (data, value) -> field.set(data, converter.convert(value));
+    }
+
+    /**
+     * Build a binder for a field type without converter
+     * @return the binder
+     */
+    private static Binder unsupported() {
+        return (data, value) -> {
+            throw new CommandLineParserException("Unsupported object type");
+        };
+    }
+
+    /**
+     * Build a binder which converts and writes a primitive value without boxing
+     * @param setter the field setter
+     * @param type the primitive field type
+     * @return the binder
+     */
+    private static Binder primitiveBinder(MethodHandle setter, Class<?> type) {
+        final MethodHandle handle = setter.asType(MethodType.methodType(void.class, Object.class, type));
+        if (type == boolean.class) {
+            return (data, value) -> {
+                handle.invokeExact(data, Boolean.parseBoolean(value));
+            };
+        } else if (type == int.class) {
+            return (data, value) -> {
+                handle.invokeExact(data, (int) decode(value, Integer.MIN_VALUE, Integer.MAX_VALUE));
+            };
+        } else if (type == long.class) {
+            return (data, value) -> {
+                handle.invokeExact(data, decode(value, Long.MIN_VALUE, Long.MAX_VALUE));
+            };
+        } else if (type == byte.class) {
+            return (data, value) -> {
+                handle.invokeExact(data, (byte) decode(value, Byte.MIN_VALUE, Byte.MAX_VALUE));
+            };
+        } else if (type == short.class) {
+            return (data, value) -> {
+                handle.invokeExact(data, (short) decode(value, Short.MIN_VALUE, Short.MAX_VALUE));
+            };
+        } else if (type == double.class) {
+            return (data, value) -> {
+                handle.invokeExact(data, Double.parseDouble(value));
+            };
+        } else if (type == float.class) {
+            return (data, value) -> {
+                handle.invokeExact(data, Float.parseFloat(value));
+            };
+        } else if (type == char.class) {
+            return (data, value) -> {
+                handle.invokeExact(data, TypeConverters.parseChar(value));
+            };
+        }
+        return unsupported();
+    }
+
+    /**
+     * Build a binder which converts values and writes them to a slot of a {@link CommandValues}
+     * @param index the option ordinal
+     * @param type the getter return type
+     * @param converter the converter, or null if the type is not supported
+     * @return the binder
+     */
+    private static Binder valuesBinder(int index, Class<?> type, TypeConverter<?> converter) {
+        if (converter == null) return unsupported();
+        if (type.isPrimitive()) return (data, value) -> CommandValues.of(data).setBits(index, CommandValues.bits(type, converter.convert(value)));
+        return (data, value) -> CommandValues.of(data).setObject(index, converter.convert(value));
+    }
+
+    /**
+     * Build a binder which parses a primitive value and writes its bits to a slot of a {@link CommandValues}, without boxing
+     * @param index the option ordinal
+     * @param type the primitive getter return type
+     * @return the binder
+     */
+    private static Binder primitiveValuesBinder(int index, Class<?> type) {
+        if (type == boolean.class) {
+            return (data, value) -> CommandValues.of(data).setBits(index, Boolean.parseBoolean(value) ? 1 : 0);
+        } else if (type == int.class) {
+            return (data, value) -> CommandValues.of(data).setBits(index, decode(value, Integer.MIN_VALUE, Integer.MAX_VALUE));
+        } else if (type == long.class) {
+            return (data, value) -> CommandValues.of(data).setBits(index, decode(value, Long.MIN_VALUE, Long.MAX_VALUE));
+        } else if (type == byte.class) {
+            return (data, value) -> CommandValues.of(data).setBits(index, decode(value, Byte.MIN_VALUE, Byte.MAX_VALUE));
+        } else if (type == short.class) {
+            return (data, value) -> CommandValues.of(data).setBits(index, decode(value, Short.MIN_VALUE, Short.MAX_VALUE));
+        } else if (type == double.class) {
+            return (data, value) -> CommandValues.of(data).setBits(index, Double.doubleToRawLongBits(Double.parseDouble(value)));
+        } else if (type == float.class) {
+            return (data, value) -> CommandValues.of(data).setBits(index, Float.floatToRawIntBits(Float.parseFloat(value)));
+        } else if (type == char.class) {
+            return (data, value) -> CommandValues.of(data).setBits(index, TypeConverters.parseChar(value));
+        }
+        return unsupported();
+    }
+
+    /**
+     * Decodes an integral value with the same syntax and range checks as {@link Long#decode(String)}, without boxing
+     * @param value the value
+     * @param min the minimum value of the target type
+     * @param max the maximum value of the target type
+     * @return the decoded value
+     */
+    static long decode(String value, long min, long max) {
+        if (value.isEmpty()) throw new NumberFormatException("Zero length string");
+        int index = 0;
+        int radix = 10;
+        final boolean negative = value.charAt(0) == '-';
+        if (negative || value.charAt(0) == '+') index++;
+        if (value.startsWith("0x", index) || value.startsWith("0X", index)) {
+            index += 2;
+            radix = 16;
+        } else if (value.startsWith("#", index)) {
+            index++;
+            radix = 16;
+        } else if (value.startsWith("0", index) && value.length() > index + 1) {
+            index++;
+            radix = 8;
+        }
+        if (value.startsWith("-", index) || value.startsWith("+", index))
+            throw new NumberFormatException("Sign character in wrong position");
+        final long rval = index == 0 ? Long.parseLong(value, radix) : Long.parseLong(negative ? "-" + value.substring(index) : value.substring(index), radix);
+        if (rval < min || rval > max)
+            throw new NumberFormatException("Value out of range. Value:\"" + value + "\" Radix:" + radix);
+        return rval;
+    }
+
+    /**
+     * Converts and writes values to an option field
+     */
+    interface Binder {
+        /**
+         * bind a value to the field
+         * @param data the command data object
+         * @param value the value
+         * @throws Throwable if the value cannot be converted or assigned
+         */
+        void bind(Object data, String value) throws Throwable;
+    }
+}
@@ -2,15 +2,14 @@ package com.lupusumbra.util.commandline;
 
 
 import com.lupusumbra.util.commandline.annotation.Option;
-import com.lupusumbra.util.commandline.exception.CommandLineParserException;
 
-import java.io.File;
 import java.lang.reflect.Field;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 
 /**
  * The OptionParser class is responsible for managing the field level interactions of the CommandLineParser, as well as tracking some additional metadata
+ *
+ * An OptionParser is a view of one option of a {@link ParseResult}; the field metadata it exposes is shared through its
+ * {@link OptionModel}.
  */
 public class OptionParser {
     //the field the OptionParser is bound to
@@ -19,19 +18,22 @@ public class OptionParser {
     public final Class fieldType;
     //the annotation associated with the field
     public final Option annotation;
-    //a metadata flag which indicates that the option was provided on the command-line
-    private boolean provided;
+    //the shared, per-class option model
+    final OptionModel model;
+    //the parse this OptionParser belongs to
+    private final ParseResult<?> result;
 
     /**
      * Instantiate an {@link OptionParser}
-     * @param field the field
-     * @param annotation the annotation
+     * @param model the shared option model
+     * @param result the parse this OptionParser belongs to
      */
-    OptionParser(Field field, Option annotation) {
-        this.field = field;
-        this.fieldType = field.getType();
-        this.annotation = annotation;
-        this.provided = false;
+    OptionParser(OptionModel model, ParseResult<?> result) {
+        this.model = model;
+        this.result = result;
+        this.field = model.field;
+        this.fieldType = model.fieldType;
+        this.annotation = model.annotation;
     }
 
     /**
@@ -39,7 +41,7 @@ public class OptionParser {
      * @return true if the option was provided
      */
     public boolean provided() {
-        return this.provided;
+        return this.result.provided(this.model.index);
     }
 
     /**
@@ -47,9 +49,7 @@ public class OptionParser {
      * @return the info message
      */
     public String toString() {
-        final String optsText = CommandLineParser.formatOptions(this.annotation.shortKey(), this.annotation.longKey());
-        final String descText = CommandLineParser.formatSentence(this.annotation.description(), true);
-        return String.format("%s  %s", optsText, descText);
+        return this.model.toString();
     }
 
     /**
@@ -58,47 +58,7 @@ public class OptionParser {
      * @param value the value
      */
     public void process(final Object data, String value) {
-        if (this.fieldType.equals(Boolean.class) || this.fieldType.equals(boolean.class)) value = "true";
-        if (value == null || value.isEmpty()) value = this.annotation.defaultValue();
-        setValue(data, this.field, value);
-        this.provided = true;
-    }
-
-    /**
-     * Assign a value to a field
-     * @param data the command data object
-     * @param field the target field
-     * @param value the value to assign
-     */
-    private static void setValue(Object data, Field field, String value) {
-        final Class<?> type = field.getType();
-        try {
-            if (type == String.class) {
-                field.set(data, value);
-            } else if (type == boolean.class || type == Boolean.class) {
-                field.set(data, Boolean.parseBoolean(value));
-            } else if (type == int.class || type == Integer.class) {
-                field.set(data, Integer.decode(value));
-            } else if (type == long.class || type == Long.class) {
-                field.set(data, Long.decode(value));
-            } else if (type == byte.class || type == Byte.class) {
-                field.set(data, Byte.decode(value));
-            } else if (type == short.class || type == Short.class) {
-                field.set(data, Short.decode(value));
-            } else if (type == double.class || type == Double.class) {
-                field.set(data, Double.parseDouble(value));
-            } else if (type == float.class || type == Float.class) {
-                field.set(data, Float.parseFloat(value));
-            } else if (type == char.class || type == Character.class) {
-                field.set(data, value.startsWith("0x")?((char)Integer.parseInt(value.substring(2),16)):value.charAt(0));
-            } else if (type == File.class) {
-                field.set(data, new File(value));
-            } else if (type == Path.class) {
-                field.set(data, Paths.get(value));
-            } else throw new CommandLineParserException("Unsupported object type");
-        } catch (Exception e) {
-            System.err.println("Unable to set field(name='" + field.getName() + "', type='" + type.getName() + "') with value: '" + value + "'");
-            e.printStackTrace();
-        }
+        this.result.process(this.model, data, value);
+        if (this.model.accumulator != null) this.result.complete(this.model, data);
     }
 }
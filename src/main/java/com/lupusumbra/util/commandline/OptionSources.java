@@ -0,0 +1,131 @@
+package com.lupusumbra.util.commandline;
+
+import com.lupusumbra.util.commandline.exception.CommandLineParserException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Function;
+
+/**
+ * The sources of the options not given on the command line: an environment, then a properties file.
+ *
+ * Both are only read for options which declare an {@link com.lupusumbra.util.commandline.annotation.Option#env()} or
+ * {@link com.lupusumbra.util.commandline.annotation.Option#property()} key and weren't given on the command line. The
+ * properties file is loaded and indexed on its first lookup, then shared by every parse of the parser holding it, and
+ * by the parsers derived from it with another environment.
+ */
+final class OptionSources {
+    //the process environment, and no properties file
+    static final OptionSources SYSTEM = new OptionSources(System::getenv, null);
+    //looks environment variables up, returning null when unset
+    private final Function<String, String> environment;
+    //the properties file, or null
+    private final PropertiesFile properties;
+
+    /**
+     * Instantiate an {@link OptionSources}
+     * @param environment looks environment variables up, returning null when unset
+     * @param properties the properties file, or null
+     */
+    private OptionSources(final Function<String, String> environment, final PropertiesFile properties) {
+        this.environment = environment;
+        this.properties = properties;
+    }
+
+    /**
+     * Get sources reading another environment, sharing the properties file and its index
+     * @param environment the environment variables
+     * @return the new sources
+     */
+    OptionSources environment(final Map<String, String> environment) {
+        final Map<String, String> copy = Collections.unmodifiableMap(new HashMap<>(environment));
+        return new OptionSources(copy::get, this.properties);
+    }
+
+    /**
+     * Get sources reading another properties file
+     * @param file the properties file, or null for none
+     * @return the new sources
+     */
+    OptionSources properties(final Path file) {
+        return new OptionSources(this.environment, file == null ? null : new PropertiesFile(file));
+    }
+
+    /**
+     * Lookup an environment variable
+     * @param name the variable name
+     * @return the value, or null if it is unset
+     */
+    String environment(final String name) {
+        return this.environment.apply(name);
+    }
+
+    /**
+     * Lookup a property, loading the properties file on first use
+     * @param key the property key
+     * @return the value, or null if there is no such property or no properties file
+     * @throws CommandLineParserException if the properties file cannot be read
+     */
+    String property(final String key) {
+        return this.properties == null ? null : this.properties.get(key);
+    }
+
+    /**
+     * A properties file, loaded and indexed on first use
+     */
+    private static final class PropertiesFile {
+        //the properties file
+        private final Path file;
+        //the properties, or null until first needed
+        private volatile Map<String, String> properties;
+
+        /**
+         * Instantiate a {@link PropertiesFile}
+         * @param file the properties file
+         */
+        private PropertiesFile(final Path file) {
+            this.file = file;
+        }
+
+        /**
+         * Lookup a property, loading the properties file on first use
+         * @param key the property key
+         * @return the value, or null if there is no such property
+         * @throws CommandLineParserException if the properties file cannot be read
+         */
+        private String get(final String key) {
+            Map<String, String> properties = this.properties;
+            if (properties == null) {
+                synchronized (this) {
+                    properties = this.properties;
+                    if (properties == null) this.properties = properties = this.load();
+                }
+            }
+            return properties.get(key);
+        }
+
+        /**
+         * Load and index the properties file
+         * @return the properties
+         * @throws CommandLineParserException if the properties file cannot be read
+         */
+        private Map<String, String> load() {
+            final Properties properties = new Properties();
+            try (Reader in = Files.newBufferedReader(this.file, StandardCharsets.UTF_8)) {
+                properties.load(in);
+            } catch (IOException e) {
+                throw new CommandLineParserException("Unable to read properties from " + this.file + ": " + e);
+            }
+            final Map<String, String> rval = new HashMap<>(properties.size() * 2);
+            for (String key : properties.stringPropertyNames()) rval.put(key, properties.getProperty(key));
+            return rval;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.lupusumbra.util.commandline;
+
+/**
+ * Emits the Flight Recorder events of parses, when the running JVM has Flight Recorder.
+ *
+ * The bridge to jdk.jfr and the event classes live in the jfr source set, compiled against Java 11 apart from the main
+ * classes, which are compiled against Java 8. The jdk.jfr classes are only loaded when they exist, so the parser still runs on
+ * JVMs without them; the event classes are only loaded once Flight Recorder is initialized, and an event is only created
+ * when a recording enables it, so parses pay nothing while no recording is running.
+ */
+abstract class ParseEvents {
+    //the events of the running JVM
+    static final ParseEvents INSTANCE = load();
+
+    /**
+     * Start a parse event
+     * @return the event, or null if it is disabled
+     */
+    abstract Object beginParse();
+
+    /**
+     * End a parse event
+     * @param event the event returned by {@link #beginParse()}
+     * @param result the parse result
+     * @param tokens the number of arguments tokenized
+     * @param failure the exception which stopped the parse, or null
+     */
+    abstract void endParse(Object event, ParseResult<?> result, int tokens, Throwable failure);
+
+    /**
+     * Start a model build event
+     * @return the event, or null if it is disabled
+     */
+    abstract Object beginModel();
+
+    /**
+     * End a model build event
+     * @param event the event returned by {@link #beginModel()}
+     * @param model the model
+     * @param source where the model was built from: "generated", "snapshot" or "reflection"
+     */
+    abstract void endModel(Object event, CommandModel model, String source);
+
+    /**
+     * Report a value which couldn't be converted and bound to an option field
+     * @param command the name of the Command owning the option
+     * @param option the registered name of the option
+     * @param fieldType the type the value was converted to
+     * @param value the raw value
+     * @param error the error
+     */
+    abstract void conversionFailed(String command, String option, Class<?> fieldType, String value, Throwable error);
+
+    /**
+     * Load the Flight Recorder events, or events which do nothing if jdk.jfr is missing
+     * @return the events
+     */
+    private static ParseEvents load() {
+        try {
+            Class.forName("jdk.jfr.Event", false, ParseEvents.class.getClassLoader());
+            return (ParseEvents) Class.forName("com.lupusumbra.util.commandline.JfrParseEvents").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new ParseEvents() {
+                @Override
+                Object beginParse() {
+                    return null;
+                }
+
+                @Override
+                void endParse(Object event, ParseResult<?> result, int tokens, Throwable failure) {
+                }
+
+                @Override
+                Object beginModel() {
+                    return null;
+                }
+
+                @Override
+                void endModel(Object event, CommandModel model, String source) {
+                }
+
+                @Override
+                void conversionFailed(String command, String option, Class<?> fieldType, String value, Throwable error) {
+                }
+            };
+        }
+    }
+}
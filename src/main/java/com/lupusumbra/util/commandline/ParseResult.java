@@ -0,0 +1,583 @@
+package com.lupusumbra.util.commandline;
+
+import com.lupusumbra.util.commandline.CommandModel.SubCommandModel;
+import com.lupusumbra.util.commandline.exception.AmbiguousOptionException;
+import com.lupusumbra.util.commandline.exception.CommandLineParserException;
+import com.lupusumbra.util.commandline.exception.UnknownOptionException;
+import com.lupusumbra.util.commandline.listener.ParseListener;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * The outcome of a single parse: the bound data Object, the selected SubCommand path, the parameters, and which
+ * options were provided.
+ *
+ * A ParseResult is created and filled by one parse and never shared with another one, so any number of parses of the
+ * same Command class can run concurrently.
+ *
+ * @param <T> the Command data Object type
+ */
+public final class ParseResult<T> {
+    //the shared, per-class Command model
+    final CommandModel model;
+    //Command Argument Object
+    private final T data;
+    //List of additional, non-option parameters
+    private final List<String> parameters;
+    //provided options, indexed like the model options
+    private final BitSet provided;
+    //SubCommand results by registered name, created when selected or first looked up; null until then
+    private Map<String, ParseResult<?>> subCommands;
+    //selected flag
+    private boolean selected;
+    //the registered name of the selected SubCommand, or null
+    private String selectedSubCommandName;
+    //selected SubCommand result
+    private ParseResult<?> selectedSubCommand;
+    //the listener of the parse, or null
+    private ParseListener listener;
+    //where each option value came from, indexed like the model options; null until an option is read from a source
+    private Source[] sources;
+    //the buffers of the repeatable options, indexed like the model options; null until a repeatable option is bound
+    private ValueAccumulator[] accumulators;
+
+    /**
+     * Creates a new {@link ParseResult}; the SubCommand data Objects are only instantiated and assigned when needed
+     * @param model the Command model
+     * @param data the data Object
+     */
+    @SuppressWarnings("unchecked")
+    ParseResult(final CommandModel model, final Object data) {
+        if (data == null)
+            throw new CommandLineParserException("The Command Data Object *MUST* not be null, and *MUST* have a no-args public constructor");
+        this.model = model;
+        this.data = (T) data;
+        this.provided = new BitSet(model.options.length);
+        this.parameters = model.compactParameters ? new CompactStringList() : new ArrayList<>();
+        this.model.parameters.set(data, this.parameters);
+    }
+
+    /**
+     * Get the Command name
+     * @return the name
+     */
+    public String name() {
+        return this.model.name;
+    }
+
+    /**
+     * Returns the data object
+     * @return the data object
+     */
+    public T data() {
+        return this.data;
+    }
+
+    /**
+     * Returns a list of parameters
+     * @return the list of parameters
+     */
+    public List<String> parameters() {
+        return this.parameters;
+    }
+
+    /**
+     * Check if this Command has been selected
+     * @return true if selected
+     */
+    public boolean selected() {
+        return this.selected;
+    }
+
+    /**
+     * Check if an option was provided
+     * @param name the registered name of the option (scoped by Command)
+     * @return true if the option was provided, false if it wasn't or doesn't exist
+     */
+    public boolean provided(final String name) {
+        final OptionModel option = this.model.optionsByName.get(name);
+        return option != null && this.provided(option.index);
+    }
+
+    /**
+     * Get where the value of an option came from
+     * @param name the registered name of the option (scoped by Command)
+     * @return the source, or null if the option wasn't set, or doesn't exist
+     */
+    public Source source(final String name) {
+        final OptionModel option = this.model.optionsByName.get(name);
+        if (option == null) return null;
+        if (this.provided(option.index)) return Source.ARGUMENTS;
+        return this.sources == null ? null : this.sources[option.index];
+    }
+
+    /**
+     * Check if an option was provided
+     * @param index the option index
+     * @return true if the option was provided
+     */
+    boolean provided(final int index) {
+        return this.provided.get(index);
+    }
+
+    /**
+     * Gets the SubCommand result by registered name, instantiating the SubCommand data Object and assigning it to its
+     * parent field on first lookup
+     * @param name the registered name
+     * @return the SubCommand result, or null if it doesn't exist
+     */
+    public ParseResult<?> subCommand(final String name) {
+        ParseResult<?> rval = this.subCommands == null ? null : this.subCommands.get(name);
+        if (rval != null) return rval;
+        final SubCommandModel subCommandModel = this.model.subCommands.get(name);
+        if (subCommandModel == null) return null;
+        final CommandModel model = subCommandModel.model();
+        rval = new ParseResult<>(model, model.newInstance());
+        subCommandModel.field.set(this.data, rval.data());
+        if (this.subCommands == null) this.subCommands = new HashMap<>();
+        this.subCommands.put(name, rval);
+        return rval;
+    }
+
+    /**
+     * Get the registered names of all SubCommands
+     * @return the SubCommand names
+     */
+    public Set<String> subCommands() {
+        return this.model.subCommands.keySet();
+    }
+
+    /**
+     * Gets the selected SubCommand result
+     * @return the selected SubCommand result, or null if none was selected
+     */
+    public ParseResult<?> selectedSubCommand() {
+        return this.selectedSubCommand;
+    }
+
+    /**
+     * Gets the registered name of the selected SubCommand
+     * @return the name, or null if none was selected
+     */
+    String selectedSubCommandName() {
+        return this.selectedSubCommandName;
+    }
+
+    /**
+     * Get the registered names of the selected SubCommands, outermost first
+     * @return the selected SubCommand path, empty if no SubCommand was selected
+     */
+    public List<String> subCommandPath() {
+        final List<String> rval = new ArrayList<>();
+        for (ParseResult<?> result = this; result.selectedSubCommand != null; result = result.selectedSubCommand)
+            rval.add(result.selectedSubCommandName);
+        return rval;
+    }
+
+    /**
+     * Generates a String representation of the {@link ParseResult}
+     * @return the String representation
+     */
+    @Override
+    public String toString() {
+        return "ParseResult{" +
+                "name='" + this.name() + '\'' +
+                ", subCommandPath=" + this.subCommandPath() +
+                ", parameters=" + this.parameters +
+                '}';
+    }
+
+    /**
+     * parse a command line
+     *
+     * Each arg is scanned once. Keys in key=value form carry their own value; a non-boolean key without one takes the
+     * next arg as its value, as long as that arg isn't a key itself. Args are pulled from the source one at a time, so
+     * a lazy source is never held in full, and dispatched through the flattened SubCommand path, so their cost doesn't
+     * depend on how deep the selected SubCommand is. The options of this Command and of the selected SubCommands which weren't given
+     * are then read from the option sources.
+     *
+     * @param args the source of the commandline args
+     * @param usage the usage message consumer
+     * @param listener the listener, or null
+     * @param sources the sources of the options not given on the command line
+     * @return this result
+     */
+    ParseResult<T> parse(final Arguments args, final Consumer<String> usage, final ParseListener listener, final OptionSources sources) {
+        this.listener = listener;
+        final long start = listener == null ? 0 : System.nanoTime();
+        final Object event = ParseEvents.INSTANCE.beginParse();
+        final ArgumentToken token = new ArgumentToken();
+        final ActivePath path = new ActivePath(this);
+        int tokens = 0;
+        Throwable failure = null;
+        try {
+            String arg = args.next();
+            while (arg != null) {
+                tokens++;
+                String following = args.next();
+                final String next = following == null || following.startsWith("-") ? null : following;
+                if (path.parse(this.scan(token, arg), next, usage)) following = args.next();
+                arg = following;
+            }
+            for (ParseResult<?> result = this; result != null; result = result.selectedSubCommand) {
+                result.resolve(sources);
+                result.complete();
+            }
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            throw e;
+        } finally {
+            args.close();
+            if (listener != null) listener.parsed(this.name(), failure, System.nanoTime() - start);
+            if (event != null) ParseEvents.INSTANCE.endParse(event, this, tokens, failure);
+        }
+        return this;
+    }
+
+    /**
+     * Bind the options which weren't given on the command line from their environment variable, then their property,
+     * then their default value
+     * @param sources the option sources
+     */
+    private void resolve(final OptionSources sources) {
+        for (int index : this.model.sourcedOptions) {
+            if (this.provided(index)) continue;
+            final OptionModel option = this.model.options[index];
+            final String env = option.annotation.env();
+            final String property = option.annotation.property();
+            String value = env.isEmpty() ? null : sources.environment(env);
+            Source source = Source.ENVIRONMENT;
+            if (value == null && !property.isEmpty()) {
+                value = sources.property(property);
+                source = Source.PROPERTIES;
+            }
+            if (value == null && !option.annotation.defaultValue().isEmpty()) {
+                value = option.annotation.defaultValue();
+                source = Source.DEFAULT;
+            }
+            if (value == null) continue;
+            this.bind(option, this.data, value, source);
+            if (this.sources == null) this.sources = new Source[this.model.options.length];
+            this.sources[index] = source;
+        }
+    }
+
+    /**
+     * Assign the values accumulated by the repeatable options
+     */
+    private void complete() {
+        if (this.accumulators == null) return;
+        for (int i = 0; i < this.accumulators.length; i++)
+            if (this.accumulators[i] != null) this.model.options[i].complete(this.data, this.accumulators[i]);
+    }
+
+    /**
+     * Assign the values accumulated by a repeatable option
+     * @param option the option
+     * @param data the command data object
+     */
+    void complete(final OptionModel option, final Object data) {
+        if (this.accumulators != null && this.accumulators[option.index] != null) option.complete(data, this.accumulators[option.index]);
+    }
+
+    /**
+     * Get the buffer of a repeatable option, created on first use
+     * @param option the option
+     * @return the buffer
+     */
+    private ValueAccumulator accumulator(final OptionModel option) {
+        if (this.accumulators == null) this.accumulators = new ValueAccumulator[this.model.options.length];
+        ValueAccumulator rval = this.accumulators[option.index];
+        if (rval == null) {
+            rval = option.accumulator.get();
+            this.accumulators[option.index] = rval;
+        }
+        return rval;
+    }
+
+    /**
+     * Tokenize a raw argument
+     * @param token the token to reuse
+     * @param arg the raw argument
+     * @return the token
+     */
+    private ArgumentToken scan(final ArgumentToken token, final String arg) {
+        final ParseListener listener = this.listener;
+        final long start = listener == null ? 0 : System.nanoTime();
+        token.scan(arg);
+        if (listener != null) listener.argumentScanned(this.name(), arg, System.nanoTime() - start);
+        return token;
+    }
+
+    /**
+     * Parse an arg which is neither a usage key nor a SubCommand name of the selected SubCommand path
+     * @param token the scanned arg
+     * @param next the next raw argument, if it can be used as a value, or null
+     * @return true if the next raw argument should be skipped (typically if it was used as the value of a non-boolean key)
+     */
+    private boolean parseArgument(final ArgumentToken token, final String next) {
+        this.selected = true;
+        if (token.isOption()) return this.parseTokenAsOption(token, next);
+        this.parameters.add(token.arg);
+        return false;
+    }
+
+    /**
+     * Get the usage message
+     * @return the usage message
+     */
+    private String usage() {
+        final ParseListener listener = this.listener;
+        final long start = listener == null ? 0 : System.nanoTime();
+        final String rval = this.model.usage();
+        if (listener != null) listener.usageRendered(this.name(), System.nanoTime() - start);
+        return rval;
+    }
+
+    /**
+     * Select a SubCommand, which joins the parse
+     * @param name the registered name
+     */
+    private void selectSubCommand(final String name) {
+        final ParseListener listener = this.listener;
+        final long start = listener == null ? 0 : System.nanoTime();
+        this.selectedSubCommandName = name;
+        this.selectedSubCommand = this.subCommand(name);
+        this.selectedSubCommand.listener = listener;
+        if (listener != null) listener.subCommandSelected(this.name(), name, System.nanoTime() - start);
+    }
+
+    /**
+     * Process a token as an Option
+     *
+     * if it is a compound short-format key ( for example -abc ), process as multiple short-format keys; only the last one may take a value
+     * @param token the token
+     * @param next the next raw argument, if it can be used as a value, or null
+     * @return true if the next raw argument was used as the value
+     */
+    private boolean parseTokenAsOption(final ArgumentToken token, final String next) {
+        if (!token.isShort()) return this.processOption(this.optionByLongKey(token), null, token.value(), next);
+        final int length = token.keyLength();
+        if (length == 0) {
+            if (token.hasValue() && token.value().length() > 0) throw new UnknownOptionException("Unknown option: ''");
+            return false;
+        }
+        for (int i = 0; i < length - 1; i++) this.processOption(this.optionByShortKey(token, i), token.keyChar(i), null, null);
+        return this.processOption(this.optionByShortKey(token, length - 1), token.keyChar(length - 1), token.value(), next);
+    }
+
+    /**
+     * Lookup an option by a short-format key of a token
+     * @param token the token
+     * @param i the key index within the token
+     * @return the option, or null if the key doesn't exist
+     */
+    private OptionModel optionByShortKey(final ArgumentToken token, final int i) {
+        final ParseListener listener = this.listener;
+        final long start = listener == null ? 0 : System.nanoTime();
+        final OptionModel rval = this.model.optionByShortKey(token.keyChar(i));
+        if (listener != null) listener.optionResolved(this.name(), token.arg, rval == null ? null : rval.annotation, System.nanoTime() - start);
+        return rval;
+    }
+
+    /**
+     * Lookup an option by the long-format key of a token, or an unambiguous prefix of it
+     * @param token the token
+     * @return the option
+     * @throws UnknownOptionException if the key doesn't exist
+     * @throws AmbiguousOptionException if the key is a prefix of several keys
+     */
+    private OptionModel optionByLongKey(final ArgumentToken token) {
+        final ParseListener listener = this.listener;
+        final long start = listener == null ? 0 : System.nanoTime();
+        final int index = this.model.findLongKey(token.arg, token.keyStart(), token.keyEnd());
+        if (listener != null) listener.optionResolved(this.name(), token.arg, index >= 0 ? this.model.options[index].annotation : null, System.nanoTime() - start);
+        if (index >= 0) return this.model.options[index];
+        final String key = token.key();
+        if (index == LongKeyTrie.AMBIGUOUS)
+            throw new AmbiguousOptionException("Ambiguous option: '" + key + "' could be " + String.join(", ", this.model.longKeysWithPrefix(key)));
+        throw new UnknownOptionException("Unknown option: '" + key + "'");
+    }
+
+    /**
+     * Process an Option
+     * @param option the option, or null if the key is unknown
+     * @param key the key, used to report unknown options
+     * @param value the inline value, or null
+     * @param next the next raw argument, if it can be used as a value, or null
+     * @return true if the next raw argument was used as the value
+     */
+    private boolean processOption(final OptionModel option, final Object key, final String value, final String next) {
+        if (option == null) throw new UnknownOptionException("Unknown option: '" + key + "'");
+        final boolean useNext = value == null && next != null && !option.isBoolean;
+        this.process(option, this.data, useNext ? next : value);
+        return useNext;
+    }
+
+    /**
+     * bind a value to an option field, and mark the option as provided
+     * @param option the option
+     * @param data the command data object
+     * @param value the value
+     */
+    void process(final OptionModel option, final Object data, final String value) {
+        this.bind(option, data, value, null);
+        this.provide(option.index);
+    }
+
+    /**
+     * bind a value to an option field, or add it to the buffer of a repeatable option
+     * @param option the option
+     * @param data the command data object
+     * @param value the value
+     * @param source the option source the value was read from, or null to bind a command-line value
+     */
+    private void bind(final OptionModel option, final Object data, final String value, final Source source) {
+        final ParseListener listener = this.listener;
+        final long start = listener == null ? 0 : System.nanoTime();
+        final Object target = option.accumulator == null ? data : this.accumulator(option);
+        final Throwable error = source == null ? option.process(target, value) : option.resolve(target, value, source == Source.DEFAULT);
+        if (error != null) ParseEvents.INSTANCE.conversionFailed(this.name(), option.annotation.name(), option.fieldType, value, error);
+        if (listener != null) listener.optionBound(this.name(), option.annotation, value, error == null, System.nanoTime() - start);
+    }
+
+    /**
+     * mark an option as provided
+     * @param index the option index
+     */
+    void provide(final int index) {
+        this.provided.set(index);
+        if (this.model.dataClass.isInterface()) CommandValues.of(this.data).provide(index);
+    }
+
+    /**
+     * The selected SubCommand path of one parse, flattened so that an arg is dispatched without walking it.
+     *
+     * An arg goes to the outermost Command of the path which takes it as a usage key or as a SubCommand name, a usage
+     * key winning within one Command; any other arg goes to the innermost Command. The usage keys of the path are merged
+     * as SubCommands are selected; SubCommand names are looked up in the {@link SubCommandTable} of each level, outermost
+     * first, so a parse copies none of them.
+     */
+    private static final class ActivePath {
+        //the selected Commands, outermost first
+        private ParseResult<?>[] levels = new ParseResult<?>[4];
+        //the number of selected Commands
+        private int depth;
+        //the distinct usage keys of the path
+        private String[] usageKeys = new String[8];
+        //the outermost level registering each usage key, parallel to usageKeys
+        private int[] usageLevels = new int[8];
+        //the number of distinct usage keys
+        private int usageKeyCount;
+
+        /**
+         * Instantiate an {@link ActivePath}, holding the root Command and its selected SubCommands
+         * @param root the root Command
+         */
+        ActivePath(final ParseResult<?> root) {
+            this.pushAll(root);
+        }
+
+        /**
+         * Dispatch an arg
+         * @param token the scanned arg
+         * @param next the next raw argument, if it can be used as a value, or null
+         * @param usage the usage message consumer
+         * @return true if the next raw argument should be skipped (typically if it was used as the value of a non-boolean key)
+         */
+        boolean parse(final ArgumentToken token, final String next, final Consumer<String> usage) {
+            int usageLevel = Integer.MAX_VALUE;
+            for (int i = 0; i < this.usageKeyCount; i++) {
+                if (token.keyEquals(this.usageKeys[i])) {
+                    usageLevel = this.usageLevels[i];
+                    break;
+                }
+            }
+            int subCommandLevel = -1;
+            for (int i = 0; i < this.depth && i < usageLevel; i++) {
+                if (this.levels[i].model.subCommands.containsKey(token.arg)) {
+                    subCommandLevel = i;
+                    break;
+                }
+            }
+            if (usageLevel != Integer.MAX_VALUE && subCommandLevel < 0) {
+                final ParseResult<?> result = this.levels[usageLevel];
+                result.selected = true;
+                usage.accept(result.usage());
+            } else if (subCommandLevel >= 0) {
+                final ParseResult<?> result = this.levels[subCommandLevel];
+                result.selected = true;
+                result.selectSubCommand(token.arg);
+                this.truncate(subCommandLevel + 1);
+                this.pushAll(result.selectedSubCommand);
+            } else {
+                return this.levels[this.depth - 1].parseArgument(token, next);
+            }
+            return false;
+        }
+
+        /**
+         * Append a Command to the path, along with the SubCommands it had selected
+         * @param result the Command
+         */
+        private void pushAll(final ParseResult<?> result) {
+            for (ParseResult<?> level = result; level != null; level = level.selectedSubCommand) this.push(level);
+        }
+
+        /**
+         * Append a Command to the path, merging its usage keys
+         * @param result the Command
+         */
+        private void push(final ParseResult<?> result) {
+            if (this.depth == this.levels.length) this.levels = Arrays.copyOf(this.levels, this.depth * 2);
+            final int level = this.depth++;
+            this.levels[level] = result;
+            this.addUsageKey(result.model.usageKeyShort, level);
+            this.addUsageKey(result.model.usageKeyLong, level);
+        }
+
+        /**
+         * Merge a usage key, unless an outer Command already registers it
+         * @param key the usage key, or null
+         * @param level the level of the Command
+         */
+        private void addUsageKey(final String key, final int level) {
+            if (key == null) return;
+            for (int i = 0; i < this.usageKeyCount; i++) if (this.usageKeys[i].equals(key)) return;
+            if (this.usageKeyCount == this.usageKeys.length) {
+                this.usageKeys = Arrays.copyOf(this.usageKeys, this.usageKeyCount * 2);
+                this.usageLevels = Arrays.copyOf(this.usageLevels, this.usageKeyCount * 2);
+            }
+            this.usageKeys[this.usageKeyCount] = key;
+            this.usageLevels[this.usageKeyCount++] = level;
+        }
+
+        /**
+         * Drop the innermost Commands of the path, when an outer Command selects another SubCommand
+         * @param depth the number of Commands to keep
+         */
+        private void truncate(final int depth) {
+            if (depth == this.depth) return;
+            final ParseResult<?>[] levels = this.levels;
+            this.depth = 0;
+            this.usageKeyCount = 0;
+            for (int i = 0; i < depth; i++) this.push(levels[i]);
+            Arrays.fill(this.levels, depth, this.levels.length, null);
+        }
+    }
+
+    /**
+     * Where the value of an option came from
+     */
+    public enum Source {
+        //given on the command line
+        ARGUMENTS,
+        //read from the option's environment variable
+        ENVIRONMENT,
+        //read from the parser's properties file
+        PROPERTIES,
+        //the option's default value
+        DEFAULT
+    }
+}
@@ -0,0 +1,112 @@
+package com.lupusumbra.util.commandline;
+
+import com.lupusumbra.util.commandline.exception.CommandLineParserException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The {@link CommandValues} of an interface Command without a generated implementation, held by a {@link Proxy} which
+ * answers each getter from its slot. Default methods of the interface are called through a {@link MethodHandle} on the
+ * proxy, which needs a private {@link MethodHandles.Lookup} in the interface: {@code privateLookupIn} on Java 9+, and
+ * the Lookup constructor on Java 8. The generated implementation inherits them.
+ */
+final class ProxyValues extends CommandValues implements InvocationHandler {
+    //the arguments of a method without parameters, which a proxy receives as null
+    private static final Object[] NO_ARGUMENTS = {};
+    //slots by getter, shared by every instance of the interface
+    private final Map<Method, Integer> slots;
+    //the default methods of the interface, shared by every instance of the interface
+    private final Map<Method, MethodHandle> defaults;
+    //the proxy backed by this storage
+    private Object proxy;
+
+    /**
+     * Instantiate a {@link ProxyValues}, and its proxy
+     * @param commandInterface the Command interface
+     * @param options the number of options
+     * @param slots slots by getter: the options, then the parameter lists
+     * @param defaults the default methods of the interface, see {@link #defaults}
+     */
+    ProxyValues(final Class<?> commandInterface, final int options, final Map<Method, Integer> slots, final Map<Method, MethodHandle> defaults) {
+        super(commandInterface, options, slots.size());
+        this.slots = slots;
+        this.defaults = defaults;
+        this.proxy = this.newProxy();
+    }
+
+    @Override
+    Object data() {
+        return this.proxy;
+    }
+
+    @Override
+    void copied() {
+        this.proxy = this.newProxy();
+    }
+
+    @Override
+    public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+        final Integer slot = this.slots.get(method);
+        if (slot != null) return this.value(slot, method.getReturnType());
+        final MethodHandle body = this.defaults.get(method);
+        if (body != null) return body.bindTo(proxy).invokeWithArguments(args == null ? NO_ARGUMENTS : args);
+        switch (method.getName()) {
+            case "toString": return this.toString();
+            case "hashCode": return System.identityHashCode(proxy);
+            case "equals": return proxy == args[0];
+            default: throw new UnsupportedOperationException(method.toString());
+        }
+    }
+
+    /**
+     * Create a proxy backed by this storage
+     * @return the proxy
+     */
+    private Object newProxy() {
+        return Proxy.newProxyInstance(this.commandInterface.getClassLoader(), new Class<?>[]{this.commandInterface}, this);
+    }
+
+    /**
+     * Resolve the default methods of a Command interface, so that a proxy can call them
+     * @param commandInterface the Command interface
+     * @return the method handles by default method
+     * @throws CommandLineParserException if a default method cannot be called from outside the interface
+     */
+    static Map<Method, MethodHandle> defaults(final Class<?> commandInterface) {
+        final Map<Method, MethodHandle> rval = new HashMap<>();
+        for (Method method : commandInterface.getMethods()) {
+            if (!method.isDefault()) continue;
+            final Class<?> declaring = method.getDeclaringClass();
+            try {
+                rval.put(method, lookup(declaring).unreflectSpecial(method, declaring));
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                throw new CommandLineParserException(String.format("The default method '%s' of an interface Command cannot be called without a generated implementation: %s", method, e));
+            }
+        }
+        return rval;
+    }
+
+    /**
+     * Get a Lookup with private access to an interface
+     * @param type the interface
+     * @return the Lookup
+     * @throws ReflectiveOperationException if the interface isn't open to this library
+     */
+    private static MethodHandles.Lookup lookup(final Class<?> type) throws ReflectiveOperationException {
+        try {
+            return (MethodHandles.Lookup) MethodHandles.class.getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class).invoke(null, type, MethodHandles.lookup());
+        } catch (NoSuchMethodException e) {
+            //Java 8
+            final Constructor<MethodHandles.Lookup> constructor = MethodHandles.Lookup.class.getDeclaredConstructor(Class.class, int.class);
+            constructor.setAccessible(true);
+            return constructor.newInstance(type, MethodHandles.Lookup.PRIVATE);
+        }
+    }
+}
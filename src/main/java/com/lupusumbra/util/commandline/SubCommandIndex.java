@@ -0,0 +1,170 @@
+package com.lupusumbra.util.commandline;
+
+import com.lupusumbra.util.commandline.CommandModel.SubCommandModel;
+import com.lupusumbra.util.commandline.exception.CommandLineParserException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * The index of the {@link SubCommandPlugin}s of a jar, written at build time so that plugin SubCommands are listed
+ * without loading any plugin class.
+ *
+ * The index is the resource META-INF/commandline/subcommands.index, written next to the service file by {@link #main}.
+ * Each line holds the provider class, the parent Command class, the registered name and the SubCommand class, separated
+ * by tabs. When every provider of the service files visible to a class loader is indexed, the plugins are read from the
+ * indexes; otherwise they are instantiated through the {@link ServiceLoader}. Either way, the plugins are looked up
+ * once per class loader.
+ */
+public final class SubCommandIndex {
+    //the index resource
+    static final String RESOURCE = ModelSnapshot.RESOURCE_PREFIX + "subcommands.index";
+    //the service file resource
+    static final String SERVICES = "META-INF/services/" + SubCommandPlugin.class.getName();
+    //the plugins by class loader
+    private static final Map<ClassLoader, List<String[]>> PLUGINS = new WeakHashMap<>();
+
+    private SubCommandIndex() {
+    }
+
+    /**
+     * Write the index of the plugins registered in the service file of a classes directory, into that directory
+     * @param args the classes directory
+     * @throws Exception if a provider cannot be instantiated, or the index cannot be written
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            System.err.println("USAGE: SubCommandIndex <classes directory>");
+            System.exit(2);
+        }
+        final Path classes = Paths.get(args[0]);
+        final List<String> providers = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(classes.resolve(SERVICES), StandardCharsets.UTF_8)) {
+            readProviders(in, providers);
+        }
+        final Path index = classes.resolve(RESOURCE);
+        Files.createDirectories(index.getParent());
+        try (Writer out = Files.newBufferedWriter(index, StandardCharsets.UTF_8)) {
+            for (String provider : providers) {
+                final SubCommandPlugin plugin = (SubCommandPlugin) Class.forName(provider).getDeclaredConstructor().newInstance();
+                out.append(String.join("\t", entry(provider, plugin))).append('\n');
+            }
+        }
+    }
+
+    /**
+     * Find the plugin SubCommands of a Command class, loading none of their classes if the plugins are indexed
+     * @param parent the Command data Object class
+     * @return the SubCommands by registered name, the first plugin registering a name wins
+     */
+    static Map<String, SubCommandModel> plugins(final Class<?> parent) {
+        final ClassLoader loader = parent.getClassLoader();
+        if (loader == null) return Collections.emptyMap();
+        Map<String, SubCommandModel> rval = null;
+        for (String[] entry : plugins(loader)) {
+            if (!entry[1].equals(parent.getName())) continue;
+            if (rval == null) rval = new LinkedHashMap<>();
+            if (!rval.containsKey(entry[2])) rval.put(entry[2], new SubCommandModel(entry[2], entry[3], loader, (data, value) -> {}));
+        }
+        return rval == null ? Collections.emptyMap() : rval;
+    }
+
+    /**
+     * Get the plugins visible to a class loader, reading them on first use
+     * @param loader the class loader
+     * @return the plugins, as index entries
+     */
+    private static List<String[]> plugins(final ClassLoader loader) {
+        synchronized (PLUGINS) {
+            List<String[]> rval = PLUGINS.get(loader);
+            if (rval == null) {
+                try {
+                    rval = read(loader);
+                } catch (IOException e) {
+                    throw new CommandLineParserException("Unable to read the SubCommand plugins: " + e);
+                }
+                PLUGINS.put(loader, rval);
+            }
+            return rval;
+        }
+    }
+
+    /**
+     * Read the plugins visible to a class loader, from the indexes if they cover every provider, else through the
+     * {@link ServiceLoader}
+     * @param loader the class loader
+     * @return the plugins, as index entries
+     * @throws IOException if a resource cannot be read
+     */
+    private static List<String[]> read(final ClassLoader loader) throws IOException {
+        final List<String> providers = new ArrayList<>();
+        for (Enumeration<URL> services = loader.getResources(SERVICES); services.hasMoreElements(); ) {
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(services.nextElement().openStream(), StandardCharsets.UTF_8))) {
+                readProviders(in, providers);
+            }
+        }
+        if (providers.isEmpty()) return Collections.emptyList();
+        final List<String[]> rval = new ArrayList<>();
+        final Set<String> indexed = new HashSet<>();
+        for (Enumeration<URL> indexes = loader.getResources(RESOURCE); indexes.hasMoreElements(); ) {
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(indexes.nextElement().openStream(), StandardCharsets.UTF_8))) {
+                for (String line = in.readLine(); line != null; line = in.readLine()) {
+                    final String[] entry = line.split("\t");
+                    if (entry.length != 4) continue;
+                    rval.add(entry);
+                    indexed.add(entry[0]);
+                }
+            }
+        }
+        if (indexed.containsAll(providers)) return rval;
+        rval.clear();
+        try {
+            for (SubCommandPlugin plugin : ServiceLoader.load(SubCommandPlugin.class, loader)) rval.add(entry(plugin.getClass().getName(), plugin));
+        } catch (ServiceConfigurationError e) {
+            throw new CommandLineParserException("Unable to load a SubCommand plugin: " + e.getMessage());
+        }
+        return rval;
+    }
+
+    /**
+     * Read the provider class names of a service file, skipping comments and blank lines
+     * @param in the service file
+     * @param providers the target list
+     * @throws IOException if the file cannot be read
+     */
+    private static void readProviders(final BufferedReader in, final List<String> providers) throws IOException {
+        for (String line = in.readLine(); line != null; line = in.readLine()) {
+            final int comment = line.indexOf('#');
+            final String provider = (comment < 0 ? line : line.substring(0, comment)).trim();
+            if (!provider.isEmpty() && !providers.contains(provider)) providers.add(provider);
+        }
+    }
+
+    /**
+     * Build the index entry of a plugin
+     * @param provider the provider class name
+     * @param plugin the plugin
+     * @return the provider, parent, name and SubCommand class
+     */
+    private static String[] entry(final String provider, final SubCommandPlugin plugin) {
+        return new String[]{provider, plugin.parent().getName(), plugin.name(), plugin.command().getName()};
+    }
+}
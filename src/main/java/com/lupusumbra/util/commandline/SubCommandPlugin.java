@@ -0,0 +1,30 @@
+package com.lupusumbra.util.commandline;
+
+/**
+ * A SubCommand contributed to a Command by another jar, without a {@link com.lupusumbra.util.commandline.annotation.SubCommand}
+ * field on the parent Command class.
+ *
+ * Plugins are registered with the {@link java.util.ServiceLoader} mechanism, in
+ * META-INF/services/com.lupusumbra.util.commandline.SubCommandPlugin. A plugin jar indexed by {@link SubCommandIndex}
+ * is listed without loading its classes; the plugin Command class is loaded when the SubCommand is selected. A plugin
+ * SubCommand has no parent field: its data Object is reached through the result of the parse.
+ */
+public interface SubCommandPlugin {
+    /**
+     * Get the Command class extended by the plugin
+     * @return the parent Command data Object class
+     */
+    Class<?> parent();
+
+    /**
+     * Get the registered name of the SubCommand; a SubCommand field of the parent with the same name takes precedence
+     * @return the registered name
+     */
+    String name();
+
+    /**
+     * Get the SubCommand data Object class
+     * @return the Command data Object class, annotated with {@link com.lupusumbra.util.commandline.annotation.Command}
+     */
+    Class<?> command();
+}
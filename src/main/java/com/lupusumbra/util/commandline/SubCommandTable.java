@@ -0,0 +1,107 @@
+package com.lupusumbra.util.commandline;
+
+import com.lupusumbra.util.commandline.CommandModel.SubCommandModel;
+
+import java.util.*;
+
+/**
+ * An immutable table of the SubCommands of one Command, by registered name.
+ *
+ * Entries are held in two parallel arrays sorted by name and found by binary search, so a node of a large SubCommand
+ * tree costs two small arrays rather than a hash table. Names are interned, so a name registered by many Commands is
+ * held once. Commands without SubCommands share one empty table.
+ */
+final class SubCommandTable extends AbstractMap<String, SubCommandModel> {
+    //the table of Commands without SubCommands
+    private static final SubCommandTable EMPTY = new SubCommandTable(new String[0], new SubCommandModel[0]);
+    //the registered names, sorted
+    private final String[] names;
+    //the SubCommands, parallel to names
+    private final SubCommandModel[] entries;
+    //the entry view, or null until first needed
+    private Set<Entry<String, SubCommandModel>> entrySet;
+
+    /**
+     * Instantiate a {@link SubCommandTable}
+     * @param names the registered names, sorted
+     * @param entries the SubCommands, parallel to names
+     */
+    private SubCommandTable(final String[] names, final SubCommandModel[] entries) {
+        this.names = names;
+        this.entries = entries;
+    }
+
+    /**
+     * Build a table
+     * @param subCommands the SubCommands by registered name
+     * @return the table
+     */
+    static SubCommandTable of(final Map<String, SubCommandModel> subCommands) {
+        if (subCommands.isEmpty()) return EMPTY;
+        final String[] names = subCommands.keySet().toArray(new String[0]);
+        Arrays.sort(names);
+        final SubCommandModel[] entries = new SubCommandModel[names.length];
+        for (int i = 0; i < names.length; i++) {
+            entries[i] = subCommands.get(names[i]);
+            names[i] = names[i].intern();
+        }
+        return new SubCommandTable(names, entries);
+    }
+
+    /**
+     * Find the position of a name
+     * @param name the registered name
+     * @return the index of the entry, negative if the name isn't registered
+     */
+    private int indexOf(final Object name) {
+        return name instanceof String ? Arrays.binarySearch(this.names, name) : -1;
+    }
+
+    @Override
+    public SubCommandModel get(final Object name) {
+        final int index = this.indexOf(name);
+        return index < 0 ? null : this.entries[index];
+    }
+
+    @Override
+    public boolean containsKey(final Object name) {
+        return this.indexOf(name) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return this.names.length;
+    }
+
+    @Override
+    public Set<Entry<String, SubCommandModel>> entrySet() {
+        if (this.entrySet == null) {
+            this.entrySet = new AbstractSet<Entry<String, SubCommandModel>>() {
+                @Override
+                public Iterator<Entry<String, SubCommandModel>> iterator() {
+                    return new Iterator<Entry<String, SubCommandModel>>() {
+                        private int next;
+
+                        @Override
+                        public boolean hasNext() {
+                            return this.next < SubCommandTable.this.names.length;
+                        }
+
+                        @Override
+                        public Entry<String, SubCommandModel> next() {
+                            if (!this.hasNext()) throw new NoSuchElementException();
+                            final int index = this.next++;
+                            return new SimpleImmutableEntry<>(SubCommandTable.this.names[index], SubCommandTable.this.entries[index]);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return SubCommandTable.this.names.length;
+                }
+            };
+        }
+        return this.entrySet;
+    }
+}
@@ -0,0 +1,277 @@
+package com.lupusumbra.util.commandline;
+
+import com.lupusumbra.util.commandline.converter.TypeConverter;
+import com.lupusumbra.util.commandline.exception.CommandLineParserException;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * The values of a repeatable option, accumulated over one parse and assigned once it ends.
+ *
+ * An option whose field is an int[], long[] or double[], an Object array, or a List, Set or Collection takes every
+ * occurrence of its key, each holding one value or several comma-separated values. Numeric values are parsed into a
+ * growable primitive buffer, so they are never boxed; other values are converted with the converter of the element type,
+ * or the option's own converter. Empty values between commas are skipped.
+ */
+abstract class ValueAccumulator {
+    //separates the values of one occurrence
+    static final char SEPARATOR = ',';
+    //the initial buffer capacity
+    private static final int INITIAL_CAPACITY = 8;
+
+    /**
+     * Check if a field type takes a repeatable option
+     * @param type the field type
+     * @return true for int[], long[], double[], Object arrays, and the List, Set and Collection types
+     */
+    static boolean repeatable(Class<?> type) {
+        if (type.isArray()) return type == int[].class || type == long[].class || type == double[].class || !type.getComponentType().isPrimitive();
+        return Collection.class.isAssignableFrom(type) && (type.isAssignableFrom(ArrayList.class) || type.isAssignableFrom(LinkedHashSet.class));
+    }
+
+    /**
+     * Build the factory of the accumulators of a repeatable option
+     * @param type the field type, see {@link #repeatable}
+     * @param converter the element converter: null for the built-in numeric parsing of primitive arrays, or if the
+     *                  element type is not supported
+     * @return the factory
+     */
+    static Supplier<ValueAccumulator> factory(Class<?> type, TypeConverter<?> converter) {
+        if (converter == null) {
+            if (type == int[].class) return IntAccumulator::new;
+            if (type == long[].class) return LongAccumulator::new;
+            if (type == double[].class) return DoubleAccumulator::new;
+            return Unsupported::new;
+        }
+        if (type == int[].class) return () -> new IntAccumulator(converter);
+        if (type == long[].class) return () -> new LongAccumulator(converter);
+        if (type == double[].class) return () -> new DoubleAccumulator(converter);
+        if (type.isArray()) return () -> new ObjectAccumulator(converter, values -> values.toArray((Object[]) Array.newInstance(type.getComponentType(), values.size())));
+        if (type.isAssignableFrom(ArrayList.class)) return () -> new ObjectAccumulator(converter, ArrayList::new);
+        return () -> new ObjectAccumulator(converter, LinkedHashSet::new);
+    }
+
+    /**
+     * Add the values of one occurrence
+     * @param values one value, or several comma-separated values
+     * @throws Exception if a value cannot be converted
+     */
+    final void addAll(final String values) throws Exception {
+        int start = 0;
+        for (int end = values.indexOf(SEPARATOR); end >= 0; end = values.indexOf(SEPARATOR, start)) {
+            if (end > start) this.add(values.substring(start, end));
+            start = end + 1;
+        }
+        if (start < values.length()) this.add(start == 0 ? values : values.substring(start));
+    }
+
+    /**
+     * Add a value
+     * @param value the raw value
+     * @throws Exception if the value cannot be converted
+     */
+    abstract void add(String value) throws Exception;
+
+    /**
+     * Check if no value was accumulated
+     * @return true if there is no value
+     */
+    abstract boolean isEmpty();
+
+    /**
+     * Get a copy of the accumulated values, as the field type
+     * @return the values
+     */
+    abstract Object value();
+
+    /**
+     * Get the capacity needed to add one value
+     * @param length the current capacity
+     * @param size the number of values
+     * @return the new capacity, or length if it is enough
+     */
+    static int grow(final int length, final int size) {
+        return size < length ? length : Math.max(INITIAL_CAPACITY, length * 2);
+    }
+
+    /**
+     * The values of an int[] option
+     */
+    private static final class IntAccumulator extends ValueAccumulator {
+        //converts values to Integers, or null to parse them
+        private final TypeConverter<?> converter;
+        //the values
+        private int[] values = new int[0];
+        //the number of values
+        private int size;
+
+        IntAccumulator() {
+            this(null);
+        }
+
+        IntAccumulator(final TypeConverter<?> converter) {
+            this.converter = converter;
+        }
+
+        @Override
+        void add(final String value) throws Exception {
+            final int converted = this.converter == null ? (int) OptionModel.decode(value, Integer.MIN_VALUE, Integer.MAX_VALUE) : ((Number) this.converter.convert(value)).intValue();
+            if (this.size == this.values.length) this.values = Arrays.copyOf(this.values, grow(this.values.length, this.size));
+            this.values[this.size++] = converted;
+        }
+
+        @Override
+        boolean isEmpty() {
+            return this.size == 0;
+        }
+
+        @Override
+        Object value() {
+            return Arrays.copyOf(this.values, this.size);
+        }
+    }
+
+    /**
+     * The values of a long[] option
+     */
+    private static final class LongAccumulator extends ValueAccumulator {
+        //converts values to Longs, or null to parse them
+        private final TypeConverter<?> converter;
+        //the values
+        private long[] values = new long[0];
+        //the number of values
+        private int size;
+
+        LongAccumulator() {
+            this(null);
+        }
+
+        LongAccumulator(final TypeConverter<?> converter) {
+            this.converter = converter;
+        }
+
+        @Override
+        void add(final String value) throws Exception {
+            final long converted = this.converter == null ? OptionModel.decode(value, Long.MIN_VALUE, Long.MAX_VALUE) : ((Number) this.converter.convert(value)).longValue();
+            if (this.size == this.values.length) this.values = Arrays.copyOf(this.values, grow(this.values.length, this.size));
+            this.values[this.size++] = converted;
+        }
+
+        @Override
+        boolean isEmpty() {
+            return this.size == 0;
+        }
+
+        @Override
+        Object value() {
+            return Arrays.copyOf(this.values, this.size);
+        }
+    }
+
+    /**
+     * The values of a double[] option
+     */
+    private static final class DoubleAccumulator extends ValueAccumulator {
+        //converts values to Doubles, or null to parse them
+        private final TypeConverter<?> converter;
+        //the values
+        private double[] values = new double[0];
+        //the number of values
+        private int size;
+
+        DoubleAccumulator() {
+            this(null);
+        }
+
+        DoubleAccumulator(final TypeConverter<?> converter) {
+            this.converter = converter;
+        }
+
+        @Override
+        void add(final String value) throws Exception {
+            final double converted = this.converter == null ? Double.parseDouble(value) : ((Number) this.converter.convert(value)).doubleValue();
+            if (this.size == this.values.length) this.values = Arrays.copyOf(this.values, grow(this.values.length, this.size));
+            this.values[this.size++] = converted;
+        }
+
+        @Override
+        boolean isEmpty() {
+            return this.size == 0;
+        }
+
+        @Override
+        Object value() {
+            return Arrays.copyOf(this.values, this.size);
+        }
+    }
+
+    /**
+     * The values of an Object array, List, Set or Collection option
+     */
+    private static final class ObjectAccumulator extends ValueAccumulator {
+        //converts values to the element type
+        private final TypeConverter<?> converter;
+        //builds the field value from the values
+        private final Finisher finisher;
+        //the values
+        private final List<Object> values = new ArrayList<>();
+
+        ObjectAccumulator(final TypeConverter<?> converter, final Finisher finisher) {
+            this.converter = converter;
+            this.finisher = finisher;
+        }
+
+        @Override
+        void add(final String value) throws Exception {
+            this.values.add(this.converter.convert(value));
+        }
+
+        @Override
+        boolean isEmpty() {
+            return this.values.isEmpty();
+        }
+
+        @Override
+        Object value() {
+            return this.finisher.finish(this.values);
+        }
+    }
+
+    /**
+     * The values of an option whose element type has no converter
+     */
+    private static final class Unsupported extends ValueAccumulator {
+        @Override
+        void add(final String value) {
+            throw new CommandLineParserException("Unsupported object type");
+        }
+
+        @Override
+        boolean isEmpty() {
+            return true;
+        }
+
+        @Override
+        Object value() {
+            return null;
+        }
+    }
+
+    /**
+     * Builds the field value of an Object option from its values
+     */
+    private interface Finisher {
+        /**
+         * Build the field value, copying the values
+         * @param values the values, in order
+         * @return the field value
+         */
+        Object finish(List<Object> values);
+    }
+}
@@ -1,11 +1,13 @@
 package com.lupusumbra.util.commandline.annotation;
 
+import com.lupusumbra.util.commandline.converter.TypeConverter;
+
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
-@Target(ElementType.FIELD)
+@Target({ElementType.FIELD, ElementType.METHOD})
 @Retention(RetentionPolicy.RUNTIME)
 public @interface Option {
     String name();
@@ -15,4 +17,14 @@ public @interface Option {
     boolean required() default false;
     boolean hidden() default false;
     String defaultValue() default "";
+    Class<? extends TypeConverter> converter() default TypeConverter.class;
+    /**
+     * The environment variable read when the option isn't given on the command line; none if empty
+     */
+    String env() default "";
+    /**
+     * The key read from the parser's properties file when the option isn't given on the command line, nor set by its
+     * environment variable; none if empty
+     */
+    String property() default "";
 }
@@ -0,0 +1,43 @@
+package com.lupusumbra.util.commandline.converter;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Converts values to the constants of an enum, ignoring case.
+ *
+ * The lookup tables are computed once; exact matches are found with a single hash lookup.
+ *
+ * @param <E> the enum type
+ */
+final class EnumConverter<E extends Enum<E>> implements TypeConverter<E> {
+    //the enum type
+    private final Class<E> type;
+    //constants by exact name
+    private final Map<String, E> byName = new HashMap<>();
+    //constants by name, ignoring case
+    private final Map<String, E> byNameIgnoreCase = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    /**
+     * Instantiate an {@link EnumConverter}
+     * @param type the enum type
+     */
+    EnumConverter(Class<E> type) {
+        this.type = type;
+        for (E constant : type.getEnumConstants()) {
+            this.byName.put(constant.name(), constant);
+            this.byNameIgnoreCase.putIfAbsent(constant.name(), constant);
+        }
+    }
+
+    @Override
+    public E convert(String value) {
+        final E exact = this.byName.get(value);
+        final E rval = exact != null ? exact : this.byNameIgnoreCase.get(value);
+        if (rval == null)
+            throw new IllegalArgumentException("No enum constant " + this.type.getName() + "." + value + ", expected one of " + Arrays.toString(this.type.getEnumConstants()));
+        return rval;
+    }
+}
@@ -0,0 +1,21 @@
+package com.lupusumbra.util.commandline.converter;
+
+/**
+ * Converts a raw command-line value into the type of an option field.
+ *
+ * Converters are resolved once per option when its Command model is built, either from {@code @Option(converter = ...)}
+ * or from the {@link TypeConverters} registry. Default values are converted at that time too and shared by every parse,
+ * so converted values should be immutable.
+ *
+ * @param <T> the converted type
+ */
+@FunctionalInterface
+public interface TypeConverter<T> {
+    /**
+     * Convert a raw value
+     * @param value the raw value
+     * @return the converted value
+     * @throws Exception if the value cannot be converted
+     */
+    T convert(String value) throws Exception;
+}
@@ -0,0 +1,97 @@
+package com.lupusumbra.util.commandline.converter;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The registry of {@link TypeConverter}s used to bind option fields.
+ *
+ * Enums are supported without registration. Converters must be registered before the first parse of a Command class
+ * which uses them, since each option resolves its converter once, when its Command model is built.
+ */
+public final class TypeConverters {
+    //registered converters by type
+    private static final Map<Class<?>, TypeConverter<?>> CONVERTERS = new ConcurrentHashMap<>();
+    //enum converters by enum type
+    private static final ClassValue<TypeConverter<?>> ENUMS = new ClassValue<TypeConverter<?>>() {
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        protected TypeConverter<?> computeValue(Class<?> type) {
+            return new EnumConverter(type);
+        }
+    };
+
+    static {
+        register(String.class, value -> value);
+        register(Boolean.class, Boolean::valueOf);
+        register(Integer.class, Integer::decode);
+        register(Long.class, Long::decode);
+        register(Byte.class, Byte::decode);
+        register(Short.class, Short::decode);
+        register(Double.class, Double::valueOf);
+        register(Float.class, Float::valueOf);
+        register(Character.class, TypeConverters::parseChar);
+        register(File.class, File::new);
+        register(Path.class, Paths::get);
+        register(URI.class, URI::new);
+        register(BigDecimal.class, BigDecimal::new);
+        register(BigInteger.class, BigInteger::new);
+        register(Duration.class, Duration::parse);
+        register(InetSocketAddress.class, TypeConverters::parseSocketAddress);
+    }
+
+    private TypeConverters() {
+    }
+
+    /**
+     * Register a converter, replacing any converter registered for the same type
+     * @param type the converted type
+     * @param converter the converter
+     * @param <T> the converted type
+     */
+    public static <T> void register(Class<T> type, TypeConverter<? extends T> converter) {
+        CONVERTERS.put(type, converter);
+    }
+
+    /**
+     * Find the converter of a type
+     * @param type the converted type
+     * @param <T> the converted type
+     * @return the converter, or null if the type is not supported
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> TypeConverter<T> find(Class<T> type) {
+        final TypeConverter<?> rval = CONVERTERS.get(type);
+        if (rval == null && type.isEnum()) return (TypeConverter<T>) ENUMS.get(type);
+        return (TypeConverter<T>) rval;
+    }
+
+    /**
+     * Converts a char value, accepting either a single character or a "0x" prefixed code point
+     * @param value the raw value
+     * @return the char
+     */
+    public static char parseChar(String value) {
+        return value.startsWith("0x") ? ((char) Integer.parseInt(value.substring(2), 16)) : value.charAt(0);
+    }
+
+    /**
+     * Converts a "host:port" value, "[host]:port" for IPv6 literals, into an unresolved socket address
+     * @param value the raw value
+     * @return the socket address
+     */
+    public static InetSocketAddress parseSocketAddress(String value) {
+        final int separator = value.lastIndexOf(':');
+        if (separator < 0) throw new IllegalArgumentException("Expected host:port, got '" + value + "'");
+        final String host = value.startsWith("[") && separator > 0 && value.charAt(separator - 1) == ']' ? value.substring(1, separator - 1) : value.substring(0, separator);
+        return InetSocketAddress.createUnresolved(host, Integer.parseInt(value.substring(separator + 1)));
+    }
+}
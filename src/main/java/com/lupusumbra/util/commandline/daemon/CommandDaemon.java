@@ -0,0 +1,302 @@
+package com.lupusumbra.util.commandline.daemon;
+
+import com.lupusumbra.util.commandline.CommandParser;
+import com.lupusumbra.util.commandline.ParseResult;
+import com.lupusumbra.util.commandline.exception.CommandLineParserException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A long-running parse-and-dispatch server, so that a command line run from a script doesn't pay for JVM startup and
+ * Command model construction.
+ *
+ * A {@link DaemonClient} sends its arguments, working directory and environment; the daemon parses them with a shared
+ * {@link CommandParser}, whose model is built once, and runs a {@link CommandHandler} whose output is streamed back to
+ * the client, followed by its exit status. Parse errors are sent to the client stderr, with exit status 2. Options
+ * with an environment variable read it from the client environment.
+ *
+ * The daemon listens on a Unix domain socket where the runtime supports them, and on a loopback TCP port otherwise
+ * (see {@link #start}); the socket and the port file are only accessible to their owner, and a loopback client must
+ * send the random secret written to the port file. At most a fixed number of clients are served at once, on virtual
+ * threads where the runtime supports them, and on a fixed pool otherwise; further clients wait to be accepted. A
+ * client which doesn't send its whole request within the request timeout is disconnected, so that idle connections
+ * don't hold the daemon.
+ *
+ * The parser should not expand argument files: they would be read from the daemon working directory and stdin.
+ *
+ * @param <T> the Command data Object type
+ */
+public final class CommandDaemon<T> implements Closeable {
+    //the time a client has to send its request, unless given
+    public static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(10);
+    //the shared parser
+    private final CommandParser<T> parser;
+    //runs the parsed Commands
+    private final CommandHandler<T> handler;
+    //the listening channel
+    private final ServerSocketChannel server;
+    //the socket path or port file
+    private final Path path;
+    //the secret clients must send
+    private final String secret;
+    //the time a client has to send its request, in nanoseconds
+    private final long requestTimeout;
+    //serves the clients
+    private final ExecutorService executor;
+    //the clients which may still be served at once
+    private final Semaphore permits;
+
+    /**
+     * Instantiate a {@link CommandDaemon}, and start accepting clients
+     * @param parser the shared parser
+     * @param handler runs the parsed Commands
+     * @param server the listening channel
+     * @param path the socket path or port file
+     * @param secret the secret clients must send
+     * @param concurrency the number of clients served at once
+     * @param requestTimeout the time a client has to send its request
+     */
+    private CommandDaemon(CommandParser<T> parser, CommandHandler<T> handler, ServerSocketChannel server, Path path, String secret, int concurrency, Duration requestTimeout) {
+        this.parser = parser;
+        this.handler = handler;
+        this.server = server;
+        this.path = path;
+        this.secret = secret;
+        this.requestTimeout = requestTimeout.toNanos();
+        this.executor = executor(concurrency);
+        this.permits = new Semaphore(concurrency);
+        final Thread acceptor = new Thread(this::accept, "command-daemon-" + parser.name());
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Start a daemon on a Unix domain socket, or on a loopback TCP port if the runtime doesn't support them, with the
+     * {@link #DEFAULT_REQUEST_TIMEOUT}
+     *
+     * An existing file at path, such as the socket of a daemon which didn't shut down, is replaced.
+     * @param path the socket path; with loopback TCP, a file holding the port
+     * @param parser the shared parser
+     * @param handler runs the parsed Commands
+     * @param concurrency the number of clients served at once
+     * @param <T> the Command data Object type
+     * @return the running daemon
+     * @throws IOException if the daemon cannot listen
+     */
+    public static <T> CommandDaemon<T> start(Path path, CommandParser<T> parser, CommandHandler<T> handler, int concurrency) throws IOException {
+        return start(path, parser, handler, concurrency, DEFAULT_REQUEST_TIMEOUT);
+    }
+
+    /**
+     * Start a daemon on a Unix domain socket, or on a loopback TCP port if the runtime doesn't support them
+     *
+     * An existing file at path, such as the socket of a daemon which didn't shut down, is replaced.
+     * @param path the socket path; with loopback TCP, a file holding the port
+     * @param parser the shared parser
+     * @param handler runs the parsed Commands
+     * @param concurrency the number of clients served at once
+     * @param requestTimeout the time a client has to send its request before it is disconnected
+     * @param <T> the Command data Object type
+     * @return the running daemon
+     * @throws IOException if the daemon cannot listen
+     */
+    public static <T> CommandDaemon<T> start(Path path, CommandParser<T> parser, CommandHandler<T> handler, int concurrency, Duration requestTimeout) throws IOException {
+        check(concurrency, requestTimeout);
+        final ServerSocketChannel server = DaemonSockets.bindUnix(path);
+        return server == null ? loopback(path, parser, handler, concurrency, requestTimeout) : new CommandDaemon<>(parser, handler, server, path, DaemonSockets.NO_SECRET, concurrency, requestTimeout);
+    }
+
+    /**
+     * Start a daemon on an ephemeral loopback TCP port, with the {@link #DEFAULT_REQUEST_TIMEOUT}
+     * @param path the file the port and secret are written to, readable only by its owner
+     * @param parser the shared parser
+     * @param handler runs the parsed Commands
+     * @param concurrency the number of clients served at once
+     * @param <T> the Command data Object type
+     * @return the running daemon
+     * @throws IOException if the daemon cannot listen
+     */
+    public static <T> CommandDaemon<T> loopback(Path path, CommandParser<T> parser, CommandHandler<T> handler, int concurrency) throws IOException {
+        return loopback(path, parser, handler, concurrency, DEFAULT_REQUEST_TIMEOUT);
+    }
+
+    /**
+     * Start a daemon on an ephemeral loopback TCP port
+     * @param path the file the port and secret are written to, readable only by its owner
+     * @param parser the shared parser
+     * @param handler runs the parsed Commands
+     * @param concurrency the number of clients served at once
+     * @param requestTimeout the time a client has to send its request before it is disconnected
+     * @param <T> the Command data Object type
+     * @return the running daemon
+     * @throws IOException if the daemon cannot listen
+     */
+    public static <T> CommandDaemon<T> loopback(Path path, CommandParser<T> parser, CommandHandler<T> handler, int concurrency, Duration requestTimeout) throws IOException {
+        check(concurrency, requestTimeout);
+        final String secret = DaemonSockets.secret();
+        return new CommandDaemon<>(parser, handler, DaemonSockets.bindLoopback(path, secret), path, secret, concurrency, requestTimeout);
+    }
+
+    /**
+     * Validate the daemon settings
+     * @param concurrency the number of clients served at once
+     * @param requestTimeout the time a client has to send its request
+     * @throws IllegalArgumentException if a setting is out of range
+     */
+    private static void check(int concurrency, Duration requestTimeout) {
+        if (concurrency < 1) throw new IllegalArgumentException("The concurrency must be positive: " + concurrency);
+        if (requestTimeout.isNegative() || requestTimeout.isZero()) throw new IllegalArgumentException("The request timeout must be positive: " + requestTimeout);
+    }
+
+    /**
+     * Get the socket path or port file clients connect through
+     * @return the path
+     */
+    public Path path() {
+        return this.path;
+    }
+
+    /**
+     * Stop accepting clients, and remove the socket path or port file; clients being served are not interrupted
+     * @throws IOException if the socket cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            this.server.close();
+        } finally {
+            this.executor.shutdown();
+            Files.deleteIfExists(this.path);
+        }
+    }
+
+    /**
+     * Accept clients until the daemon is closed
+     */
+    private void accept() {
+        while (this.server.isOpen()) {
+            try {
+                this.permits.acquire();
+            } catch (InterruptedException e) {
+                return;
+            }
+            final SocketChannel client;
+            try {
+                client = this.server.accept();
+            } catch (IOException e) {
+                this.permits.release();
+                continue; //closed, or a transient failure
+            }
+            try {
+                this.executor.execute(() -> {
+                    try {
+                        this.serve(client);
+                    } finally {
+                        this.permits.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                this.permits.release();
+                close(client);
+            }
+        }
+    }
+
+    /**
+     * Serve a client: read its request before the request timeout, parse it, run the handler and send the exit status
+     * @param client the client connection
+     */
+    private void serve(final SocketChannel client) {
+        try (SocketChannel channel = client) {
+            final DaemonProtocol.Request request;
+            try (DaemonSockets.DeadlineInputStream in = new DaemonSockets.DeadlineInputStream(channel, this.requestTimeout)) {
+                request = new DaemonProtocol.Request(new DataInputStream(new BufferedInputStream(in)), this.secret);
+            }
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            final PrintStream stdout = stream(out, DaemonProtocol.STDOUT);
+            final PrintStream stderr = stream(out, DaemonProtocol.STDERR);
+            int status;
+            try {
+                final ParseResult<T> result = this.parser.usage(stderr::println).environment(request.env).parse(request.args);
+                status = this.handler.handle(result, new Invocation(request.args, Paths.get(request.cwd), request.env, stdout, stderr));
+            } catch (CommandLineParserException e) {
+                stderr.println(e.getMessage());
+                status = 2;
+            } catch (Exception e) {
+                e.printStackTrace(stderr);
+                status = 1;
+            }
+            stdout.flush();
+            stderr.flush();
+            synchronized (out) {
+                out.writeByte(DaemonProtocol.EXIT);
+                out.writeInt(status);
+                out.flush();
+            }
+        } catch (IOException ignored) {
+            //the client went away, or didn't send the secret or its request in time
+        }
+    }
+
+    /**
+     * Create a client stream
+     * @param out the connection
+     * @param type the frame type
+     * @return the stream, flushed on every println
+     */
+    private static PrintStream stream(DataOutputStream out, byte type) {
+        try {
+            return new PrintStream(new BufferedOutputStream(new DaemonProtocol.FrameOutputStream(out, type)), true, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e); //UTF-8 is always supported
+        }
+    }
+
+    /**
+     * Close a client connection which won't be served
+     * @param client the client connection
+     */
+    private static void close(SocketChannel client) {
+        try {
+            client.close();
+        } catch (IOException ignored) {
+            //nothing left to release
+        }
+    }
+
+    /**
+     * Create the client executor: a thread per client on virtual threads where the runtime supports them, a fixed pool
+     * of daemon threads otherwise
+     * @param concurrency the number of clients served at once
+     * @return the executor
+     */
+    private static ExecutorService executor(int concurrency) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(concurrency, task -> {
+                final Thread rval = new Thread(task, "command-daemon-client");
+                rval.setDaemon(true);
+                return rval;
+            });
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.lupusumbra.util.commandline.daemon;
+
+import com.lupusumbra.util.commandline.ParseResult;
+
+/**
+ * Runs a Command parsed by a {@link CommandDaemon}, on behalf of a client.
+ *
+ * Handlers run concurrently, one per client; they must write to the streams of the {@link Invocation}, not to
+ * System.out and System.err, which belong to the daemon.
+ *
+ * @param <T> the Command data Object type
+ */
+@FunctionalInterface
+public interface CommandHandler<T> {
+    /**
+     * Run a Command
+     * @param result the parse result
+     * @param invocation the client invocation
+     * @return the exit status of the client
+     * @throws Exception if the Command fails, its stack trace is sent to the client, which exits with status 1
+     */
+    int handle(ParseResult<T> result, Invocation invocation) throws Exception;
+}
@@ -0,0 +1,82 @@
+package com.lupusumbra.util.commandline.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * The client of a {@link CommandDaemon}: sends a command line with the working directory and environment, copies the
+ * output to stdout and stderr, and exits with the Command exit status.
+ *
+ * It loads none of the parser, so it starts as fast as a JVM can; a native client only has to implement the
+ * protocol described in {@link DaemonProtocol}.
+ *
+ * Usage: {@code java -cp <classpath> com.lupusumbra.util.commandline.daemon.DaemonClient <socket> [args...]}
+ */
+public final class DaemonClient {
+    private DaemonClient() {
+    }
+
+    /**
+     * Run a command line through a daemon, and exit with its status
+     * @param args the socket path or port file, followed by the commandline arguments
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("USAGE: DaemonClient <socket> [args...]");
+            System.exit(2);
+        }
+        try {
+            System.exit(run(Paths.get(args[0]), Arrays.copyOfRange(args, 1, args.length), System.getProperty("user.dir"), System.getenv(), System.out, System.err));
+        } catch (IOException e) {
+            System.err.println("Unable to reach the daemon at " + args[0] + ": " + e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Run a command line through a daemon
+     * @param path the socket path or port file
+     * @param args the commandline arguments
+     * @param cwd the working directory
+     * @param env the environment
+     * @param out receives the Command stdout
+     * @param err receives the Command stderr
+     * @return the Command exit status
+     * @throws IOException if the daemon cannot be reached, or closes the connection early
+     */
+    public static int run(Path path, String[] args, String cwd, Map<String, String> env, OutputStream out, OutputStream err) throws IOException {
+        try (DaemonSockets.Connection connection = DaemonSockets.connect(path)) {
+            final DataOutputStream request = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(connection.channel)));
+            DaemonProtocol.writeRequest(request, connection.secret, args, cwd, env);
+            request.flush();
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(connection.channel)));
+            final byte[] buffer = new byte[8192];
+            while (true) {
+                final byte type = in.readByte();
+                if (type == DaemonProtocol.EXIT) {
+                    out.flush();
+                    err.flush();
+                    return in.readInt();
+                }
+                if (type != DaemonProtocol.STDOUT && type != DaemonProtocol.STDERR) throw new IOException("Unexpected frame type: " + type);
+                final OutputStream target = type == DaemonProtocol.STDOUT ? out : err;
+                for (int remaining = DaemonProtocol.readLength(in); remaining > 0; ) {
+                    final int read = in.read(buffer, 0, Math.min(buffer.length, remaining));
+                    if (read < 0) throw new IOException("The daemon closed the connection");
+                    target.write(buffer, 0, read);
+                    remaining -= read;
+                }
+                target.flush();
+            }
+        }
+    }
+}
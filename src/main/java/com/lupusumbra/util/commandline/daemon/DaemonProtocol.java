@@ -0,0 +1,164 @@
+package com.lupusumbra.util.commandline.daemon;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The wire format between a {@link DaemonClient} and a {@link CommandDaemon}; every integer is big-endian, every
+ * String is its UTF-8 length followed by its UTF-8 bytes.
+ *
+ * The client sends one request: the protocol version, the daemon secret (read from the loopback port file, empty for a
+ * Unix domain socket), the argument count and arguments, the working directory, the environment variable count and
+ * name, value pairs. The daemon closes a connection which doesn't send its secret, without answering. The daemon
+ * answers with frames: STDOUT or STDERR followed by a length and bytes, any number of times, then EXIT followed by the
+ * exit status.
+ */
+final class DaemonProtocol {
+    //the protocol version
+    static final int VERSION = 2;
+    //a frame of client stdout bytes
+    static final byte STDOUT = 1;
+    //a frame of client stderr bytes
+    static final byte STDERR = 2;
+    //the final frame, holding the exit status
+    static final byte EXIT = 3;
+    //the largest String or count accepted, to reject garbage before allocating it
+    private static final int MAX_LENGTH = 1 << 24;
+
+    private DaemonProtocol() {
+    }
+
+    /**
+     * Write a request
+     * @param out the target
+     * @param secret the daemon secret
+     * @param args the commandline arguments
+     * @param cwd the working directory
+     * @param env the environment
+     * @throws IOException if out cannot be written
+     */
+    static void writeRequest(DataOutputStream out, String secret, String[] args, String cwd, Map<String, String> env) throws IOException {
+        out.writeInt(VERSION);
+        writeString(out, secret);
+        out.writeInt(args.length);
+        for (String arg : args) writeString(out, arg);
+        writeString(out, cwd);
+        out.writeInt(env.size());
+        for (Map.Entry<String, String> entry : env.entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue());
+        }
+    }
+
+    /**
+     * A request read by the daemon
+     */
+    static final class Request {
+        //the commandline arguments
+        final String[] args;
+        //the working directory
+        final String cwd;
+        //the environment
+        final Map<String, String> env;
+
+        /**
+         * Read a request
+         * @param in the source
+         * @param secret the daemon secret
+         * @throws IOException if in cannot be read, or doesn't hold a request with the secret
+         */
+        Request(DataInputStream in, String secret) throws IOException {
+            final int version = in.readInt();
+            if (version != VERSION) throw new IOException("Unsupported protocol version: " + version);
+            final byte[] sent = new byte[readLength(in)];
+            in.readFully(sent);
+            if (!MessageDigest.isEqual(sent, secret.getBytes(StandardCharsets.UTF_8))) throw new IOException("The client didn't send the daemon secret");
+            this.args = new String[readLength(in)];
+            for (int i = 0; i < this.args.length; i++) this.args[i] = readString(in);
+            this.cwd = readString(in);
+            final int size = readLength(in);
+            final Map<String, String> env = new HashMap<>(size * 2);
+            for (int i = 0; i < size; i++) env.put(readString(in), readString(in));
+            this.env = Collections.unmodifiableMap(env);
+        }
+    }
+
+    /**
+     * Write a String
+     * @param out the target
+     * @param value the String
+     * @throws IOException if out cannot be written
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Read a String
+     * @param in the source
+     * @return the String
+     * @throws IOException if in cannot be read
+     */
+    private static String readString(DataInputStream in) throws IOException {
+        final byte[] bytes = new byte[readLength(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Read a length or count
+     * @param in the source
+     * @return the length
+     * @throws IOException if in cannot be read, or the length is out of range
+     */
+    static int readLength(DataInputStream in) throws IOException {
+        final int rval = in.readInt();
+        if (rval < 0 || rval > MAX_LENGTH) throw new IOException("Invalid length: " + rval);
+        return rval;
+    }
+
+    /**
+     * Writes the bytes written to it as frames of one type, sharing the connection with the other frame types
+     */
+    static final class FrameOutputStream extends OutputStream {
+        //the connection
+        private final DataOutputStream out;
+        //the frame type
+        private final byte type;
+
+        /**
+         * Instantiate a {@link FrameOutputStream}
+         * @param out the connection, which frames are written to under its lock
+         * @param type the frame type
+         */
+        FrameOutputStream(DataOutputStream out, byte type) {
+            this.out = out;
+            this.type = type;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            this.write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return;
+            synchronized (this.out) {
+                this.out.writeByte(this.type);
+                this.out.writeInt(len);
+                this.out.write(b, off, len);
+                this.out.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.lupusumbra.util.commandline.daemon;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardProtocolFamily;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binds and connects the daemon endpoint named by a path.
+ *
+ * The path is a Unix domain socket on runtimes which support them (Java 16 and later, reached through reflection since
+ * the library targets Java 8); the socket is bound in a directory only its owner can enter, restricted to its owner, and
+ * then moved to the path. Elsewhere, the daemon listens on an ephemeral loopback TCP port, and the path is a regular file
+ * readable only by its owner, holding "tcp:" followed by the port on the first line and a random secret on the second:
+ * any local user can reach the port, so the daemon only serves clients which send the secret.
+ */
+final class DaemonSockets {
+    //the prefix of the loopback port file content
+    private static final String TCP_PREFIX = "tcp:";
+    //the secret of a Unix domain socket, whose file permissions keep other users out
+    static final String NO_SECRET = "";
+    //the owner-only permissions of the socket and port file
+    private static final String OWNER_ONLY = "rw-------";
+    //generates the loopback secrets
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private DaemonSockets() {
+    }
+
+    /**
+     * Bind a Unix domain socket, replacing a stale socket file
+     *
+     * The socket is bound in a new owner-only directory next to path, so that no other user can connect before its own
+     * permissions are restricted, and then moved to path.
+     * @param path the socket path
+     * @return the server channel, or null if the runtime doesn't support Unix domain sockets
+     * @throws IOException if the socket cannot be bound
+     */
+    static ServerSocketChannel bindUnix(Path path) throws IOException {
+        if (unixAddress(path) == null) return null;
+        final ServerSocketChannel rval;
+        try {
+            rval = (ServerSocketChannel) ServerSocketChannel.class.getMethod("open", ProtocolFamily.class).invoke(null, StandardProtocolFamily.valueOf("UNIX"));
+        } catch (ReflectiveOperationException | IllegalArgumentException e) {
+            return null;
+        }
+        try {
+            final Path parent = path.toAbsolutePath().getParent();
+            final Path dir = Files.createTempDirectory(parent, ".sock", ownerOnly(parent, "rwx------"));
+            final Path socket = dir.resolve("s");
+            try {
+                rval.bind(unixAddress(socket));
+                if (isPosix(parent)) Files.setPosixFilePermissions(socket, PosixFilePermissions.fromString(OWNER_ONLY));
+                Files.move(socket, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(socket);
+                Files.delete(dir);
+            }
+            return rval;
+        } catch (IOException e) {
+            rval.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Bind an ephemeral loopback TCP port, and write it to an owner-only port file with the secret clients must send
+     * @param path the port file
+     * @param secret the secret
+     * @return the server channel
+     * @throws IOException if the port cannot be bound, or the port file cannot be written
+     */
+    static ServerSocketChannel bindLoopback(Path path, String secret) throws IOException {
+        final ServerSocketChannel rval = ServerSocketChannel.open();
+        try {
+            rval.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            final int port = ((InetSocketAddress) rval.getLocalAddress()).getPort();
+            final Path parent = path.toAbsolutePath().getParent();
+            final Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp", ownerOnly(parent, OWNER_ONLY));
+            Files.write(temp, Arrays.asList(TCP_PREFIX + port, secret), StandardCharsets.UTF_8);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return rval;
+        } catch (IOException e) {
+            rval.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Generate a loopback secret
+     * @return 128 random bits, in hexadecimal
+     */
+    static String secret() {
+        final byte[] bytes = new byte[16];
+        RANDOM.nextBytes(bytes);
+        final StringBuilder rval = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) rval.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        return rval.toString();
+    }
+
+    /**
+     * Connect to a daemon
+     * @param path the socket path or port file
+     * @return the connection
+     * @throws IOException if the daemon cannot be reached
+     */
+    static Connection connect(Path path) throws IOException {
+        if (Files.isRegularFile(path)) {
+            final List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+            if (lines.size() != 2 || !lines.get(0).startsWith(TCP_PREFIX)) throw new IOException("Not a daemon port file: " + path);
+            final int port;
+            try {
+                port = Integer.parseInt(lines.get(0).substring(TCP_PREFIX.length()));
+            } catch (NumberFormatException e) {
+                throw new IOException("Not a daemon port file: " + path);
+            }
+            return new Connection(SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port)), lines.get(1));
+        }
+        final SocketAddress address = unixAddress(path);
+        if (address == null) throw new IOException("Unix domain sockets are not supported by this runtime: " + path);
+        return new Connection(SocketChannel.open(address), NO_SECRET);
+    }
+
+    /**
+     * A connection to a daemon, with the secret it expects
+     */
+    static final class Connection implements Closeable {
+        //the connected channel
+        final SocketChannel channel;
+        //the secret to send
+        final String secret;
+
+        /**
+         * Instantiate a {@link Connection}
+         * @param channel the connected channel
+         * @param secret the secret to send
+         */
+        private Connection(SocketChannel channel, String secret) {
+            this.channel = channel;
+            this.secret = secret;
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.channel.close();
+        }
+    }
+
+    /**
+     * Reads from a client connection until a deadline, then fails with a {@link SocketTimeoutException}
+     *
+     * The stream of a channel ignores SO_TIMEOUT, and a Unix domain socket has no Socket to set it on, so the channel is
+     * read in non-blocking mode through a selector. Closing the stream puts the channel back in blocking mode, without
+     * closing it.
+     */
+    static final class DeadlineInputStream extends InputStream {
+        //the client connection
+        private final SocketChannel channel;
+        //signals when the connection is readable
+        private final Selector selector;
+        //the System.nanoTime() at which reads fail
+        private final long deadline;
+
+        /**
+         * Instantiate a {@link DeadlineInputStream}
+         * @param channel the client connection, in blocking mode
+         * @param timeoutNanos the time reads may take, from now
+         * @throws IOException if the selector cannot be opened
+         */
+        DeadlineInputStream(SocketChannel channel, long timeoutNanos) throws IOException {
+            this.channel = channel;
+            this.deadline = System.nanoTime() + timeoutNanos;
+            this.selector = channel.provider().openSelector();
+            try {
+                channel.configureBlocking(false);
+                channel.register(this.selector, SelectionKey.OP_READ);
+            } catch (IOException e) {
+                this.selector.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            return this.read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            final ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+            while (true) {
+                final int read = this.channel.read(buffer);
+                if (read != 0) return read;
+                final long remaining = this.deadline - System.nanoTime();
+                if (remaining <= 0) throw new SocketTimeoutException("The client didn't send its request in time");
+                this.selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining)));
+                this.selector.selectedKeys().clear();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.selector.close();
+            this.channel.configureBlocking(true);
+        }
+    }
+
+    /**
+     * Check whether a directory supports POSIX file permissions
+     * @param dir the directory
+     * @return true if it does
+     * @throws IOException if the file store of dir cannot be read
+     */
+    private static boolean isPosix(Path dir) throws IOException {
+        return Files.getFileStore(dir).supportsFileAttributeView("posix");
+    }
+
+    /**
+     * Get the attributes creating a file with owner-only permissions, where the file store supports them
+     * @param dir the directory the file is created in
+     * @param permissions the POSIX permissions
+     * @return the attributes, empty if dir doesn't support POSIX permissions
+     * @throws IOException if the file store of dir cannot be read
+     */
+    private static FileAttribute<?>[] ownerOnly(Path dir, String permissions) throws IOException {
+        return isPosix(dir) ? new FileAttribute<?>[]{PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString(permissions))} : new FileAttribute<?>[0];
+    }
+
+    /**
+     * Get the Unix domain socket address of a path
+     * @param path the socket path
+     * @return the address, or null if the runtime doesn't support Unix domain sockets
+     */
+    private static SocketAddress unixAddress(Path path) {
+        try {
+            return (SocketAddress) Class.forName("java.net.UnixDomainSocketAddress").getMethod("of", Path.class).invoke(null, path);
+        } catch (ReflectiveOperationException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.lupusumbra.util.commandline.daemon;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * A client invocation of a {@link CommandDaemon}: the client arguments, working directory and environment, and the
+ * streams copied to the client stdout and stderr.
+ */
+public final class Invocation {
+    //the commandline arguments
+    private final String[] args;
+    //the client working directory
+    private final Path cwd;
+    //the client environment
+    private final Map<String, String> env;
+    //the client stdout
+    private final PrintStream out;
+    //the client stderr
+    private final PrintStream err;
+
+    /**
+     * Instantiate an {@link Invocation}
+     * @param args the commandline arguments
+     * @param cwd the client working directory
+     * @param env the client environment
+     * @param out the client stdout
+     * @param err the client stderr
+     */
+    Invocation(String[] args, Path cwd, Map<String, String> env, PrintStream out, PrintStream err) {
+        this.args = args;
+        this.cwd = cwd;
+        this.env = env;
+        this.out = out;
+        this.err = err;
+    }
+
+    /**
+     * Get the commandline arguments
+     * @return the arguments
+     */
+    public String[] args() {
+        return this.args;
+    }
+
+    /**
+     * Get the client working directory, which relative paths should be resolved against
+     * @return the working directory
+     */
+    public Path cwd() {
+        return this.cwd;
+    }
+
+    /**
+     * Get the client environment
+     * @return the environment, unmodifiable
+     */
+    public Map<String, String> env() {
+        return this.env;
+    }
+
+    /**
+     * Get the client stdout
+     * @return the stream, which is flushed to the client on every println
+     */
+    public PrintStream out() {
+        return this.out;
+    }
+
+    /**
+     * Get the client stderr
+     * @return the stream, which is flushed to the client on every println
+     */
+    public PrintStream err() {
+        return this.err;
+    }
+}
@@ -0,0 +1,8 @@
+package com.lupusumbra.util.commandline.exception;
+
+
+public class AmbiguousOptionException extends UnknownOptionException {
+    public AmbiguousOptionException(String message) {
+        super(message);
+    }
+}
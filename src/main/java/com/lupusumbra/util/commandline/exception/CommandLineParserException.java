@@ -4,4 +4,8 @@ public class CommandLineParserException extends RuntimeException {
     public CommandLineParserException(String message) {
         super(message);
     }
+
+    public CommandLineParserException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
@@ -0,0 +1,42 @@
+package com.lupusumbra.util.commandline.exception;
+
+/**
+ * A value which couldn't be converted to the type of its option field, thrown when a
+ * {@link com.lupusumbra.util.commandline.Lazy} option value is first read.
+ */
+public class OptionConversionException extends CommandLineParserException {
+    private final String command;
+    private final String option;
+    private final String value;
+
+    public OptionConversionException(String command, String option, String field, Class<?> type, String value, Throwable cause) {
+        super("Unable to set field(name='" + field + "', type='" + type.getName() + "') of option '" + option + "' of Command '" + command + "' with value: '" + value + "'", cause);
+        this.command = command;
+        this.option = option;
+        this.value = value;
+    }
+
+    /**
+     * Get the name of the Command owning the option
+     * @return the Command name
+     */
+    public String command() {
+        return this.command;
+    }
+
+    /**
+     * Get the registered name of the option
+     * @return the option name
+     */
+    public String option() {
+        return this.option;
+    }
+
+    /**
+     * Get the raw value
+     * @return the raw value
+     */
+    public String value() {
+        return this.value;
+    }
+}
@@ -0,0 +1,79 @@
+package com.lupusumbra.util.commandline.listener;
+
+import com.lupusumbra.util.commandline.annotation.Option;
+
+/**
+ * Receives the lifecycle events of parses, each with the time it took in nanoseconds.
+ *
+ * A listener is registered globally through {@link com.lupusumbra.util.commandline.CommandLineParser#listener(ParseListener)},
+ * or per parser through {@link com.lupusumbra.util.commandline.CommandParser#listener(ParseListener)}. Events are fired
+ * by the thread running the parse, so a listener shared by concurrent parses must be thread-safe. Parses without a
+ * listener don't read the clock at all.
+ *
+ * Every method does nothing by default.
+ */
+public interface ParseListener {
+    /**
+     * A Command model was built, on the first use of its class
+     * @param commandClass the Command data Object class
+     * @param nanos the build time
+     */
+    default void modelBuilt(Class<?> commandClass, long nanos) {
+    }
+
+    /**
+     * A raw argument was tokenized
+     * @param command the name of the Command parsing the argument
+     * @param arg the raw argument
+     * @param nanos the tokenization time
+     */
+    default void argumentScanned(String command, String arg, long nanos) {
+    }
+
+    /**
+     * An option key was looked up
+     * @param command the name of the Command owning the option
+     * @param arg the raw argument holding the key
+     * @param option the option, or null if the key is unknown or ambiguous
+     * @param nanos the lookup time
+     */
+    default void optionResolved(String command, String arg, Option option, long nanos) {
+    }
+
+    /**
+     * A value was converted and bound to an option field
+     * @param command the name of the Command owning the option
+     * @param option the option
+     * @param value the raw value, or null if the option was given without one
+     * @param bound false if the value couldn't be converted or bound
+     * @param nanos the conversion and binding time
+     */
+    default void optionBound(String command, Option option, String value, boolean bound, long nanos) {
+    }
+
+    /**
+     * A SubCommand was selected
+     * @param command the name of the parent Command
+     * @param subCommand the registered name of the SubCommand
+     * @param nanos the selection time
+     */
+    default void subCommandSelected(String command, String subCommand, long nanos) {
+    }
+
+    /**
+     * A usage key was parsed; the usage message is rendered on its first request for the Command class, then reused
+     * @param command the Command name
+     * @param nanos the rendering time
+     */
+    default void usageRendered(String command, long nanos) {
+    }
+
+    /**
+     * A parse completed, successfully or not
+     * @param command the name of the root Command
+     * @param failure the exception which stopped the parse, or null if it succeeded
+     * @param nanos the parse time
+     */
+    default void parsed(String command, Throwable failure, long nanos) {
+    }
+}
@@ -0,0 +1,335 @@
+package com.lupusumbra.util.commandline.listener;
+
+import com.lupusumbra.util.commandline.annotation.Option;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A {@link ParseListener} which counts events and records their latencies, per Command and per option.
+ *
+ * Counters are {@link LongAdder}s, and latencies are kept in fixed power-of-two histograms of {@link LongAdder}s, so
+ * concurrent parses update them without contending on a shared lock or cache line; reads are not atomic snapshots.
+ * Commands and options are keyed by name, a SubCommand under the name of its own Command.
+ */
+public final class ParseStatistics implements ParseListener {
+    //Command model builds
+    private final Timer models = new Timer();
+    //per-Command statistics by Command name
+    private final Map<String, CommandStatistics> commands = new ConcurrentHashMap<>();
+
+    @Override
+    public void modelBuilt(Class<?> commandClass, long nanos) {
+        this.models.record(nanos, false);
+    }
+
+    @Override
+    public void argumentScanned(String command, String arg, long nanos) {
+        this.command(command).arguments.record(nanos, false);
+    }
+
+    @Override
+    public void optionResolved(String command, String arg, Option option, long nanos) {
+        final CommandStatistics statistics = this.command(command);
+        statistics.lookups.record(nanos, option == null);
+        if (option != null) statistics.option(option.name()).lookups.record(nanos, false);
+    }
+
+    @Override
+    public void optionBound(String command, Option option, String value, boolean bound, long nanos) {
+        this.command(command).option(option.name()).bindings.record(nanos, !bound);
+    }
+
+    @Override
+    public void subCommandSelected(String command, String subCommand, long nanos) {
+        this.command(command).subCommands.record(nanos, false);
+    }
+
+    @Override
+    public void usageRendered(String command, long nanos) {
+        this.command(command).usage.record(nanos, false);
+    }
+
+    @Override
+    public void parsed(String command, Throwable failure, long nanos) {
+        this.command(command).parses.record(nanos, failure != null);
+    }
+
+    /**
+     * Get the Command model builds
+     * @return the model builds timer
+     */
+    public Timer models() {
+        return this.models;
+    }
+
+    /**
+     * Get the statistics of every Command seen so far
+     * @return the statistics by Command name
+     */
+    public Map<String, CommandStatistics> commands() {
+        return Collections.unmodifiableMap(this.commands);
+    }
+
+    /**
+     * Get the statistics of a Command
+     * @param name the Command name
+     * @return the statistics, created on first use
+     */
+    public CommandStatistics command(final String name) {
+        return get(this.commands, name, CommandStatistics::new);
+    }
+
+    /**
+     * Generates a report of the {@link ParseStatistics}
+     * @return the report
+     */
+    @Override
+    public String toString() {
+        final StringBuilder rval = new StringBuilder("models: ").append(this.models);
+        this.commands.forEach((name, command) -> {
+            rval.append('\n').append(name).append(':')
+                    .append("\n\tparses: ").append(command.parses)
+                    .append("\n\targuments: ").append(command.arguments)
+                    .append("\n\tlookups: ").append(command.lookups)
+                    .append("\n\tsubCommands: ").append(command.subCommands)
+                    .append("\n\tusage: ").append(command.usage);
+            command.options.forEach((option, statistics) -> rval.append("\n\t").append(option).append(':')
+                    .append("\n\t\tlookups: ").append(statistics.lookups)
+                    .append("\n\t\tbindings: ").append(statistics.bindings));
+        });
+        return rval.toString();
+    }
+
+    /**
+     * Get a map entry, creating it on first use; unlike {@link ConcurrentHashMap#computeIfAbsent}, doesn't lock when
+     * the entry exists
+     * @param map the map
+     * @param key the key
+     * @param factory the entry factory
+     * @param <V> the entry type
+     * @return the entry
+     */
+    private static <V> V get(final Map<String, V> map, final String key, final Supplier<V> factory) {
+        final V rval = map.get(key);
+        return rval != null ? rval : map.computeIfAbsent(key, ignored -> factory.get());
+    }
+
+    /**
+     * The statistics of one Command
+     */
+    public static final class CommandStatistics {
+        //parses, failed when they threw
+        private final Timer parses = new Timer();
+        //raw argument tokenizations
+        private final Timer arguments = new Timer();
+        //option key lookups, failed when the key was unknown or ambiguous
+        private final Timer lookups = new Timer();
+        //SubCommand selections
+        private final Timer subCommands = new Timer();
+        //usage requests
+        private final Timer usage = new Timer();
+        //per-option statistics by registered option name
+        private final Map<String, OptionStatistics> options = new ConcurrentHashMap<>();
+
+        /**
+         * Instantiate a {@link CommandStatistics}
+         */
+        CommandStatistics() {
+        }
+
+        /**
+         * Get the parses rooted at this Command, failed when they threw
+         * @return the parses timer
+         */
+        public Timer parses() {
+            return this.parses;
+        }
+
+        /**
+         * Get the raw argument tokenizations
+         * @return the tokenizations timer
+         */
+        public Timer arguments() {
+            return this.arguments;
+        }
+
+        /**
+         * Get the option key lookups, failed when the key was unknown or ambiguous
+         * @return the lookups timer
+         */
+        public Timer lookups() {
+            return this.lookups;
+        }
+
+        /**
+         * Get the SubCommand selections
+         * @return the selections timer
+         */
+        public Timer subCommands() {
+            return this.subCommands;
+        }
+
+        /**
+         * Get the usage requests
+         * @return the usage timer
+         */
+        public Timer usage() {
+            return this.usage;
+        }
+
+        /**
+         * Get the statistics of every option seen so far
+         * @return the statistics by registered option name
+         */
+        public Map<String, OptionStatistics> options() {
+            return Collections.unmodifiableMap(this.options);
+        }
+
+        /**
+         * Get the statistics of an option
+         * @param name the registered option name
+         * @return the statistics, created on first use
+         */
+        public OptionStatistics option(final String name) {
+            return get(this.options, name, OptionStatistics::new);
+        }
+    }
+
+    /**
+     * The statistics of one option
+     */
+    public static final class OptionStatistics {
+        //successful key lookups
+        private final Timer lookups = new Timer();
+        //value conversions and bindings, failed when the value couldn't be bound
+        private final Timer bindings = new Timer();
+
+        /**
+         * Instantiate an {@link OptionStatistics}
+         */
+        OptionStatistics() {
+        }
+
+        /**
+         * Get the successful key lookups
+         * @return the lookups timer
+         */
+        public Timer lookups() {
+            return this.lookups;
+        }
+
+        /**
+         * Get the value conversions and bindings, failed when the value couldn't be bound
+         * @return the bindings timer
+         */
+        public Timer bindings() {
+            return this.bindings;
+        }
+    }
+
+    /**
+     * A count of events, of failed events, and a latency histogram
+     *
+     * Bucket i of the histogram counts the latencies of i significant bits, that is in [2^(i-1), 2^i) nanoseconds.
+     */
+    public static final class Timer {
+        //the number of buckets, one per significant bit count of a non-negative long, 0 included
+        private static final int BUCKETS = 64;
+        //events
+        private final LongAdder count = new LongAdder();
+        //failed events
+        private final LongAdder failures = new LongAdder();
+        //the total latency
+        private final LongAdder totalNanos = new LongAdder();
+        //the latency histogram
+        private final LongAdder[] histogram = new LongAdder[BUCKETS];
+
+        /**
+         * Instantiate a {@link Timer}
+         */
+        Timer() {
+            for (int i = 0; i < BUCKETS; i++) this.histogram[i] = new LongAdder();
+        }
+
+        /**
+         * Record an event
+         * @param nanos the event latency
+         * @param failed true if the event failed
+         */
+        void record(final long nanos, final boolean failed) {
+            final long latency = Math.max(0, nanos);
+            this.count.increment();
+            if (failed) this.failures.increment();
+            this.totalNanos.add(latency);
+            this.histogram[64 - Long.numberOfLeadingZeros(latency)].increment();
+        }
+
+        /**
+         * Get the number of events
+         * @return the number of events
+         */
+        public long count() {
+            return this.count.sum();
+        }
+
+        /**
+         * Get the number of failed events
+         * @return the number of failed events
+         */
+        public long failures() {
+            return this.failures.sum();
+        }
+
+        /**
+         * Get the total latency
+         * @return the total latency in nanoseconds
+         */
+        public long totalNanos() {
+            return this.totalNanos.sum();
+        }
+
+        /**
+         * Get the mean latency
+         * @return the mean latency in nanoseconds, or 0 if there was no event
+         */
+        public double meanNanos() {
+            final long count = this.count();
+            return count == 0 ? 0 : (double) this.totalNanos() / count;
+        }
+
+        /**
+         * Get an upper bound of a latency percentile, with the resolution of the histogram
+         * @param percentile the percentile, between 0 and 100
+         * @return the upper bound in nanoseconds of the bucket holding the percentile, or 0 if there was no event
+         */
+        public long percentileNanos(final double percentile) {
+            final long[] counts = new long[BUCKETS];
+            long count = 0;
+            for (int i = 0; i < BUCKETS; i++) count += counts[i] = this.histogram[i].sum();
+            final long rank = (long) Math.ceil(count * Math.min(100, Math.max(0, percentile)) / 100);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank && seen > 0) return (1L << i) - 1;
+            }
+            return 0;
+        }
+
+        /**
+         * Generates a String representation of the {@link Timer}
+         * @return the String representation
+         */
+        @Override
+        public String toString() {
+            return "count=" + this.count() +
+                    ", failures=" + this.failures() +
+                    ", mean=" + Math.round(this.meanNanos()) + "ns" +
+                    ", p50<=" + this.percentileNanos(50) + "ns" +
+                    ", p99<=" + this.percentileNanos(99) + "ns";
+        }
+    }
+}
@@ -1,17 +1,50 @@
 package com.lupusumbra.util.commandline.test.basic;
 
+import com.lupusumbra.util.commandline.BatchResult;
 import com.lupusumbra.util.commandline.CommandLineParser;
+import com.lupusumbra.util.commandline.CommandParser;
+import com.lupusumbra.util.commandline.CommandValues;
+import com.lupusumbra.util.commandline.CompactStringList;
+import com.lupusumbra.util.commandline.Completion;
+import com.lupusumbra.util.commandline.ParseResult;
+import com.lupusumbra.util.commandline.exception.AmbiguousOptionException;
 import com.lupusumbra.util.commandline.exception.CommandLineParserException;
+import com.lupusumbra.util.commandline.exception.OptionConversionException;
 import com.lupusumbra.util.commandline.exception.UnknownOptionException;
+import com.lupusumbra.util.commandline.listener.ParseListener;
+import com.lupusumbra.util.commandline.listener.ParseStatistics;
 import com.lupusumbra.util.commandline.test.basic.config.*;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.io.StringWriter;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 import static org.junit.Assert.*;
 
@@ -185,6 +218,18 @@ public class BasicTests {
         assertEquals(bco.aByte, 0x34);
     }
 
+    @Test
+    public void testLongKeyIntDecode() {
+        assertEquals(((BasicConfigObject) CommandLineParser.parse(BasicConfigObject.class, new String[]{"--depth=-0x10"}).data()).depth, -16);
+        assertEquals(((BasicConfigObject) CommandLineParser.parse(BasicConfigObject.class, new String[]{"--depth=010"}).data()).depth, 8);
+        assertEquals(((BasicConfigObject) CommandLineParser.parse(BasicConfigObject.class, new String[]{"--depth=#7f"}).data()).depth, 127);
+        null_stderr();
+        final CommandLineParser root = CommandLineParser.parse(BasicConfigObject.class, new String[]{"--byte=0x80"});
+        reset_stderr();
+        assertTrue(root.optionParserByName("aByte").provided());
+        assertEquals(((BasicConfigObject) root.data()).aByte, 0);
+    }
+
     @Test
     public void testLongKeyShort() {
         final String[] args = {"--short=0x34"};
@@ -267,6 +312,55 @@ public class BasicTests {
         assertFalse(root.optionParserByName("charlie").provided());
     }
 
+    @Test
+    public void testRepeatedParseIsIndependent() {
+        final CommandLineParser first = CommandLineParser.parse(BasicConfigObject.class, new String[]{"-v", "--name=first"});
+        final CommandLineParser second = CommandLineParser.parse(BasicConfigObject.class, new String[]{"-d", "2"});
+        assertNotSame(first.data(), second.data());
+        assertTrue(first.optionParserByName("verbose").provided());
+        assertFalse(second.optionParserByName("verbose").provided());
+        assertTrue(second.optionParserByName("depth").provided());
+        assertEquals(((BasicConfigObject) first.data()).name, "first");
+        assertNull(((BasicConfigObject) second.data()).name);
+    }
+
+    @Test
+    public void testArgWithValueContainingEqualSign() {
+        final String[] args = {"--name=a=b=c"};
+        CommandLineParser root = CommandLineParser.parse(BasicConfigObject.class, args);
+        BasicConfigObject bco = root.data();
+        assertEquals(bco.name, "a=b=c");
+    }
+
+    @Test
+    public void testArgWithEmptyValue() {
+        final String[] args = {"--name="};
+        CommandLineParser root = CommandLineParser.parse(BasicConfigObject.class, args);
+        BasicConfigObject bco = root.data();
+        assertEquals(bco.name, "");
+        assertTrue(root.optionParserByName("name").provided());
+    }
+
+    @Test
+    public void testCompoundShortKeyWithValue() {
+        final String[] args = {"-vd", "3"};
+        CommandLineParser root = CommandLineParser.parse(BasicConfigObject.class, args);
+        BasicConfigObject bco = root.data();
+        assertTrue(bco.verbose);
+        assertEquals(bco.depth, 3);
+        assertTrue(root.parameters().isEmpty());
+    }
+
+    @Test
+    public void testLongKeyWithSeparateValue() {
+        final String[] args = {"--depth", "4", "param"};
+        CommandLineParser root = CommandLineParser.parse(BasicConfigObject.class, args);
+        BasicConfigObject bco = root.data();
+        assertEquals(bco.depth, 4);
+        assertEquals(root.parameters().size(), 1);
+        assertEquals(root.parameters().get(0), "param");
+    }
+
     @Test(expected = UnknownOptionException.class)
     public void testUnknownOption() {
         final String[] args = {"--name=This is a Test", "--non-existing"};
@@ -357,6 +451,240 @@ public class BasicTests {
         CommandLineParser.parse(BasicConfigObjectWithDuplicateOptions.class, args);
     }
 
+    @Test
+    public void testEnumOptionIgnoresCase() {
+        final String[] args = {"--level=warn"};
+        CommandLineParser root = CommandLineParser.parse(BasicConfigObjectWithConverters.class, args);
+        BasicConfigObjectWithConverters bco = root.data();
+        assertEquals(BasicConfigObjectWithConverters.Level.WARN, bco.level);
+        assertTrue(root.optionParserByName("level").provided());
+        assertFalse(root.optionParserByName("uri").provided());
+    }
+
+    @Test
+    public void testRegisteredConverters() {
+        final String[] args = {"--uri=http://localhost:8080/a?b=c", "--timeout", "PT1M"};
+        CommandLineParser root = CommandLineParser.parse(BasicConfigObjectWithConverters.class, args);
+        BasicConfigObjectWithConverters bco = root.data();
+        assertEquals(URI.create("http://localhost:8080/a?b=c"), bco.uri);
+        assertEquals(Duration.ofMinutes(1), bco.timeout);
+    }
+
+    @Test
+    public void testCustomConverter() {
+        final String[] args = {"-r", "75%"};
+        CommandLineParser root = CommandLineParser.parse(BasicConfigObjectWithConverters.class, args);
+        BasicConfigObjectWithConverters bco = root.data();
+        assertEquals(75, bco.ratio);
+        assertTrue(root.optionParserByName("ratio").provided());
+    }
+
+    @Test
+    public void testConvertedDefaultValues() {
+        final String[] args = {"-L", "--timeout=", "--ratio="};
+        CommandLineParser root = CommandLineParser.parse(BasicConfigObjectWithConverters.class, args);
+        BasicConfigObjectWithConverters bco = root.data();
+        assertEquals(BasicConfigObjectWithConverters.Level.INFO, bco.level);
+        assertEquals(Duration.ofSeconds(30), bco.timeout);
+        assertEquals(50, bco.ratio);
+    }
+
+    @Test
+    public void testDefaultValuesConvertedOnce() {
+        final CommandParser<BasicConfigObjectWithConverters> parser = CommandParser.of(BasicConfigObjectWithConverters.class);
+        final int conversions = BasicConfigObjectWithConverters.PercentConverter.CONVERSIONS.get();
+        assertEquals(parser.parse("--ratio=").data().ratio, 50);
+        assertEquals(parser.parse("-r").data().ratio, 50);
+        assertEquals(BasicConfigObjectWithConverters.PercentConverter.CONVERSIONS.get(), conversions);
+        assertEquals(parser.parse("-r", "75%").data().ratio, 75);
+        assertEquals(BasicConfigObjectWithConverters.PercentConverter.CONVERSIONS.get(), conversions + 1);
+    }
+
+    @Test
+    public void testSharedParserResultsAreIndependent() {
+        final CommandParser<BasicConfigObject> parser = CommandParser.of(BasicConfigObject.class);
+        final ParseResult<BasicConfigObject> first = parser.parse("--name=first", "-v");
+        final ParseResult<BasicConfigObject> second = parser.parse("-d", "7", "param");
+        assertEquals(first.data().name, "first");
+        assertTrue(first.data().verbose);
+        assertTrue(first.provided("name"));
+        assertTrue(first.provided("verbose"));
+        assertFalse(first.provided("depth"));
+        assertTrue(first.parameters().isEmpty());
+        assertEquals(second.data().name, null);
+        assertEquals(second.data().depth, 7);
+        assertFalse(second.provided("name"));
+        assertTrue(second.provided("depth"));
+        assertEquals(second.parameters().size(), 1);
+        assertNotSame(first.data(), second.data());
+    }
+
+    @Test
+    public void testSharedParserConcurrentParses() throws Exception {
+        final CommandParser<BasicConfigObject> parser = CommandParser.of(BasicConfigObject.class);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                final int depth = i;
+                futures.add(executor.submit(() -> {
+                    final ParseResult<BasicConfigObject> result = depth % 2 == 0 ? parser.parse("-d", String.valueOf(depth)) : parser.parse("--name=" + depth);
+                    return depth % 2 == 0 ? result.data().depth == depth && result.provided("depth") && !result.provided("name") : String.valueOf(depth).equals(result.data().name) && result.provided("name") && !result.provided("depth");
+                }));
+            }
+            for (Future<Boolean> future : futures) assertTrue(future.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testParseAllKeepsInputOrder() {
+        final List<String[]> argv = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) argv.add(i % 100 == 0 ? new String[]{"--unknown"} : new String[]{"-d", String.valueOf(i)});
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final List<BatchResult<BasicConfigObject>> results = CommandParser.of(BasicConfigObject.class).parseAll(argv, pool);
+            assertEquals(results.size(), argv.size());
+            for (int i = 0; i < results.size(); i++) {
+                final BatchResult<BasicConfigObject> result = results.get(i);
+                assertTrue(result.args() == argv.get(i));
+                if (i % 100 == 0) {
+                    assertFalse(result.succeeded());
+                    assertTrue(result.error() instanceof UnknownOptionException);
+                } else {
+                    assertTrue(result.succeeded());
+                    assertEquals(result.result().data().depth, i);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testParseUnordered() {
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        final AtomicInteger outside = new AtomicInteger();
+        CommandLineParser.listener(new ParseListener() {
+            @Override
+            public void parsed(String command, Throwable failure, long nanos) {
+                if (ForkJoinTask.getPool() != pool) outside.incrementAndGet();
+            }
+        });
+        try {
+            final CommandParser<BasicConfigObject> parser = CommandParser.of(BasicConfigObject.class);
+            final List<BatchResult<BasicConfigObject>> results = parser.parseUnordered(IntStream.range(0, 1000).mapToObj(i -> new String[]{"--depth=" + i}), pool);
+            assertEquals(results.size(), 1000);
+            assertEquals(results.stream().mapToInt(result -> result.result().data().depth).sum(), 999 * 1000 / 2);
+            //every parse ran in the given pool
+            assertEquals(outside.get(), 0);
+        } finally {
+            CommandLineParser.listener(null);
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testArgumentFile() throws IOException {
+        final Path file = Files.createTempFile("args", ".txt");
+        try {
+            Files.write(file, "7 --name=\"caf\u00e9 \\\"au lait\\\"\"\n-v\tfirst 'second param'\n".getBytes(StandardCharsets.UTF_8));
+            final String[] args = {"-d", "@" + file, "last", "@@literal"};
+            final ParseResult<BasicConfigObject> result = CommandParser.of(BasicConfigObject.class).argumentFiles().parse(args);
+            final BasicConfigObject bco = result.data();
+            assertEquals(bco.depth, 7);
+            assertEquals(bco.name, "caf\u00e9 \"au lait\"");
+            assertTrue(bco.verbose);
+            assertEquals(result.parameters(), Arrays.asList("first", "second param", "last", "@literal"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testArgumentFilesAreOptIn() {
+        final String[] args = {"@missing.txt"};
+        final ParseResult<BasicConfigObject> result = CommandParser.of(BasicConfigObject.class).parse(args);
+        assertEquals(result.parameters(), Arrays.asList("@missing.txt"));
+    }
+
+    @Test(expected = CommandLineParserException.class)
+    public void testMissingArgumentFile() {
+        final String[] args = {"@" + new File("missing-argument-file.txt").getAbsolutePath()};
+        CommandParser.of(BasicConfigObject.class).argumentFiles().parse(args);
+    }
+
+    @Test
+    public void testStdinArguments() {
+        final InputStream stdin = System.in;
+        System.setIn(new ByteArrayInputStream("--depth 12\nparam".getBytes(StandardCharsets.UTF_8)));
+        try {
+            final String[] args = {"-v", "-"};
+            final ParseResult<BasicConfigObject> result = CommandParser.of(BasicConfigObject.class).argumentFiles().parse(args);
+            assertTrue(result.data().verbose);
+            assertEquals(result.data().depth, 12);
+            assertEquals(result.parameters(), Arrays.asList("param"));
+        } finally {
+            System.setIn(stdin);
+        }
+    }
+
+    @Test
+    public void testCompactParameters() {
+        final String[] args = new String[10001];
+        args[0] = "-v";
+        for (int i = 1; i < args.length; i++) args[i] = "/var/data/file-" + i + (i % 7 == 0 ? "" : ".txt");
+        final ParseResult<BasicConfigObjectWithCompactParameters> result = CommandParser.of(BasicConfigObjectWithCompactParameters.class).parse(args);
+        final BasicConfigObjectWithCompactParameters data = result.data();
+        assertTrue(data.verbose);
+        assertTrue(data.paths instanceof CompactStringList);
+        assertTrue(data.paths == result.parameters());
+        assertEquals(data.paths, Arrays.asList(args).subList(1, args.length));
+        assertEquals(((CompactStringList) data.paths).length(6), args[7].length());
+    }
+
+    @Test
+    public void testEmptyCompactParameters() {
+        final String[] args = {""};
+        final BasicConfigObjectWithCompactParameters data = CommandParser.of(BasicConfigObjectWithCompactParameters.class).parse(args).data();
+        assertEquals(data.paths.size(), 1);
+        assertEquals(data.paths.get(0), "");
+    }
+
+    @Test
+    public void testLegacyParserExposesResult() {
+        final String[] args = {"--name=test"};
+        CommandLineParser root = CommandLineParser.parse(BasicConfigObject.class, args);
+        assertTrue(root.result().provided("name"));
+        assertTrue(root.data() == root.result().data());
+    }
+
+    @Test
+    public void testLongKeyAbbreviation() {
+        final String[] args = {"--verb", "--dep=3", "--na", "test"};
+        CommandLineParser root = CommandLineParser.parse(BasicConfigObject.class, args);
+        BasicConfigObject bco = root.data();
+        assertTrue(bco.verbose);
+        assertEquals(bco.depth, 3);
+        assertEquals(bco.name, "test");
+        assertTrue(root.optionParserByName("verbose").provided());
+        assertTrue(root.optionParserByName("depth").provided());
+        assertTrue(root.optionParserByName("name").provided());
+    }
+
+    @Test(expected = AmbiguousOptionException.class)
+    public void testAmbiguousLongKeyAbbreviation() {
+        final String[] args = {"--b=1"};
+        CommandLineParser.parse(BasicConfigObject.class, args);
+    }
+
+    @Test(expected = UnknownOptionException.class)
+    public void testUnknownLongKey() {
+        final String[] args = {"--verbosity"};
+        CommandLineParser.parse(BasicConfigObject.class, args);
+    }
+
     @Test
     public void testDefaultUsage() {
         System.out.println(); //ensure we are on a new line
@@ -368,6 +696,229 @@ public class BasicTests {
     }
 
 
+    @Test
+    public void testUsageIsRenderedOnce() throws IOException {
+        final CommandParser<BasicConfigObject> parser = CommandParser.of(BasicConfigObject.class);
+        final String usage = parser.toUsage();
+        assertSame(usage, CommandParser.of(BasicConfigObject.class).toUsage());
+        final StringWriter out = new StringWriter();
+        parser.writeUsage(out);
+        assertEquals(out.toString(), usage);
+        final List<String> messages = new ArrayList<>();
+        parser.usage(messages::add).parse("-h");
+        assertEquals(messages, Arrays.asList(usage));
+    }
+
+    @Test
+    public void testParseStatistics() {
+        final ParseStatistics statistics = new ParseStatistics();
+        final CommandParser<BasicConfigObject> parser = CommandParser.of(BasicConfigObject.class).listener(statistics);
+        parser.parse("-vd", "3", "--name=test");
+        parser.parse("-v");
+        try {
+            parser.parse("--unknown");
+            fail();
+        } catch (UnknownOptionException ignored) {
+        }
+        final ParseStatistics.CommandStatistics root = statistics.command("root");
+        assertEquals(root.parses().count(), 3);
+        assertEquals(root.parses().failures(), 1);
+        assertEquals(root.arguments().count(), 4);
+        assertEquals(root.lookups().count(), 5);
+        assertEquals(root.lookups().failures(), 1);
+        assertEquals(root.option("verbose").bindings().count(), 2);
+        assertEquals(root.option("depth").bindings().count(), 1);
+        assertEquals(root.option("name").lookups().count(), 1);
+        assertEquals(root.options().size(), 3);
+        assertTrue(root.parses().percentileNanos(50) <= root.parses().percentileNanos(100));
+        assertEquals(CommandParser.of(BasicConfigObject.class).parse("-v").data().verbose, true);
+        assertEquals(root.parses().count(), 3);
+    }
+
+    @Test
+    public void testOptionSources() throws IOException {
+        final Path file = Files.createTempFile("options", ".properties");
+        try {
+            Files.write(file, Arrays.asList("app.host=file-host", "app.port=8080", "app.debug=true", "app.user=file-user"));
+            final Map<String, String> env = new HashMap<>();
+            env.put("APP_HOST", "env-host");
+            env.put("APP_DEBUG", "false");
+            final CommandParser<BasicConfigObjectWithSources> parser = CommandParser.of(BasicConfigObjectWithSources.class).environment(env).properties(file);
+            ParseResult<BasicConfigObjectWithSources> result = parser.parse("--host=arg-host");
+            assertEquals(result.data().host, "arg-host");
+            assertEquals(result.source("host"), ParseResult.Source.ARGUMENTS);
+            assertEquals(result.data().port, 8080);
+            assertEquals(result.source("port"), ParseResult.Source.PROPERTIES);
+            assertFalse(result.data().debug);
+            assertEquals(result.source("debug"), ParseResult.Source.ENVIRONMENT);
+            assertEquals(result.data().user, "file-user");
+            assertFalse(result.provided("user"));
+            assertNull(result.source("verbose"));
+            //the file is indexed once per parser
+            Files.write(file, Collections.singletonList("app.user=changed"));
+            result = parser.parse();
+            assertEquals(result.data().host, "env-host");
+            assertEquals(result.data().user, "file-user");
+            //without a properties file, the default values
+            result = CommandParser.of(BasicConfigObjectWithSources.class).environment(Collections.emptyMap()).parse("-d");
+            assertEquals(result.data().host, "localhost");
+            assertEquals(result.source("host"), ParseResult.Source.DEFAULT);
+            assertEquals(result.data().port, 80);
+            assertTrue(result.data().debug);
+            assertNull(result.data().user);
+            assertNull(result.source("user"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testOptionSourcesSharedIndex() throws IOException {
+        final Path file = Files.createTempFile("options", ".properties");
+        try {
+            Files.write(file, Collections.singletonList("app.user=file-user"));
+            final CommandParser<BasicConfigObjectWithSources> parser = CommandParser.of(BasicConfigObjectWithSources.class).properties(file);
+            ParseResult<BasicConfigObjectWithSources> result = parser.environment(Collections.singletonMap("APP_HOST", "first")).parse();
+            assertEquals(result.data().host, "first");
+            assertEquals(result.data().user, "file-user");
+            //a parser with another environment, as the daemon builds per client, reuses the index loaded by the first
+            Files.write(file, Collections.singletonList("app.user=changed"));
+            result = parser.environment(Collections.singletonMap("APP_HOST", "second")).parse();
+            assertEquals(result.data().host, "second");
+            assertEquals(result.data().user, "file-user");
+            //a new properties file is loaded again
+            assertEquals(parser.properties(file).environment(Collections.emptyMap()).parse().data().user, "changed");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testLazyOptions() {
+        final ParseResult<BasicConfigObjectWithLazyOptions> result = CommandParser.of(BasicConfigObjectWithLazyOptions.class).parse("--path=/tmp/lazy", "-c", "many", "-r", "25%");
+        final BasicConfigObjectWithLazyOptions data = result.data();
+        assertTrue(result.provided("count"));
+        assertEquals(data.count.raw(), "many");
+        assertFalse(data.count.converted());
+        assertEquals(data.path.get(), Paths.get("/tmp/lazy"));
+        assertTrue(data.path.get() == data.path.get());
+        assertEquals(data.ratio.get(), (Integer) 25);
+        try {
+            data.count.get();
+            fail("expected an OptionConversionException");
+        } catch (OptionConversionException e) {
+            assertEquals(e.command(), "root");
+            assertEquals(e.option(), "count");
+            assertEquals(e.value(), "many");
+            assertTrue(e.getCause() instanceof NumberFormatException);
+        }
+        assertTrue(data.count.converted());
+        //a key without a value takes the default value
+        final BasicConfigObjectWithLazyOptions defaults = CommandParser.of(BasicConfigObjectWithLazyOptions.class).parse("-c").data();
+        assertEquals(defaults.count.get(), (Integer) 7);
+        assertNull(defaults.path);
+    }
+
+    @Test
+    public void testRepeatableOptions() {
+        final CommandParser<BasicConfigObjectWithRepeatableOptions> parser = CommandParser.of(BasicConfigObjectWithRepeatableOptions.class);
+        final ParseResult<BasicConfigObjectWithRepeatableOptions> result = parser.parse("-I", "a", "-I", "b,c", "--id=1,2", "-i", "3", "--size", "0x10", "-w", "0.5,1.5,", "-p", "/tmp/a", "--path=/tmp/b", "-t", "x,y,x", "--name=n1", "-n", "n2");
+        final BasicConfigObjectWithRepeatableOptions data = result.data();
+        assertTrue(Arrays.equals(data.ids, new int[]{1, 2, 3}));
+        assertTrue(Arrays.equals(data.sizes, new long[]{16}));
+        assertTrue(Arrays.equals(data.weights, new double[]{0.5, 1.5}));
+        assertEquals(data.includes, Arrays.asList("a", "b", "c"));
+        assertEquals(data.paths, Arrays.asList(Paths.get("/tmp/a"), Paths.get("/tmp/b")));
+        assertEquals(new ArrayList<>(data.tags), Arrays.asList("x", "y"));
+        assertTrue(Arrays.equals(data.names, new String[]{"n1", "n2"}));
+        assertTrue(result.provided("id"));
+        //not given: the field keeps its initial value
+        assertTrue(Arrays.equals(data.ports, new int[]{80}));
+        assertFalse(result.provided("port"));
+        //the values of an environment variable
+        final Map<String, String> environment = new HashMap<>();
+        environment.put("APP_PORTS", "8080,8443");
+        assertTrue(Arrays.equals(parser.environment(environment).parse().data().ports, new int[]{8080, 8443}));
+        //thousands of values, and a value which cannot be converted
+        final List<String> args = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) args.add("--id=" + i);
+        args.add("--id=x");
+        null_stderr();
+        final int[] ids;
+        try {
+            ids = parser.parse(args.toArray(new String[0])).data().ids;
+        } finally {
+            reset_stderr();
+        }
+        assertEquals(ids.length, 5000);
+        assertEquals(ids[4999], 4999);
+    }
+
+    @Test
+    public void testInterfaceCommand() {
+        final CommandParser<BasicConfigInterface> parser = CommandParser.of(BasicConfigInterface.class);
+        final ParseResult<BasicConfigInterface> result = parser.parse("-v", "--size=4096", "-n", "test", "-p", "/tmp/values", "-r", "0.25", "a", "b");
+        final BasicConfigInterface data = result.data();
+        assertTrue(data.verbose());
+        assertEquals(data.count(), 3);
+        assertEquals(data.size(), 4096L);
+        assertEquals(data.ratio(), 0.25, 0);
+        assertEquals(data.name(), "test");
+        assertEquals(data.path(), Paths.get("/tmp/values"));
+        assertEquals(data.parameters(), Arrays.asList("a", "b"));
+        assertEquals(data.label("#"), "#testx3");
+        assertTrue(result.provided("size"));
+        assertTrue(CommandValues.provided(data, "size"));
+        assertFalse(CommandValues.provided(data, "count"));
+        assertFalse(CommandValues.provided(data, "unknown"));
+        final BasicConfigInterface copy = CommandValues.copy(data);
+        assertFalse(copy == data);
+        assertEquals(copy.size(), 4096L);
+        assertEquals(copy.name(), "test");
+        assertTrue(CommandValues.provided(copy, "verbose"));
+        assertEquals(data.toString(), "BasicConfigInterface{count=3, name=test, path=/tmp/values, ratio=0.25, size=4096, verbose=true, parameters=[[a, b]]}");
+        final BasicConfigInterface defaults = parser.parse().data();
+        assertFalse(defaults.verbose());
+        assertEquals(defaults.ratio(), 0.5, 0);
+        assertNull(defaults.name());
+        assertEquals(data.size(), 4096L);
+        try {
+            parser.parse(data, "-v");
+            fail("expected a CommandLineParserException");
+        } catch (CommandLineParserException ignored) {
+        }
+        try {
+            CommandValues.copy("not values");
+            fail("expected a CommandLineParserException");
+        } catch (CommandLineParserException ignored) {
+        }
+    }
+
+    @Test
+    public void testCompletion() {
+        final CommandParser<BasicConfigObjectWithConverters> parser = CommandParser.of(BasicConfigObjectWithConverters.class);
+        Completion completion = parser.complete(new String[]{"--l"}, 0);
+        assertEquals(completion.hint(), Completion.Hint.KEY);
+        assertEquals(completion.candidates(), Arrays.asList("--level"));
+        completion = parser.complete(new String[]{"--level", "d"}, 1);
+        assertEquals(completion.hint(), Completion.Hint.CHOICE);
+        assertEquals(completion.candidates(), Arrays.asList("DEBUG"));
+        completion = parser.complete(new String[]{"-L=", "--uri"}, 0);
+        assertEquals(completion.candidates(), Arrays.asList("-L=DEBUG", "-L=INFO", "-L=WARN"));
+        assertEquals(parser.complete(new String[]{"-r"}, 1).hint(), Completion.Hint.TEXT);
+        completion = CommandLineParser.complete(BasicConfigObject.class, new String[]{"--path", ""}, 1);
+        assertEquals(completion.hint(), Completion.Hint.PATH);
+        assertTrue(completion.candidates().isEmpty());
+        assertEquals(CommandLineParser.complete(BasicConfigObject.class, new String[]{"--dep="}, 0).hint(), Completion.Hint.NUMBER);
+        assertEquals(CommandLineParser.complete(BasicConfigObject.class, new String[]{"-v", ""}, 1).hint(), Completion.Hint.KEY);
+        //Lazy options complete as their value type
+        assertEquals(CommandLineParser.complete(BasicConfigObjectWithLazyOptions.class, new String[]{"--path", ""}, 1).hint(), Completion.Hint.PATH);
+        completion = CommandLineParser.complete(BasicConfigObjectWithLazyOptions.class, new String[]{"-m", ""}, 1);
+        assertEquals(completion.hint(), Completion.Hint.CHOICE);
+        assertEquals(completion.candidates(), Arrays.asList("FAST", "SAFE"));
+        assertEquals(CommandLineParser.complete(BasicConfigObjectWithLazyOptions.class, new String[]{"-c", ""}, 1).hint(), Completion.Hint.NUMBER);
+    }
+
     private static void null_stderr() {
         System.setErr(new PrintStream(new OutputStream() {
             @Override
@@ -0,0 +1,30 @@
+package com.lupusumbra.util.commandline.test.basic.config;
+
+import com.lupusumbra.util.commandline.annotation.Command;
+import com.lupusumbra.util.commandline.annotation.Option;
+import com.lupusumbra.util.commandline.annotation.Parameters;
+
+import java.nio.file.Path;
+import java.util.List;
+
+@Command(name="root")
+public interface BasicConfigInterface {
+    @Option(name="verbose",shortKey = "-v", longKey = "--verbose", description = "Verbose Output")
+    boolean verbose();
+    @Option(name="count",shortKey = "-c", longKey = "--count", description = "Count", defaultValue = "3")
+    int count();
+    @Option(name="size",shortKey = "-s", longKey = "--size", description = "Size")
+    long size();
+    @Option(name="ratio",shortKey = "-r", longKey = "--ratio", description = "Ratio", defaultValue = "0.5")
+    double ratio();
+    @Option(name="name",shortKey = "-n", longKey = "--name", description = "Name")
+    String name();
+    @Option(name="path",shortKey = "-p", longKey = "--path", description = "Path")
+    Path path();
+    @Parameters
+    List<String> parameters();
+
+    default String label(String prefix) {
+        return prefix + name() + "x" + count();
+    }
+}
@@ -0,0 +1,16 @@
+package com.lupusumbra.util.commandline.test.basic.config;
+
+import com.lupusumbra.util.commandline.annotation.Command;
+import com.lupusumbra.util.commandline.annotation.Option;
+import com.lupusumbra.util.commandline.annotation.Parameters;
+
+import java.util.List;
+
+@SuppressWarnings("WeakerAccess")
+@Command(name="root")
+public class BasicConfigObjectWithCompactParameters {
+    @Option(name="verbose",shortKey = "-v", longKey = "--verbose", description = "Verbose Output")
+    public boolean verbose;
+    @Parameters(compact = true)
+    public List<String> paths;
+}
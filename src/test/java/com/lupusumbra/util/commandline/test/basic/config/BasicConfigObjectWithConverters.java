@@ -0,0 +1,34 @@
+package com.lupusumbra.util.commandline.test.basic.config;
+
+import com.lupusumbra.util.commandline.annotation.Command;
+import com.lupusumbra.util.commandline.annotation.Option;
+import com.lupusumbra.util.commandline.converter.TypeConverter;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@SuppressWarnings("WeakerAccess")
+@Command(name="root")
+public class BasicConfigObjectWithConverters {
+    public enum Level { DEBUG, INFO, WARN }
+
+    public static class PercentConverter implements TypeConverter<Integer> {
+        public static final AtomicInteger CONVERSIONS = new AtomicInteger();
+
+        @Override
+        public Integer convert(String value) {
+            CONVERSIONS.incrementAndGet();
+            return Integer.parseInt(value.endsWith("%") ? value.substring(0, value.length() - 1) : value);
+        }
+    }
+
+    @Option(name="level",shortKey = "-L", longKey = "--level", description = "Log level", defaultValue = "info")
+    public Level level;
+    @Option(name="uri",shortKey = "", longKey = "--uri", description = "URI test")
+    public URI uri;
+    @Option(name="timeout",shortKey = "", longKey = "--timeout", description = "Duration test", defaultValue = "PT30S")
+    public Duration timeout;
+    @Option(name="ratio",shortKey = "-r", longKey = "--ratio", description = "Custom converter test", defaultValue = "50%", converter = PercentConverter.class)
+    public int ratio;
+}
@@ -0,0 +1,24 @@
+package com.lupusumbra.util.commandline.test.basic.config;
+
+import com.lupusumbra.util.commandline.Lazy;
+import com.lupusumbra.util.commandline.annotation.Command;
+import com.lupusumbra.util.commandline.annotation.Option;
+
+import java.nio.file.Path;
+
+@SuppressWarnings("WeakerAccess")
+@Command(name="root")
+public class BasicConfigObjectWithLazyOptions {
+    public enum Mode { FAST, SAFE }
+
+    @Option(name="path",shortKey = "-p", longKey = "--path", description = "Lazy path")
+    public Lazy<Path> path;
+    @Option(name="count",shortKey = "-c", longKey = "--count", description = "Lazy count", defaultValue = "7")
+    public Lazy<Integer> count;
+    @Option(name="ratio",shortKey = "-r", longKey = "--ratio", description = "Lazy custom converter", converter = BasicConfigObjectWithConverters.PercentConverter.class)
+    public Lazy<Integer> ratio;
+    @Option(name="mode",shortKey = "-m", longKey = "--mode", description = "Lazy enum")
+    public Lazy<Mode> mode;
+    @Option(name="verbose",shortKey = "-v", longKey = "--verbose", description = "Verbose Output")
+    public boolean verbose;
+}
@@ -0,0 +1,29 @@
+package com.lupusumbra.util.commandline.test.basic.config;
+
+import com.lupusumbra.util.commandline.annotation.Command;
+import com.lupusumbra.util.commandline.annotation.Option;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+@SuppressWarnings("WeakerAccess")
+@Command(name="root")
+public class BasicConfigObjectWithRepeatableOptions {
+    @Option(name="id",shortKey = "-i", longKey = "--id", description = "Ids")
+    public int[] ids;
+    @Option(name="size",shortKey = "-s", longKey = "--size", description = "Sizes")
+    public long[] sizes;
+    @Option(name="weight",shortKey = "-w", longKey = "--weight", description = "Weights")
+    public double[] weights;
+    @Option(name="include",shortKey = "-I", longKey = "--include", description = "Include directories")
+    public List<String> includes;
+    @Option(name="path",shortKey = "-p", longKey = "--path", description = "Paths")
+    public List<Path> paths;
+    @Option(name="tag",shortKey = "-t", longKey = "--tag", description = "Tags")
+    public Set<String> tags;
+    @Option(name="name",shortKey = "-n", longKey = "--name", description = "Names")
+    public String[] names;
+    @Option(name="port",shortKey = "-P", longKey = "--port", description = "Ports", env = "APP_PORTS")
+    public int[] ports = {80};
+}
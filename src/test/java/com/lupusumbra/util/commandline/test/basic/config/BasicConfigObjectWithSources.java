@@ -0,0 +1,19 @@
+package com.lupusumbra.util.commandline.test.basic.config;
+
+import com.lupusumbra.util.commandline.annotation.Command;
+import com.lupusumbra.util.commandline.annotation.Option;
+
+@SuppressWarnings("WeakerAccess")
+@Command(name="root")
+public class BasicConfigObjectWithSources {
+    @Option(name="host",shortKey = "-H", longKey = "--host", description = "Host name", env = "APP_HOST", property = "app.host", defaultValue = "localhost")
+    public String host;
+    @Option(name="port",shortKey = "-p", longKey = "--port", description = "Port", env = "APP_PORT", property = "app.port", defaultValue = "80")
+    public int port;
+    @Option(name="debug",shortKey = "-d", longKey = "--debug", description = "Debug Output", env = "APP_DEBUG", property = "app.debug")
+    public boolean debug;
+    @Option(name="user",shortKey = "-u", longKey = "--user", description = "User name", property = "app.user")
+    public String user;
+    @Option(name="verbose",shortKey = "-v", longKey = "--verbose", description = "Verbose Output")
+    public boolean verbose;
+}
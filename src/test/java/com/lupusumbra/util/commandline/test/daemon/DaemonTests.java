@@ -0,0 +1,130 @@
+package com.lupusumbra.util.commandline.test.daemon;
+
+import com.lupusumbra.util.commandline.CommandParser;
+import com.lupusumbra.util.commandline.daemon.CommandDaemon;
+import com.lupusumbra.util.commandline.daemon.CommandHandler;
+import com.lupusumbra.util.commandline.daemon.DaemonClient;
+import com.lupusumbra.util.commandline.test.subcommands.config.RootConfigObject;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class DaemonTests {
+    //prints the parsed name and SubCommand path, and the client working directory and environment
+    private static final CommandHandler<RootConfigObject> HANDLER = (result, invocation) -> {
+        invocation.out().println(result.data().name + " " + result.subCommandPath());
+        invocation.err().println(invocation.cwd() + " " + invocation.env().get("DAEMON_TEST"));
+        return result.subCommandPath().size();
+    };
+
+    @Test
+    public void testDaemon() throws Exception {
+        final Path dir = Files.createTempDirectory("daemon");
+        try (CommandDaemon<RootConfigObject> daemon = CommandDaemon.start(dir.resolve("root.sock"), CommandParser.of(RootConfigObject.class), HANDLER, 4)) {
+            assertOwnerOnly(daemon.path());
+            assertRuns(daemon.path());
+        } finally {
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    public void testLoopbackDaemon() throws Exception {
+        final Path dir = Files.createTempDirectory("daemon");
+        try (CommandDaemon<RootConfigObject> daemon = CommandDaemon.loopback(dir.resolve("root.port"), CommandParser.of(RootConfigObject.class), HANDLER, 2)) {
+            assertTrue(Files.isRegularFile(daemon.path()));
+            assertOwnerOnly(daemon.path());
+            assertRuns(daemon.path());
+        } finally {
+            Files.delete(dir);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testLoopbackDaemonSecret() throws Exception {
+        final Path dir = Files.createTempDirectory("daemon");
+        final Path forged = dir.resolve("forged.port");
+        try (CommandDaemon<RootConfigObject> daemon = CommandDaemon.loopback(dir.resolve("root.port"), CommandParser.of(RootConfigObject.class), HANDLER, 1)) {
+            Files.write(forged, Arrays.asList(Files.readAllLines(daemon.path()).get(0), "0123456789abcdef0123456789abcdef"), StandardCharsets.UTF_8);
+            DaemonClient.run(forged, new String[]{"--name=forged"}, "/", Collections.emptyMap(), new ByteArrayOutputStream(), new ByteArrayOutputStream());
+        } finally {
+            Files.delete(forged);
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    public void testDaemonRequestTimeout() throws Exception {
+        final Path dir = Files.createTempDirectory("daemon");
+        final ExecutorService clients = Executors.newSingleThreadExecutor();
+        try (CommandDaemon<RootConfigObject> daemon = CommandDaemon.loopback(dir.resolve("root.port"), CommandParser.of(RootConfigObject.class), HANDLER, 1, Duration.ofMillis(200));
+             Socket idle = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(Files.readAllLines(daemon.path()).get(0).substring("tcp:".length())))) {
+            idle.setSoTimeout(5000);
+            //the idle connection holds the only permit until it misses the request timeout
+            final Future<Integer> status = clients.submit(() -> DaemonClient.run(daemon.path(), new String[]{"--name=second"}, "/", Collections.emptyMap(), new ByteArrayOutputStream(), new ByteArrayOutputStream()));
+            assertEquals(status.get(5, TimeUnit.SECONDS), Integer.valueOf(0));
+            assertEquals(idle.getInputStream().read(), -1);
+        } finally {
+            clients.shutdownNow();
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    public void testDaemonParseError() throws Exception {
+        final Path dir = Files.createTempDirectory("daemon");
+        try (CommandDaemon<RootConfigObject> daemon = CommandDaemon.start(dir.resolve("root.sock"), CommandParser.of(RootConfigObject.class), HANDLER, 1)) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final ByteArrayOutputStream err = new ByteArrayOutputStream();
+            assertEquals(DaemonClient.run(daemon.path(), new String[]{"--unknown"}, "/", Collections.emptyMap(), out, err), 2);
+            assertEquals(out.size(), 0);
+            assertEquals(new String(err.toByteArray(), StandardCharsets.UTF_8).trim(), "Unknown option: 'unknown'");
+        } finally {
+            Files.delete(dir);
+        }
+    }
+
+    private static void assertOwnerOnly(Path path) throws IOException {
+        if (Files.getFileStore(path).supportsFileAttributeView("posix")) assertEquals(PosixFilePermissions.toString(Files.getPosixFilePermissions(path)), "rw-------");
+    }
+
+    private static void assertRuns(Path path) throws Exception {
+        final ExecutorService clients = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<?>> runs = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                final String name = "test" + i;
+                runs.add(clients.submit(() -> {
+                    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    final ByteArrayOutputStream err = new ByteArrayOutputStream();
+                    final int status = DaemonClient.run(path, new String[]{"--name=" + name, "create", "groups", "wheel", "bin"}, "/work", Collections.singletonMap("DAEMON_TEST", name), out, err);
+                    assertEquals(status, 2);
+                    assertEquals(new String(out.toByteArray(), StandardCharsets.UTF_8), name + " [create, groups]" + System.lineSeparator());
+                    assertEquals(new String(err.toByteArray(), StandardCharsets.UTF_8).trim(), "/work " + name);
+                    return null;
+                }));
+            }
+            for (Future<?> run : runs) run.get();
+        } finally {
+            clients.shutdown();
+        }
+    }
+}
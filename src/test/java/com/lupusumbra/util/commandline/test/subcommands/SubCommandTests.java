@@ -1,12 +1,48 @@
 package com.lupusumbra.util.commandline.test.subcommands;
 
 import com.lupusumbra.util.commandline.CommandLineParser;
+import com.lupusumbra.util.commandline.CommandParser;
+import com.lupusumbra.util.commandline.Completion;
+import com.lupusumbra.util.commandline.ModelSnapshot;
+import com.lupusumbra.util.commandline.NativeImageMetadata;
+import com.lupusumbra.util.commandline.ParseResult;
+import com.lupusumbra.util.commandline.SubCommandIndex;
+import com.lupusumbra.util.commandline.SubCommandPlugin;
+import com.lupusumbra.util.commandline.annotation.Option;
+import com.lupusumbra.util.commandline.annotation.Parameters;
+import com.lupusumbra.util.commandline.annotation.SubCommand;
+import com.lupusumbra.util.commandline.listener.ParseListener;
+import com.lupusumbra.util.commandline.test.basic.config.BasicConfigObjectWithConverters;
+import com.lupusumbra.util.commandline.test.basic.config.BasicConfigObjectWithLazyOptions;
 import com.lupusumbra.util.commandline.test.subcommands.config.CreateCommandArgs;
+import com.lupusumbra.util.commandline.test.subcommands.config.DeployArgs;
+import com.lupusumbra.util.commandline.test.subcommands.config.DeployPlugin;
+import com.lupusumbra.util.commandline.test.subcommands.config.LazyBuildArgs;
+import com.lupusumbra.util.commandline.test.subcommands.config.LazyCleanArgs;
+import com.lupusumbra.util.commandline.test.subcommands.config.LazyRootConfigObject;
+import com.lupusumbra.util.commandline.test.subcommands.config.PluginRootConfigObject;
 import com.lupusumbra.util.commandline.test.subcommands.config.RootConfigObject;
 import com.lupusumbra.util.commandline.test.subcommands.config.SearchConfigArgs;
 import org.junit.Test;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import static org.junit.Assert.*;
 
@@ -34,4 +70,250 @@ public class SubCommandTests {
         assertEquals(root.subCommand("create").parameters().size(),0);
         assertEquals(root.subCommand("create").subCommand("groups").parameters().size(),3);
     }
+
+    @Test
+    public void testSubCommandPath() {
+        final String[] args = {"--name=test", "create", "--username=testuser", "groups", "wheel"};
+        ParseResult<RootConfigObject> root = CommandParser.of(RootConfigObject.class).parse(args);
+        assertEquals(Arrays.asList("create", "groups"), root.subCommandPath());
+        assertEquals(root.selectedSubCommand().name(), "create");
+        assertTrue(root.selectedSubCommand().provided("username"));
+        assertEquals(root.selectedSubCommand().selectedSubCommand().parameters().size(), 1);
+        assertTrue(root.data().create == root.subCommand("create").data());
+        assertFalse(root.subCommand("search").selected());
+    }
+
+    @Test
+    public void testSubCommandCompletion() {
+        Completion completion = CommandLineParser.complete(RootConfigObject.class, new String[]{}, 0);
+        assertEquals(completion.hint(), Completion.Hint.KEY);
+        assertTrue(completion.candidates().containsAll(Arrays.asList("create", "search", "--name", "-v")));
+        completion = CommandLineParser.complete(RootConfigObject.class, new String[]{"cr"}, 0);
+        assertEquals(completion.candidates(), Arrays.asList("create"));
+        completion = CommandLineParser.complete(RootConfigObject.class, new String[]{"create", "--f"}, 1);
+        assertEquals(completion.candidates(), Arrays.asList("--first-name"));
+        completion = CommandLineParser.complete(RootConfigObject.class, new String[]{"create", "-u", "groups", "g"}, 3);
+        assertEquals(completion.candidates(), Arrays.asList("groups"));
+        completion = CommandLineParser.complete(RootConfigObject.class, new String[]{"--name", "create", "s"}, 2);
+        assertEquals(completion.candidates(), Arrays.asList("search"));
+    }
+
+    @Test
+    public void testSubCommandDispatch() {
+        final List<String> messages = new ArrayList<>();
+        final CommandParser<RootConfigObject> parser = CommandParser.of(RootConfigObject.class).usage(messages::add);
+        ParseResult<RootConfigObject> root = parser.parse("create", "-u", "user", "groups", "wheel", "search", "-u", "other");
+        assertEquals(root.subCommandPath(), Arrays.asList("search"));
+        assertEquals(root.data().create.username, "user");
+        assertEquals(root.data().create.groups.members, Arrays.asList("wheel"));
+        assertEquals(root.data().search.username, "other");
+        root = parser.parse("create", "groups", "wheel", "create", "bin");
+        assertEquals(root.subCommandPath(), Arrays.asList("create", "groups"));
+        assertEquals(root.data().create.groups.members, Arrays.asList("wheel", "bin"));
+        parser.parse("create", "groups", "--help");
+        assertEquals(messages, Arrays.asList(parser.toUsage()));
+    }
+
+    @Test
+    public void testLazySubCommands() {
+        final Set<Class<?>> built = new HashSet<>();
+        CommandLineParser.listener(new ParseListener() {
+            @Override
+            public void modelBuilt(Class<?> commandClass, long nanos) {
+                built.add(commandClass);
+            }
+        });
+        try {
+            final ParseResult<LazyRootConfigObject> root = CommandParser.of(LazyRootConfigObject.class).parse("-v", "build", "--target=all");
+            assertEquals(root.subCommands(), new HashSet<>(Arrays.asList("build", "clean")));
+            assertEquals(root.data().build.target, "all");
+            assertNull(root.data().clean);
+            assertTrue(built.contains(LazyBuildArgs.class));
+            assertFalse(built.contains(LazyCleanArgs.class));
+            assertFalse(root.subCommand("clean").selected());
+            assertTrue(root.data().clean == root.subCommand("clean").data());
+            assertTrue(built.contains(LazyCleanArgs.class));
+            assertNull(root.subCommand("unknown"));
+        } finally {
+            CommandLineParser.listener(null);
+        }
+    }
+
+    @Test
+    public void testPluginSubCommands() throws Exception {
+        final Path dir = Files.createTempDirectory("plugins");
+        Files.createDirectories(dir.resolve("META-INF/services"));
+        Files.write(dir.resolve("META-INF/services/" + SubCommandPlugin.class.getName()), Arrays.asList("# plugins", DeployPlugin.class.getName()), StandardCharsets.UTF_8);
+        final URL[] urls = {dir.toUri().toURL(), CommandParser.class.getProtectionDomain().getCodeSource().getLocation(), RootConfigObject.class.getProtectionDomain().getCodeSource().getLocation()};
+        final String[] args = {"-v", "deploy", "--target=prod"};
+        try {
+            //without an index, the providers are instantiated through the ServiceLoader
+            try (RecordingClassLoader loader = new RecordingClassLoader(urls)) {
+                final Object result = parsePlugins(loader, args);
+                assertEquals(result.getClass().getMethod("subCommands").invoke(result), new HashSet<>(Arrays.asList("clean", "deploy")));
+                assertTrue(loader.loaded.contains(DeployPlugin.class.getName()));
+            }
+            SubCommandIndex.main(new String[]{dir.toString()});
+            //with an index, the plugin Command class is only loaded once selected, and the provider never is
+            try (RecordingClassLoader loader = new RecordingClassLoader(urls)) {
+                final Object empty = parsePlugins(loader);
+                assertEquals(empty.getClass().getMethod("subCommands").invoke(empty), new HashSet<>(Arrays.asList("clean", "deploy")));
+                assertFalse(loader.loaded.contains(DeployArgs.class.getName()));
+                final Object result = parsePlugins(loader, args);
+                assertEquals(result.getClass().getMethod("subCommandPath").invoke(result), Arrays.asList("deploy"));
+                final Object deploy = result.getClass().getMethod("selectedSubCommand").invoke(result);
+                final Object data = deploy.getClass().getMethod("data").invoke(deploy);
+                assertEquals(data.getClass().getName(), DeployArgs.class.getName());
+                assertEquals(data.getClass().getField("target").get(data), "prod");
+                assertTrue(loader.loaded.contains(DeployArgs.class.getName()));
+                assertFalse(loader.loaded.contains(DeployPlugin.class.getName()));
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+    }
+
+    /**
+     * Parse a command line of the {@link PluginRootConfigObject} fixture, as loaded by another class loader
+     */
+    private static Object parsePlugins(final ClassLoader loader, final String... args) throws Exception {
+        final Class<?> parserClass = loader.loadClass(CommandParser.class.getName());
+        final Object parser = parserClass.getMethod("of", Class.class).invoke(null, loader.loadClass(PluginRootConfigObject.class.getName()));
+        return parserClass.getMethod("parse", String[].class).invoke(parser, (Object) args);
+    }
+
+    /**
+     * A class loader isolated from the application class path, recording the classes it loads
+     */
+    private static final class RecordingClassLoader extends URLClassLoader {
+        private final Set<String> loaded = new HashSet<>();
+
+        RecordingClassLoader(final URL[] urls) {
+            super(urls, ClassLoader.getSystemClassLoader().getParent());
+        }
+
+        @Override
+        protected Class<?> findClass(final String name) throws ClassNotFoundException {
+            this.loaded.add(name);
+            return super.findClass(name);
+        }
+    }
+
+    @Test
+    public void testModelSnapshot() throws Exception {
+        final Path dir = Files.createTempDirectory("snapshot");
+        ModelSnapshot.main(new String[]{dir.toString(), RootConfigObject.class.getName()});
+        final Path snapshots = dir.resolve("META-INF/commandline");
+        final Path snapshot = snapshots.resolve(RootConfigObject.class.getName() + ".model");
+        assertTrue(Files.isRegularFile(snapshots.resolve(CreateCommandArgs.class.getName() + ".model")));
+        //mark the snapshot, to tell its usage from the one rendered from the annotations
+        final String marked = new String(Files.readAllBytes(snapshot), StandardCharsets.ISO_8859_1).replace("Verbose Output", "Verbose OUTPUT");
+        Files.write(snapshot, marked.getBytes(StandardCharsets.ISO_8859_1));
+        final String[] args = {"--name=test", "create", "-u", "user", "groups", "wheel"};
+        final ParseResult<RootConfigObject> expected = CommandParser.of(RootConfigObject.class).parse(args);
+        final URL main = CommandParser.class.getProtectionDomain().getCodeSource().getLocation();
+        final URL test = RootConfigObject.class.getProtectionDomain().getCodeSource().getLocation();
+        //a fresh loader, so the models are built again, from the snapshots
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{dir.toUri().toURL(), main, test}, ClassLoader.getSystemClassLoader().getParent())) {
+            final Class<?> parserClass = loader.loadClass(CommandParser.class.getName());
+            final Object parser = parserClass.getMethod("of", Class.class).invoke(null, loader.loadClass(RootConfigObject.class.getName()));
+            //a generated parser takes precedence over the snapshot
+            final boolean generated = loader.getResource(RootConfigObject.class.getName().replace('.', '/') + "_CommandParser.class") != null;
+            final String usage = CommandParser.of(RootConfigObject.class).toUsage();
+            assertEquals(parserClass.getMethod("toUsage").invoke(parser), generated ? usage : usage.replace("Verbose Output", "Verbose OUTPUT"));
+            final Object result = parserClass.getMethod("parse", String[].class).invoke(parser, (Object) args);
+            final Method path = result.getClass().getMethod("subCommandPath");
+            assertEquals(path.invoke(result), expected.subCommandPath());
+            final Object create = result.getClass().getMethod("selectedSubCommand").invoke(result);
+            assertEquals(create.getClass().getMethod("provided", String.class).invoke(create, "username"), true);
+            final Object groups = create.getClass().getMethod("selectedSubCommand").invoke(create);
+            assertEquals(groups.getClass().getMethod("parameters").invoke(groups), Arrays.asList("wheel"));
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+    }
+
+    @Test
+    public void testModelSnapshotFingerprint() throws Exception {
+        final Path dir = Files.createTempDirectory("snapshot");
+        ModelSnapshot.main(new String[]{dir.toString(), RootConfigObject.class.getName()});
+        final Path snapshot = dir.resolve("META-INF/commandline/" + RootConfigObject.class.getName() + ".model");
+        //mark the snapshot, and change the class file CRC32 it was written for, which follows the magic, version and class name
+        final byte[] marked = new String(Files.readAllBytes(snapshot), StandardCharsets.ISO_8859_1).replace("Verbose Output", "Verbose OUTPUT").getBytes(StandardCharsets.ISO_8859_1);
+        marked[12 + RootConfigObject.class.getName().length() + 7] ^= 1;
+        Files.write(snapshot, marked);
+        final URL main = CommandParser.class.getProtectionDomain().getCodeSource().getLocation();
+        final URL test = RootConfigObject.class.getProtectionDomain().getCodeSource().getLocation();
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{dir.toUri().toURL(), main, test}, ClassLoader.getSystemClassLoader().getParent())) {
+            final Class<?> parserClass = loader.loadClass(CommandParser.class.getName());
+            final Object parser = parserClass.getMethod("of", Class.class).invoke(null, loader.loadClass(RootConfigObject.class.getName()));
+            //the stale snapshot is ignored, the usage is rendered from the annotations
+            assertEquals(parserClass.getMethod("toUsage").invoke(parser), CommandParser.of(RootConfigObject.class).toUsage());
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+    }
+
+    @Test
+    public void testNativeImageMetadata() throws Exception {
+        final Path dir = Files.createTempDirectory("native-image");
+        try {
+            NativeImageMetadata.main(new String[]{dir.toString(), RootConfigObject.class.getName(), BasicConfigObjectWithConverters.class.getName(), BasicConfigObjectWithLazyOptions.class.getName()});
+            final Path config = dir.resolve("META-INF/native-image/" + RootConfigObject.class.getName());
+            //one entry per line, by class name
+            final Map<String, String> entries = new HashMap<>();
+            final Pattern name = Pattern.compile("^\\{\"name\":\"([^\"]+)\"");
+            for (String line : Files.readAllLines(config.resolve("reflect-config.json"))) {
+                final Matcher matcher = name.matcher(line);
+                if (matcher.find()) entries.put(matcher.group(1), line);
+            }
+            //every Command class the parse instantiates, with the fields it writes
+            final ParseResult<RootConfigObject> root = CommandParser.of(RootConfigObject.class).parse("--name=test", "create", "-u", "user", "groups", "wheel");
+            final ParseResult<?> create = root.selectedSubCommand();
+            for (Object data : Arrays.asList(root.data(), create.data(), create.selectedSubCommand().data(), root.subCommand("search").data(), new BasicConfigObjectWithConverters(), new BasicConfigObjectWithLazyOptions())) {
+                final String entry = entries.get(data.getClass().getName());
+                assertNotNull(data.getClass().getName(), entry);
+                assertTrue(entry.contains("{\"name\":\"<init>\",\"parameterTypes\":[]}"));
+                for (Field field : data.getClass().getDeclaredFields())
+                    if (field.getAnnotation(Option.class) != null || field.getAnnotation(SubCommand.class) != null || field.getAnnotation(Parameters.class) != null)
+                        assertTrue(field.toString(), entry.contains("{\"name\":\"" + field.getName() + "\",\"allowWrite\":true}"));
+            }
+            //the converter it instantiates, and the enum whose constants it lists
+            assertTrue(entries.get(BasicConfigObjectWithConverters.PercentConverter.class.getName()).contains("\"<init>\""));
+            assertTrue(entries.get(BasicConfigObjectWithConverters.Level.class.getName()).contains("\"values\""));
+            assertTrue(entries.get(BasicConfigObjectWithLazyOptions.Mode.class.getName()).contains("\"values\""));
+            assertEquals(entries.size(), 9 + (entries.keySet().stream().filter(key -> key.endsWith("_CommandParser")).count()));
+            final String resources = new String(Files.readAllBytes(config.resolve("resource-config.json")), StandardCharsets.UTF_8);
+            assertTrue(resources.contains("\\\\QMETA-INF/commandline/" + CreateCommandArgs.class.getName() + ".model\\\\E"));
+            assertTrue(resources.contains("\\\\Q" + CreateCommandArgs.class.getName().replace('.', '/') + ".class\\\\E"));
+            assertFalse(resources.contains("subcommands.index"));
+            //the SubCommands of plugins, with their service file and index, in a class loader which sees the plugin
+            final Path plugins = dir.resolve("plugins");
+            Files.createDirectories(plugins.resolve("META-INF/services"));
+            Files.write(plugins.resolve("META-INF/services/" + SubCommandPlugin.class.getName()), Arrays.asList(DeployPlugin.class.getName()), StandardCharsets.UTF_8);
+            final URL[] urls = {plugins.toUri().toURL(), CommandParser.class.getProtectionDomain().getCodeSource().getLocation(), RootConfigObject.class.getProtectionDomain().getCodeSource().getLocation()};
+            try (URLClassLoader loader = new URLClassLoader(urls, ClassLoader.getSystemClassLoader().getParent())) {
+                final String[] args = {dir.resolve("plugin-output").toString(), PluginRootConfigObject.class.getName()};
+                loader.loadClass(NativeImageMetadata.class.getName()).getMethod("main", String[].class).invoke(null, (Object) args);
+                loader.loadClass(ModelSnapshot.class.getName()).getMethod("main", String[].class).invoke(null, (Object) args);
+            }
+            final Path pluginConfig = dir.resolve("plugin-output/META-INF/native-image/" + PluginRootConfigObject.class.getName());
+            assertTrue(new String(Files.readAllBytes(pluginConfig.resolve("reflect-config.json")), StandardCharsets.UTF_8).contains("{\"name\":\"" + DeployArgs.class.getName() + "\","));
+            final String pluginResources = new String(Files.readAllBytes(pluginConfig.resolve("resource-config.json")), StandardCharsets.UTF_8);
+            assertTrue(pluginResources.contains("\\\\QMETA-INF/services/" + SubCommandPlugin.class.getName() + "\\\\E"));
+            assertTrue(pluginResources.contains("\\\\QMETA-INF/commandline/subcommands.index\\\\E"));
+            assertTrue(pluginResources.contains("\\\\QMETA-INF/commandline/" + DeployArgs.class.getName() + ".model\\\\E"));
+            assertTrue(Files.isRegularFile(dir.resolve("plugin-output/META-INF/commandline/" + DeployArgs.class.getName() + ".model")));
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+    }
 }
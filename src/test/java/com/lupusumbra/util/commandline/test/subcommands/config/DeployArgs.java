@@ -0,0 +1,18 @@
+package com.lupusumbra.util.commandline.test.subcommands.config;
+
+import com.lupusumbra.util.commandline.annotation.Command;
+import com.lupusumbra.util.commandline.annotation.Option;
+
+@SuppressWarnings("WeakerAccess")
+@Command(name="deploy")
+public class DeployArgs {
+    @Option(name="target",shortKey = "-t", longKey = "--target", description = "Deployment Target")
+    public String target;
+
+    @Override
+    public String toString() {
+        return "DeployArgs{" +
+                "target='" + target + '\'' +
+                '}';
+    }
+}
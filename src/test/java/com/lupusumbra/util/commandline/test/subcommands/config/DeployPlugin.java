@@ -0,0 +1,20 @@
+package com.lupusumbra.util.commandline.test.subcommands.config;
+
+import com.lupusumbra.util.commandline.SubCommandPlugin;
+
+public class DeployPlugin implements SubCommandPlugin {
+    @Override
+    public Class<?> parent() {
+        return PluginRootConfigObject.class;
+    }
+
+    @Override
+    public String name() {
+        return "deploy";
+    }
+
+    @Override
+    public Class<?> command() {
+        return DeployArgs.class;
+    }
+}
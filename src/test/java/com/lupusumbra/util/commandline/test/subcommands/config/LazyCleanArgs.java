@@ -0,0 +1,18 @@
+package com.lupusumbra.util.commandline.test.subcommands.config;
+
+import com.lupusumbra.util.commandline.annotation.Command;
+import com.lupusumbra.util.commandline.annotation.Option;
+
+@SuppressWarnings("WeakerAccess")
+@Command(name="clean")
+public class LazyCleanArgs {
+    @Option(name="all",shortKey = "-a", longKey = "--all", description = "Remove Everything")
+    public boolean all;
+
+    @Override
+    public String toString() {
+        return "LazyCleanArgs{" +
+                "all=" + all +
+                '}';
+    }
+}
@@ -0,0 +1,25 @@
+package com.lupusumbra.util.commandline.test.subcommands.config;
+
+import com.lupusumbra.util.commandline.annotation.Command;
+import com.lupusumbra.util.commandline.annotation.Option;
+import com.lupusumbra.util.commandline.annotation.SubCommand;
+
+@SuppressWarnings("WeakerAccess")
+@Command(name="tool")
+public class LazyRootConfigObject {
+    @Option(name="verbose",shortKey = "-v", longKey = "--verbose", description = "Verbose Output")
+    public boolean verbose;
+    @SubCommand(name = "build")
+    public LazyBuildArgs build;
+    @SubCommand(name = "clean")
+    public LazyCleanArgs clean;
+
+    @Override
+    public String toString() {
+        return "LazyRootConfigObject{" +
+                "verbose=" + verbose +
+                ", build=" + build +
+                ", clean=" + clean +
+                '}';
+    }
+}
@@ -0,0 +1,22 @@
+package com.lupusumbra.util.commandline.test.subcommands.config;
+
+import com.lupusumbra.util.commandline.annotation.Command;
+import com.lupusumbra.util.commandline.annotation.Option;
+import com.lupusumbra.util.commandline.annotation.SubCommand;
+
+@SuppressWarnings("WeakerAccess")
+@Command(name="app")
+public class PluginRootConfigObject {
+    @Option(name="verbose",shortKey = "-v", longKey = "--verbose", description = "Verbose Output")
+    public boolean verbose;
+    @SubCommand(name = "clean")
+    public LazyCleanArgs clean;
+
+    @Override
+    public String toString() {
+        return "PluginRootConfigObject{" +
+                "verbose=" + verbose +
+                ", clean=" + clean +
+                '}';
+    }
+}